@@ -0,0 +1,70 @@
+package indi.ly.crush.benchmark;
+
+import indi.ly.crush.autoconfigure.MinIoProperties;
+import indi.ly.crush.helper.MinIoHelper;
+import indi.ly.crush.model.UploadResultResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h2>内容类型识别基准测试</h2>
+ * <p>
+ *     通过公开的 {@link MinIoHelper#uploadFile(InputStream, String)} 上传一个小对象, 与指定了内容类型的
+ *     {@link MinIoHelper#uploadFile(InputStream, String, String)} 之差即为识别的开销.
+ *     PNG 命中魔数表; GZIP 不在魔数表中, 由 Tika 识别, detectCacheSize 为 0 时每次都经过完整的识别.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentTypeDetectionBenchmark {
+	@Param({"png", "gzip"})
+	public String format;
+	@Param({"1024", "0"})
+	public int detectCacheSize;
+	private MinIoHelper helper;
+	private byte[] content;
+	private String location;
+	
+	@Setup
+	public void setUp(StubEnvironment environment) {
+		MinIoProperties properties = environment.newProperties();
+		properties.getUpload().setDetectCacheSize(this.detectCacheSize);
+		this.helper = environment.newHelper(properties);
+		this.content = new byte[4096];
+		byte[] magic = "png".equals(this.format)
+							   ? new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}
+							   : new byte[] {0x1F, (byte) 0x8B, 0x08, 0x00};
+		System.arraycopy(magic, 0, this.content, 0, magic.length);
+		this.location = "detect/object." + this.format;
+	}
+	
+	@Benchmark
+	public UploadResultResponse detect() {
+		return this.helper.uploadFile(new ByteArrayInputStream(this.content), this.location);
+	}
+	
+	@Benchmark
+	public UploadResultResponse declared() {
+		return this.helper.uploadFile(new ByteArrayInputStream(this.content), this.location, "application/octet-stream");
+	}
+}
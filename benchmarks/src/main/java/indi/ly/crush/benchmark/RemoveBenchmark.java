@@ -0,0 +1,61 @@
+package indi.ly.crush.benchmark;
+
+import io.minio.messages.DeleteError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h2>删除基准测试</h2>
+ * <p>
+ *     删除前不经过 HTTP 直接在桩服务中放入要删除的对象, 其开销可以忽略.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RemoveBenchmark {
+	@Param({"1000", "5000"})
+	public int batch;
+	private List<String> locations;
+	
+	@Setup
+	public void setUp() {
+		this.locations = new ArrayList<>(this.batch);
+		for (int i = 0; i < this.batch; i++) {
+			this.locations.add("remove/%08d.bin".formatted(i));
+		}
+	}
+	
+	@Benchmark
+	public void removeFile(StubEnvironment environment) {
+		environment.stub.seed("remove/single.bin", 1024);
+		environment.helper.removeFile(environment.stub.endpoint() + "/bucket/remove/single.bin");
+	}
+	
+	@Benchmark
+	public List<DeleteError> removeFiles(StubEnvironment environment) {
+		for (String location : this.locations) {
+			environment.stub.seed(location, 1024);
+		}
+		return environment.helper.removeFiles(this.locations);
+	}
+}
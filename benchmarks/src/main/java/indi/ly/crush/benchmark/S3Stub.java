@@ -0,0 +1,299 @@
+package indi.ly.crush.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <h2>S3 桩服务</h2>
+ * <p>
+ *     一个进程内、只监听回环地址的 S3 兼容服务, 只实现基准测试用到的接口:
+ *     PutObject、分片上传、HeadObject、GetObject、DeleteObject、DeleteObjects 与 ListObjectsV2. <br />
+ *
+ *     对象的内容被读取后直接丢弃, 只记录其大小, 因此基准测试衡量的是客户端自身的开销, 而不受磁盘与网络的影响.
+ *     不校验签名, 不区分桶.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+public class S3Stub
+		implements AutoCloseable {
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "s3-stub");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final NavigableMap<String, Long> objects = new ConcurrentSkipListMap<>();
+	private final Map<String, AtomicLong> uploads = new ConcurrentHashMap<>();
+	private static final String NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+	private static final String ETAG = "\"d41d8cd98f00b204e9800998ecf8427e\"";
+	private static final String LAST_MODIFIED = "2023-01-01T00:00:00.000Z";
+	private static final String LAST_MODIFIED_HTTP = "Sun, 01 Jan 2023 00:00:00 GMT";
+	private static final int MAX_KEYS = 1000;
+	private static final Pattern KEY_PATTERN = Pattern.compile("<Key>(.*?)</Key>");
+	private static final byte[] ZEROS = new byte[64 * 1024];
+	
+	static {
+		// 关闭 Nagle 算法, 否则小响应会被延迟确认拖慢约 40 毫秒, 掩盖客户端自身的开销.
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+	
+	public S3Stub() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.server.createContext("/", this :: handle);
+		this.server.setExecutor(this.executor);
+		this.server.start();
+	}
+	
+	public String endpoint() {
+		return "http://127.0.0.1:" + this.server.getAddress().getPort();
+	}
+	
+	/**
+	 * <p>
+	 *     不经过 HTTP 直接放入一个对象, 用于准备列举与删除的数据.
+	 * </p>
+	 */
+	public void seed(String key, long size) {
+		this.objects.put(key, size);
+	}
+	
+	public int size() {
+		return this.objects.size();
+	}
+	
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			String path = exchange.getRequestURI().getRawPath();
+			int slash = path.indexOf('/', 1);
+			String key = slash == -1 ? "" : URLDecoder.decode(path.substring(slash + 1), StandardCharsets.UTF_8);
+			Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+			
+			switch (exchange.getRequestMethod()) {
+				case "PUT" -> this.put(exchange, key, query);
+				case "POST" -> this.post(exchange, key, query);
+				case "HEAD" -> this.head(exchange, key);
+				case "GET" -> {
+					if (key.isEmpty()) {
+						this.list(exchange, query);
+					} else {
+						this.get(exchange, key);
+					}
+				}
+				case "DELETE" -> {
+					drain(exchange);
+					this.objects.remove(key);
+					exchange.sendResponseHeaders(204, -1);
+				}
+				default -> error(exchange, 501, "NotImplemented");
+			}
+		}
+	}
+	
+	private void put(HttpExchange exchange, String key, Map<String, String> query) throws IOException {
+		long size = drain(exchange);
+		String uploadId = query.get("uploadId");
+		if (uploadId != null) {
+			AtomicLong uploaded = this.uploads.get(uploadId);
+			if (uploaded == null) {
+				error(exchange, 404, "NoSuchUpload");
+				return;
+			}
+			uploaded.addAndGet(size);
+		} else {
+			this.objects.put(key, size);
+		}
+		exchange.getResponseHeaders().set("ETag", ETAG);
+		exchange.sendResponseHeaders(200, -1);
+	}
+	
+	private void post(HttpExchange exchange, String key, Map<String, String> query) throws IOException {
+		String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+		if (query.containsKey("uploads")) {
+			String uploadId = UUID.randomUUID().toString();
+			this.uploads.put(uploadId, new AtomicLong());
+			xml(exchange, "<InitiateMultipartUploadResult xmlns=\"" + NAMESPACE + "\"><Bucket>bucket</Bucket><Key>"
+					+ escape(key) + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+		} else if (query.containsKey("uploadId")) {
+			AtomicLong uploaded = this.uploads.remove(query.get("uploadId"));
+			if (uploaded == null) {
+				error(exchange, 404, "NoSuchUpload");
+				return;
+			}
+			this.objects.put(key, uploaded.get());
+			xml(exchange, "<CompleteMultipartUploadResult xmlns=\"" + NAMESPACE + "\"><Location>" + escape(key)
+					+ "</Location><Bucket>bucket</Bucket><Key>" + escape(key) + "</Key><ETag>" + ETAG
+					+ "</ETag></CompleteMultipartUploadResult>");
+		} else if (query.containsKey("delete")) {
+			Matcher matcher = KEY_PATTERN.matcher(body);
+			while (matcher.find()) {
+				this.objects.remove(unescape(matcher.group(1)));
+			}
+			xml(exchange, "<DeleteResult xmlns=\"" + NAMESPACE + "\"></DeleteResult>");
+		} else {
+			error(exchange, 501, "NotImplemented");
+		}
+	}
+	
+	private void head(HttpExchange exchange, String key) throws IOException {
+		drain(exchange);
+		Long size = this.objects.get(key);
+		if (size == null) {
+			exchange.sendResponseHeaders(404, -1);
+			return;
+		}
+		objectHeaders(exchange, size);
+		exchange.sendResponseHeaders(200, -1);
+	}
+	
+	private void get(HttpExchange exchange, String key) throws IOException {
+		drain(exchange);
+		Long size = this.objects.get(key);
+		if (size == null) {
+			error(exchange, 404, "NoSuchKey");
+			return;
+		}
+		objectHeaders(exchange, size);
+		exchange.sendResponseHeaders(200, size == 0 ? -1 : size);
+		OutputStream body = exchange.getResponseBody();
+		for (long remaining = size; remaining > 0; remaining -= ZEROS.length) {
+			body.write(ZEROS, 0, (int) Math.min(ZEROS.length, remaining));
+		}
+	}
+	
+	private void list(HttpExchange exchange, Map<String, String> query) throws IOException {
+		drain(exchange);
+		String prefix = query.getOrDefault("prefix", "");
+		String delimiter = query.get("delimiter");
+		int maxKeys = Math.min(Integer.parseInt(query.getOrDefault("max-keys", String.valueOf(MAX_KEYS))), MAX_KEYS);
+		String after = query.getOrDefault("continuation-token", query.getOrDefault("start-after", ""));
+		
+		StringBuilder contents = new StringBuilder();
+		Set<String> commonPrefixes = new LinkedHashSet<>();
+		int count = 0;
+		String last = null;
+		boolean truncated = false;
+		for (Map.Entry<String, Long> entry : this.objects.tailMap(after, false).entrySet()) {
+			String key = entry.getKey();
+			if (!key.startsWith(prefix)) {
+				if (key.compareTo(prefix) > 0) {
+					break;
+				}
+				continue;
+			}
+			if (count == maxKeys) {
+				truncated = true;
+				break;
+			}
+			
+			int index = delimiter == null ? -1 : key.indexOf(delimiter, prefix.length());
+			if (index != -1) {
+				if (commonPrefixes.add(key.substring(0, index + delimiter.length()))) {
+					count++;
+				}
+			} else {
+				contents
+						.append("<Contents><Key>").append(encode(key)).append("</Key><LastModified>").append(LAST_MODIFIED)
+						.append("</LastModified><ETag>").append(ETAG).append("</ETag><Size>").append(entry.getValue())
+						.append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+				count++;
+			}
+			last = key;
+		}
+		
+		StringBuilder result = new StringBuilder()
+											.append("<ListBucketResult xmlns=\"").append(NAMESPACE).append("\"><Name>bucket</Name><Prefix>")
+											.append(encode(prefix)).append("</Prefix><KeyCount>").append(count)
+											.append("</KeyCount><MaxKeys>").append(maxKeys).append("</MaxKeys><EncodingType>url</EncodingType><IsTruncated>")
+											.append(truncated).append("</IsTruncated>");
+		if (truncated) {
+			result.append("<NextContinuationToken>").append(escape(last)).append("</NextContinuationToken>");
+		}
+		result.append(contents);
+		for (String commonPrefix : commonPrefixes) {
+			result.append("<CommonPrefixes><Prefix>").append(encode(commonPrefix)).append("</Prefix></CommonPrefixes>");
+		}
+		xml(exchange, result.append("</ListBucketResult>").toString());
+	}
+	
+	private static void objectHeaders(HttpExchange exchange, long size) {
+		exchange.getResponseHeaders().set("Content-Length", String.valueOf(size));
+		exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+		exchange.getResponseHeaders().set("ETag", ETAG);
+		exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED_HTTP);
+	}
+	
+	private static long drain(HttpExchange exchange) throws IOException {
+		return exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+	}
+	
+	private static void xml(HttpExchange exchange, String xml) throws IOException {
+		byte[] bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/xml");
+		exchange.sendResponseHeaders(200, bytes.length);
+		exchange.getResponseBody().write(bytes);
+	}
+	
+	private static void error(HttpExchange exchange, int status, String code) throws IOException {
+		byte[] bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>" + code + "</Code><Message>" + code
+				+ "</Message><Resource>" + escape(exchange.getRequestURI().getPath()) + "</Resource><RequestId>stub</RequestId>"
+				+ "<HostId>stub</HostId></Error>").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/xml");
+		exchange.sendResponseHeaders(status, bytes.length);
+		exchange.getResponseBody().write(bytes);
+	}
+	
+	private static Map<String, String> parseQuery(String rawQuery) {
+		Map<String, String> query = new HashMap<>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return query;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int index = pair.indexOf('=');
+			String name = URLDecoder.decode(index == -1 ? pair : pair.substring(0, index), StandardCharsets.UTF_8);
+			String value = index == -1 ? "" : URLDecoder.decode(pair.substring(index + 1), StandardCharsets.UTF_8);
+			query.put(name, value);
+		}
+		return query;
+	}
+	
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20").replace("%2F", "/");
+	}
+	
+	private static String escape(String value) {
+		return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+	
+	private static String unescape(String value) {
+		return value.replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+	}
+}
@@ -0,0 +1,66 @@
+package indi.ly.crush.benchmark;
+
+import io.minio.messages.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * <h2>列举基准测试</h2>
+ * <p>
+ *     在包含大量对象的前缀下, 比较一次性收集所有对象、惰性地逐页消费以及只取第一个对象的开销.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+	@Param({"10000", "100000"})
+	public int objects;
+	
+	@Setup(Level.Trial)
+	public void setUp(StubEnvironment environment) {
+		for (int i = 0; i < this.objects; i++) {
+			environment.stub.seed("large/%08d.bin".formatted(i), 1024);
+		}
+	}
+	
+	@Benchmark
+	public List<Item> search(StubEnvironment environment) {
+		return environment.helper.search(builder -> builder.prefix("large/").recursive(true));
+	}
+	
+	@Benchmark
+	public long searchStream(StubEnvironment environment) {
+		try (Stream<Item> items = environment.helper.searchStream(builder -> builder.prefix("large/").recursive(true))) {
+			return items.mapToLong(Item :: size).sum();
+		}
+	}
+	
+	@Benchmark
+	public Optional<Item> searchFirst(StubEnvironment environment) {
+		try (Stream<Item> items = environment.helper.searchStream(builder -> builder.prefix("large/").recursive(true))) {
+			return items.findFirst();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package indi.ly.crush.benchmark;
+
+import io.minio.SnowballObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h2>Snowball 批量上传基准测试</h2>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnowballBenchmark {
+	@Param({"100", "2000"})
+	public int count;
+	@Param({"1024", "65536"})
+	public int size;
+	private byte[] content;
+	
+	@Setup
+	public void setUp() {
+		this.content = new byte[this.size];
+		ThreadLocalRandom.current().nextBytes(this.content);
+	}
+	
+	@Benchmark
+	public void uploadFiles(StubEnvironment environment) {
+		List<SnowballObject> objects = new ArrayList<>(this.count);
+		for (int i = 0; i < this.count; i++) {
+			objects.add(new SnowballObject("snowball/" + i + ".bin", new ByteArrayInputStream(this.content), this.size, null));
+		}
+		environment.helper.uploadFiles(objects);
+	}
+}
@@ -0,0 +1,75 @@
+package indi.ly.crush.benchmark;
+
+import indi.ly.crush.autoconfigure.MinIoAutoConfiguration;
+import indi.ly.crush.autoconfigure.MinIoProperties;
+import indi.ly.crush.helper.MinIoHelper;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+/**
+ * <h2>桩环境</h2>
+ * <p>
+ *     每个基准测试共享的 {@link S3Stub} 以及连接到它的 {@link MinIoHelper},
+ *     HTTP 客户端与 starter 自动配置出的共享实例一致.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+public class StubEnvironment {
+	public S3Stub stub;
+	public MinIoHelper helper;
+	public MinIoProperties properties;
+	
+	@Setup
+	public void setUp() throws IOException {
+		this.stub = new S3Stub();
+		this.properties = this.newProperties();
+		this.helper = this.newHelper(this.properties);
+	}
+	
+	/**
+	 * <p>
+	 *     连接到 {@link #stub} 的属性, 供需要不同配置的基准测试修改后传给 {@link #newHelper(MinIoProperties)}.
+	 * </p>
+	 */
+	public MinIoProperties newProperties() {
+		MinIoProperties properties = new MinIoProperties();
+		properties.setEndpoint(this.stub.endpoint());
+		properties.setRegion("us-east-1");
+		properties.setBucketName("bucket");
+		return properties;
+	}
+	
+	public MinIoHelper newHelper(MinIoProperties properties) {
+		OkHttpClient httpClient = new MinIoAutoConfiguration().createSharedOkHttpClientBean(properties);
+		MinioClient minioClient = MinioClient
+											.builder()
+											.endpoint(properties.getEndpoint())
+											.region(properties.getRegion())
+											.credentials(properties.getAccessKey(), properties.getSecretKey())
+											.httpClient(httpClient)
+											.build();
+		MinioAsyncClient minioAsyncClient = MinioAsyncClient
+														.builder()
+														.endpoint(properties.getEndpoint())
+														.region(properties.getRegion())
+														.credentials(properties.getAccessKey(), properties.getSecretKey())
+														.httpClient(httpClient)
+														.build();
+		return new MinIoHelper(minioClient, minioAsyncClient, properties);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		this.stub.close();
+	}
+}
@@ -0,0 +1,54 @@
+package indi.ly.crush.benchmark;
+
+import indi.ly.crush.model.UploadResultResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h2>单文件上传基准测试</h2>
+ * <p>
+ *     小、中、大三种大小的对象, 分别以已知大小(<em>单次 PutObject 或由客户端分片</em>)与未知大小(<em>流水线式分片上传</em>)的方式上传.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UploadBenchmark {
+	@Param({"4096", "1048576", "33554432"})
+	public int size;
+	@Param({"true", "false"})
+	public boolean knownSize;
+	private byte[] content;
+	
+	@Setup
+	public void setUp() {
+		this.content = new byte[this.size];
+		ThreadLocalRandom.current().nextBytes(this.content);
+	}
+	
+	@Benchmark
+	public UploadResultResponse upload(StubEnvironment environment) {
+		InputStream stream = new ByteArrayInputStream(this.content);
+		return environment.helper.uploadFile(stream, this.knownSize ? this.size : -1, "upload/object.bin", "application/octet-stream");
+	}
+}
@@ -0,0 +1,65 @@
+package indi.ly.crush.autoconfigure;
+
+import javax.net.SocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+
+/**
+ * <h2>指定缓冲区大小的套接字工厂</h2>
+ * <p>
+ *     在创建的每个套接字上设置发送与接收缓冲区的大小, 为 null 的大小保持操作系统的默认值. <br />
+ *
+ *     OkHttp 只使用无参的 {@link #createSocket()} 创建套接字后自行连接, 缓冲区大小因此在连接之前设置, 对 TCP 窗口的协商生效.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class BufferSizedSocketFactory
+		extends SocketFactory {
+	private final SocketFactory delegate = SocketFactory.getDefault();
+	private final Integer sendBufferSize;
+	private final Integer receiveBufferSize;
+	
+	BufferSizedSocketFactory(Integer sendBufferSize, Integer receiveBufferSize) {
+		this.sendBufferSize = sendBufferSize;
+		this.receiveBufferSize = receiveBufferSize;
+	}
+	
+	@Override
+	public Socket createSocket() throws IOException {
+		return this.configure(this.delegate.createSocket());
+	}
+	
+	@Override
+	public Socket createSocket(String host, int port) throws IOException {
+		return this.configure(this.delegate.createSocket(host, port));
+	}
+	
+	@Override
+	public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+		return this.configure(this.delegate.createSocket(host, port, localHost, localPort));
+	}
+	
+	@Override
+	public Socket createSocket(InetAddress host, int port) throws IOException {
+		return this.configure(this.delegate.createSocket(host, port));
+	}
+	
+	@Override
+	public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+		return this.configure(this.delegate.createSocket(address, port, localAddress, localPort));
+	}
+	
+	private Socket configure(Socket socket) throws SocketException {
+		if (this.sendBufferSize != null) {
+			socket.setSendBufferSize(this.sendBufferSize);
+		}
+		if (this.receiveBufferSize != null) {
+			socket.setReceiveBufferSize(this.receiveBufferSize);
+		}
+		return socket;
+	}
+}
@@ -0,0 +1,541 @@
+package indi.ly.crush.autoconfigure;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h2>多节点故障转移拦截器</h2>
+ * <p>
+ *     将发往逻辑地址(<em>{@link MinIoProperties#getEndpoint()}</em>)的请求改写到同一 MinIO 部署的某个节点上:
+ *     <ol>
+ *         <li>每个节点以无锁的方式记录响应时间(<em>收到响应头为止</em>)的 EWMA 与分位数, 以及连续失败的次数.</li>
+ *         <li>请求发往健康节点中 EWMA 与进行中的请求数之积最小的节点, 少量请求随机发往其他节点以刷新其统计.</li>
+ *         <li>连续失败 {@link MinIoProperties.Failover#getFailureThreshold()} 次的节点被剔除一段时间;
+ *         失败的请求在其他节点上重试, 非幂等的请求只在连接失败(<em>请求尚未发出</em>)时重试.</li>
+ *         <li>幂等的请求在首个节点超过其响应时间的 {@link MinIoProperties.Failover#getHedgePercentile()} 分位数仍未响应时, 向第二个节点发送对冲请求, 采用先返回的响应.</li>
+ *     </ol>
+ *     改写只替换 URL 中的协议、主机与端口, 保留 MinIO 客户端签名时设置的 Host 请求头, 因此各节点看到的是同一个已签名的请求.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class EndpointFailoverInterceptor
+		implements Interceptor {
+	private final HttpUrl logical;
+	private final Node[] nodes;
+	/**
+	 * <p>
+	 *     发送对冲请求的客户端, 不带本拦截器, 与所在的客户端共享连接池与线程池, 但使用独立的调度器.
+	 * </p>
+	 */
+	private final OkHttpClient hedgeClient;
+	private final int failureThreshold;
+	private final long ejectNanos;
+	private final boolean hedge;
+	private final long hedgeMinDelayNanos;
+	private final long hedgeInitialDelayNanos;
+	private final Log logger = LogFactory.getLog(this.getClass());
+	/**
+	 * <p>
+	 *     随机发往其他健康节点的请求的比例.
+	 * </p>
+	 */
+	private static final double PROBE_RATIO = 0.01;
+	private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+	
+	/**
+	 * @param hedgeClient 发送对冲请求的客户端.
+	 * @param endpoint    逻辑地址, 同时也是第一个节点.
+	 * @param endpoints   其他节点的地址.
+	 * @param failover    路由的配置.
+	 */
+	EndpointFailoverInterceptor(OkHttpClient hedgeClient, String endpoint, List<String> endpoints, MinIoProperties.Failover failover) {
+		if (failover.getFailureThreshold() < 1) {
+			throw new IllegalArgumentException("'failover.failureThreshold' must be greater than 0, but it is " + failover.getFailureThreshold());
+		}
+		if (failover.getHedgePercentile() <= 0 || failover.getHedgePercentile() >= 1) {
+			throw new IllegalArgumentException("'failover.hedgePercentile' must be between 0 and 1, but it is " + failover.getHedgePercentile());
+		}
+		if (failover.getEjectDuration().isNegative() || failover.getHedgeMinDelay().isNegative() || failover.getHedgeInitialDelay().isNegative()) {
+			throw new IllegalArgumentException("'failover.ejectDuration', 'failover.hedgeMinDelay' and 'failover.hedgeInitialDelay' must not be negative, but it is " + failover);
+		}
+		
+		this.logical = HttpUrl.get(endpoint);
+		List<Node> nodes = new ArrayList<>(endpoints.size() + 1);
+		nodes.add(new Node(this.logical, failover.getHedgePercentile()));
+		for (String address : endpoints) {
+			HttpUrl url = HttpUrl.get(address);
+			if (nodes.stream().noneMatch(node -> sameAuthority(node.url, url))) {
+				nodes.add(new Node(url, failover.getHedgePercentile()));
+			}
+		}
+		this.nodes = nodes.toArray(Node[] :: new);
+		this.hedgeClient = hedgeClient;
+		this.failureThreshold = failover.getFailureThreshold();
+		this.ejectNanos = failover.getEjectDuration().toNanos();
+		this.hedge = Boolean.TRUE.equals(failover.getHedge());
+		this.hedgeMinDelayNanos = failover.getHedgeMinDelay().toNanos();
+		this.hedgeInitialDelayNanos = failover.getHedgeInitialDelay().toNanos();
+	}
+	
+	@Override
+	public Response intercept(Chain chain) throws IOException {
+		Request request = chain.request();
+		if (!sameAuthority(request.url(), this.logical)) {
+			return chain.proceed(request);
+		}
+		
+		boolean idempotent = "GET".equals(request.method()) || "HEAD".equals(request.method());
+		boolean[] tried = new boolean[this.nodes.length];
+		if (idempotent && this.hedge && this.nodes.length > 1) {
+			return new Hedge(request, tried).await(chain.call(), timeoutNanos(chain));
+		}
+		return this.proceed(chain, request, idempotent, tried);
+	}
+	
+	/**
+	 * <p>
+	 *     对冲请求等待结果的时限: 外层调用的连接、写入与读取超时之和, 任一超时为 0(<em>不限</em>)时不限.
+	 *     调用超时(<em>callTimeout</em>)到期时外层调用被取消, 由等待时对取消的检查处理.
+	 * </p>
+	 */
+	private static long timeoutNanos(Chain chain) {
+		if (chain.connectTimeoutMillis() == 0 || chain.writeTimeoutMillis() == 0 || chain.readTimeoutMillis() == 0) {
+			return Long.MAX_VALUE;
+		}
+		return TimeUnit.MILLISECONDS.toNanos((long) chain.connectTimeoutMillis() + chain.writeTimeoutMillis() + chain.readTimeoutMillis());
+	}
+	
+	/**
+	 * <p>
+	 *     依次在选出的节点上执行请求, 直到成功或没有可重试的节点.
+	 * </p>
+	 */
+	private Response proceed(Chain chain, Request request, boolean idempotent, boolean[] tried) throws IOException {
+		boolean replayable = request.body() == null || !request.body().isOneShot();
+		IOException failure = null;
+		for (Node node = this.select(tried); node != null; node = this.select(tried)) {
+			long start = node.begin();
+			Response response;
+			try {
+				response = chain.proceed(this.routed(request, node));
+			} catch (IOException e) {
+				node.end();
+				this.failed(node, e);
+				failure = suppress(failure, e);
+				if (chain.call().isCanceled() || !replayable || !(idempotent || e instanceof ConnectException)) {
+					throw failure;
+				}
+				continue;
+			}
+			
+			node.end();
+			if (!isUnavailable(response.code())) {
+				node.succeeded(System.nanoTime() - start);
+				return response;
+			}
+			this.failed(node, null);
+			if (!idempotent || !replayable || !this.hasUntried(tried)) {
+				return response;
+			}
+			response.close();
+		}
+		throw failure != null ? failure : new IOException("No MinIo endpoint is available");
+	}
+	
+	/**
+	 * <p>
+	 *     选出一个未尝试过的节点并将其标记为已尝试: 优先选择健康节点中得分最低的节点, 所有节点都被剔除时选择最早恢复的节点.
+	 * </p>
+	 *
+	 * @return 没有未尝试过的节点时为 null.
+	 */
+	private Node select(boolean[] tried) {
+		long now = System.nanoTime();
+		int best = -1;
+		int earliest = -1;
+		double bestScore = Double.MAX_VALUE;
+		boolean probe = ThreadLocalRandom.current().nextDouble() < PROBE_RATIO;
+		for (int i = 0; i < this.nodes.length; i++) {
+			if (tried[i]) {
+				continue;
+			}
+			Node node = this.nodes[i];
+			if (!node.isHealthy(now)) {
+				if (earliest == -1 || node.ejectedUntil.get() - this.nodes[earliest].ejectedUntil.get() < 0) {
+					earliest = i;
+				}
+				continue;
+			}
+			double score = probe ? ThreadLocalRandom.current().nextDouble() : node.score();
+			if (score < bestScore) {
+				bestScore = score;
+				best = i;
+			}
+		}
+		
+		int chosen = best != -1 ? best : earliest;
+		if (chosen == -1) {
+			return null;
+		}
+		tried[chosen] = true;
+		return this.nodes[chosen];
+	}
+	
+	private boolean hasUntried(boolean[] tried) {
+		for (boolean t : tried) {
+			if (!t) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private void failed(Node node, IOException e) {
+		if (node.failed(System.nanoTime(), this.failureThreshold, this.ejectNanos) && this.logger.isWarnEnabled()) {
+			this.logger.warn("Ejecting the MinIo endpoint " + node.url + " for " + TimeUnit.NANOSECONDS.toMillis(this.ejectNanos) + "ms", e);
+		}
+	}
+	
+	private Request routed(Request request, Node node) {
+		if (node.url == this.logical) {
+			return request;
+		}
+		HttpUrl url = request
+						.url()
+						.newBuilder()
+						.scheme(node.url.scheme())
+						.host(node.url.host())
+						.port(node.url.port())
+						.build();
+		return request.newBuilder().url(url).build();
+	}
+	
+	private static boolean sameAuthority(HttpUrl a, HttpUrl b) {
+		return a.port() == b.port() && a.host().equals(b.host()) && a.scheme().equals(b.scheme());
+	}
+	
+	private static boolean isUnavailable(int code) {
+		return code == 502 || code == 503 || code == 504;
+	}
+	
+	private static IOException suppress(IOException failure, IOException e) {
+		if (failure == null) {
+			return e;
+		}
+		failure.addSuppressed(e);
+		return failure;
+	}
+	
+	/**
+	 * <h2>对冲请求</h2>
+	 * <p>
+	 *     一次幂等请求的各次尝试(<em>首个请求、对冲请求以及失败后的重试</em>), 都经由 {@link #hedgeClient} 异步执行.
+	 *     第一个可用的响应完成 {@link #result}, 其余尝试被取消; 被取消的尝试以已等待的时长作为其节点的一次响应时间.
+	 *     等待不超过外层调用的超时, 到期时取消所有尝试并抛出 {@link SocketTimeoutException}.
+	 * </p>
+	 */
+	private final class Hedge {
+		private final Request request;
+		private final boolean[] tried;
+		private final CompletableFuture<Response> result = new CompletableFuture<>();
+		private final List<Attempt> attempts = new ArrayList<>(2);
+		private int pending;
+		private IOException failure;
+		
+		Hedge(Request request, boolean[] tried) {
+			this.request = request;
+			this.tried = tried;
+		}
+		
+		Response await(Call call, long timeoutNanos) throws IOException {
+			long start = System.nanoTime();
+			Node first;
+			synchronized (this) {
+				first = EndpointFailoverInterceptor.this.select(this.tried);
+				this.launch(first);
+			}
+			
+			try {
+				long hedgeDelay = first.hedgeDelay(EndpointFailoverInterceptor.this.hedgeMinDelayNanos, EndpointFailoverInterceptor.this.hedgeInitialDelayNanos);
+				Response response = this.poll(call, Math.min(hedgeDelay, timeoutNanos));
+				if (response != null) {
+					return response;
+				}
+				synchronized (this) {
+					Node second = this.result.isDone() ? null : EndpointFailoverInterceptor.this.select(this.tried);
+					if (second != null) {
+						this.launch(second);
+					}
+				}
+				response = this.poll(call, timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : timeoutNanos - (System.nanoTime() - start));
+				if (response == null) {
+					throw new SocketTimeoutException("No MinIo endpoint responded within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms");
+				}
+				return response;
+			} finally {
+				this.cancel();
+			}
+		}
+		
+		/**
+		 * <p>
+		 *     等待结果至多 nanos 纳秒, 超时返回 null. 等待期间外层调用被取消时抛出异常.
+		 * </p>
+		 */
+		private Response poll(Call call, long nanos) throws IOException {
+			long deadline = System.nanoTime() + nanos;
+			while (true) {
+				long remaining = nanos == Long.MAX_VALUE ? POLL_NANOS : Math.min(deadline - System.nanoTime(), POLL_NANOS);
+				try {
+					return this.result.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					if (remaining <= 0) {
+						return null;
+					}
+					if (call.isCanceled()) {
+						throw new IOException("Canceled");
+					}
+				} catch (ExecutionException e) {
+					throw e.getCause() instanceof IOException cause ? cause : new IOException(e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+		}
+		
+		/**
+		 * <p>
+		 *     在 node 上发起一次尝试, 调用时须持有本对象的锁.
+		 * </p>
+		 */
+		private void launch(Node node) {
+			Call call = EndpointFailoverInterceptor.this.hedgeClient.newCall(EndpointFailoverInterceptor.this.routed(this.request, node));
+			Attempt attempt = new Attempt(node, call, node.begin());
+			this.attempts.add(attempt);
+			this.pending++;
+			call.enqueue(attempt);
+		}
+		
+		private synchronized void cancel() {
+			long now = System.nanoTime();
+			for (Attempt attempt : this.attempts) {
+				if (!attempt.done) {
+					attempt.node.observe(now - attempt.start);
+					attempt.call.cancel();
+				}
+			}
+		}
+		
+		/**
+		 * <p>
+		 *     一次尝试失败后调用: 仍有进行中的尝试时等待其结果, 否则在下一个节点上重试, 没有可用的节点时以异常完成.
+		 * </p>
+		 */
+		private synchronized void failed(IOException e) {
+			this.failure = suppress(this.failure, e);
+			if (this.result.isDone() || this.pending > 0) {
+				return;
+			}
+			Node next = EndpointFailoverInterceptor.this.select(this.tried);
+			if (next != null) {
+				this.launch(next);
+			} else {
+				this.result.completeExceptionally(this.failure);
+			}
+		}
+		
+		private synchronized boolean canRetry() {
+			return this.pending > 0 || EndpointFailoverInterceptor.this.hasUntried(this.tried);
+		}
+		
+		private final class Attempt
+				implements Callback {
+			private final Node node;
+			private final Call call;
+			private final long start;
+			/**
+			 * <p>
+			 *     是否已收到响应或失败, 由 {@link Hedge} 的锁保护.
+			 * </p>
+			 */
+			private boolean done;
+			
+			Attempt(Node node, Call call, long start) {
+				this.node = node;
+				this.call = call;
+				this.start = start;
+			}
+			
+			@Override
+			public void onResponse(Call call, Response response) {
+				this.finish();
+				if (isUnavailable(response.code())) {
+					EndpointFailoverInterceptor.this.failed(this.node, null);
+					if (Hedge.this.canRetry()) {
+						response.close();
+						Hedge.this.failed(new IOException("HTTP " + response.code() + " from " + this.node.url));
+						return;
+					}
+				} else {
+					this.node.succeeded(System.nanoTime() - this.start);
+				}
+				if (!Hedge.this.result.complete(response)) {
+					response.close();
+				}
+			}
+			
+			@Override
+			public void onFailure(Call call, IOException e) {
+				boolean canceled = call.isCanceled();
+				this.finish();
+				if (!canceled) {
+					EndpointFailoverInterceptor.this.failed(this.node, e);
+					Hedge.this.failed(e);
+				}
+			}
+			
+			private void finish() {
+				this.node.end();
+				synchronized (Hedge.this) {
+					this.done = true;
+					Hedge.this.pending--;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * <h2>节点</h2>
+	 * <p>
+	 *     节点的统计均以原子变量维护, 并发的更新之间不加锁, 偶尔丢失一次更新不影响路由. <br />
+	 *
+	 *     响应时间的分位数以乘性的随机逼近估计: 样本大于估计值时估计值乘以 (1 + {@link #QUANTILE_STEP} * p),
+	 *     否则乘以 (1 - {@link #QUANTILE_STEP} * (1 - p)), 稳定时恰有 1 - p 的样本大于估计值.
+	 *     与均值加若干倍偏差相比, 估计值不受长尾样本的大小影响.
+	 * </p>
+	 */
+	private static final class Node {
+		private final HttpUrl url;
+		private final double percentile;
+		/**
+		 * <p>
+		 *     响应时间的 EWMA 与 {@link #percentile} 分位数的估计值(<em>纳秒, 以 double 的位模式存储</em>), 尚无样本时为 0.
+		 * </p>
+		 */
+		private final AtomicLong ewma = new AtomicLong();
+		private final AtomicLong quantile = new AtomicLong();
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final AtomicInteger failures = new AtomicInteger();
+		private final AtomicLong ejectedUntil = new AtomicLong(System.nanoTime());
+		/**
+		 * <p>
+		 *     EWMA 的平滑系数.
+		 * </p>
+		 */
+		private static final double ALPHA = 0.2;
+		/**
+		 * <p>
+		 *     分位数估计的相对步长.
+		 * </p>
+		 */
+		private static final double QUANTILE_STEP = 0.05;
+		
+		Node(HttpUrl url, double percentile) {
+			this.url = url;
+			this.percentile = percentile;
+		}
+		
+		long begin() {
+			this.inFlight.incrementAndGet();
+			return System.nanoTime();
+		}
+		
+		void end() {
+			this.inFlight.decrementAndGet();
+		}
+		
+		boolean isHealthy(long now) {
+			return now - this.ejectedUntil.get() >= 0;
+		}
+		
+		/**
+		 * <p>
+		 *     得分越低越优先: 尚无样本的节点得分为 0, 以便尽早取得样本.
+		 * </p>
+		 */
+		double score() {
+			return Double.longBitsToDouble(this.ewma.get()) * (this.inFlight.get() + 1);
+		}
+		
+		/**
+		 * <p>
+		 *     对冲的延迟: 响应时间分位数的估计值, 尚无样本时为 initialDelay, 不小于 minDelay.
+		 * </p>
+		 */
+		long hedgeDelay(long minDelay, long initialDelay) {
+			double quantile = Double.longBitsToDouble(this.quantile.get());
+			return Math.max(minDelay, quantile == 0 ? initialDelay : (long) quantile);
+		}
+		
+		void succeeded(long nanos) {
+			this.failures.set(0);
+			this.observe(nanos);
+		}
+		
+		/**
+		 * <p>
+		 *     记录一次响应时间的样本. 被取消的尝试以已等待的时长记录, 它只会低估真实的响应时间.
+		 * </p>
+		 */
+		void observe(long nanos) {
+			double sample = nanos;
+			this.ewma.updateAndGet(bits -> {
+				double ewma = Double.longBitsToDouble(bits);
+				return Double.doubleToRawLongBits(ewma == 0 ? sample : ewma + ALPHA * (sample - ewma));
+			});
+			this.quantile.updateAndGet(bits -> {
+				double quantile = Double.longBitsToDouble(bits);
+				if (quantile == 0) {
+					return Double.doubleToRawLongBits(sample);
+				}
+				double factor = sample > quantile ? 1 + QUANTILE_STEP * this.percentile : 1 - QUANTILE_STEP * (1 - this.percentile);
+				return Double.doubleToRawLongBits(quantile * factor);
+			});
+		}
+		
+		/**
+		 * @return 本次失败是否使节点被剔除.
+		 */
+		boolean failed(long now, int threshold, long ejectNanos) {
+			if (this.failures.incrementAndGet() < threshold) {
+				return false;
+			}
+			long until = this.ejectedUntil.get();
+			return now - until >= 0 && this.ejectedUntil.compareAndSet(until, now + ejectNanos);
+		}
+	}
+}
@@ -1,23 +1,62 @@
 package indi.ly.crush.autoconfigure;
 
+import indi.ly.crush.helper.MicrometerMinIoMetrics;
+import indi.ly.crush.helper.MinIoHelper;
+import indi.ly.crush.helper.MinIoHelperRegistry;
+import indi.ly.crush.helper.MinIoMetrics;
+import indi.ly.crush.helper.ReactiveMinIoHelper;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import io.minio.credentials.ChainedProvider;
+import io.minio.http.HttpUtils;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.ConditionContext;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <h2>MinIo 自动配置</h2>
  * <p>
  *     MinIo 的自动配置, 以下的自动配置将被应用:
  *     <ol>
+ *         <li>一个 {@link MinioClient MinioClient Bean} 与 {@link MinioAsyncClient MinioAsyncClient Bean} 共享的 {@link OkHttpClient OkHttpClient Bean}, 如果还没有配置的话. 配置了多个节点时, 它在节点之间故障转移并对冲慢请求; 配置了限流时, 所有请求共用同一组令牌桶与并发上限.</li>
  *         <li>一个 {@link MinioClient MinioClient Bean}, 如果还没有配置的话.</li>
  *         <li>一个 {@link MinioAsyncClient MinioAsyncClient Bean}, 如果还没有配置的话.</li>
+ *         <li>一个 {@link ReactiveMinIoHelper ReactiveMinIoHelper Bean}, 如果 Reactor 位于类路径上且还没有配置的话; 容器中存在唯一的 {@link MinIoHelper} 时与其共享重试策略.</li>
+ *         <li>一个 {@link MinIoMetrics MinIoMetrics Bean}, 如果存在 Micrometer 的 MeterRegistry Bean 且还没有配置的话.</li>
+ *         <li>一个 {@link MinIoHelperRegistry MinIoHelperRegistry Bean}, 如果存在 customize.minio.clients.&lt;name&gt; 具名配置且还没有配置的话.</li>
  *     </ol>
  *
  *     windows minio 服务启动命令: minio.exe server /data
@@ -27,12 +66,138 @@ import org.springframework.util.StringUtils;
  * @since 1.0
  */
 @Configuration(proxyBeanMethods = false)
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 @EnableConfigurationProperties(MinIoProperties.class)
 public class MinIoAutoConfiguration {
+	/**
+	 * <p>
+	 *     共享的 {@link OkHttpClient} Bean 的名称.
+	 * </p>
+	 */
+	public static final String SHARED_HTTP_CLIENT_BEAN_NAME = "minIoSharedOkHttpClient";
+	/**
+	 * <p>
+	 *     具名配置的前缀.
+	 * </p>
+	 */
+	public static final String CLIENTS_PREFIX = "customize.minio.clients";
+	
+	/**
+	 * <p>
+	 *     按 {@link MinIoProperties.Http} 构建 {@link MinioClient} 与 {@link MinioAsyncClient} 共享的 {@link OkHttpClient}.
+	 *     超时仍由各个客户端的 setTimeout 设置, 其派生出的实例与此实例共享连接池与调度器.
+	 * </p>
+	 */
+	@Bean(name = SHARED_HTTP_CLIENT_BEAN_NAME)
+	@ConditionalOnMissingBean(name = SHARED_HTTP_CLIENT_BEAN_NAME)
+	public OkHttpClient createSharedOkHttpClientBean(MinIoProperties properties) {
+		return newHttpClient(properties);
+	}
 	
 	@Bean
 	@ConditionalOnMissingBean
 	public MinioClient createMinioClientBean(ApplicationContext context, MinIoProperties properties) {
+		return newMinioClient(properties, resolveHttpClient(context, properties));
+	}
+	
+	@Bean
+	@ConditionalOnMissingBean
+	public MinioAsyncClient createMinioAsyncClientBean(ApplicationContext context, MinIoProperties properties) {
+		return newMinioAsyncClient(properties, resolveHttpClient(context, properties));
+	}
+	
+	/**
+	 * <p>
+	 *     按 customize.minio.clients.&lt;name&gt; 下的具名配置创建 {@link MinIoHelperRegistry}, 每个配置拥有自己的一对客户端.
+	 *     具名配置不继承顶层配置, 未指定 okHttpClientBeanName 时各自构建 {@link OkHttpClient}, 并在注册表销毁时由其关闭.
+	 * </p>
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@Conditional(OnMinIoClientsCondition.class)
+	public MinIoHelperRegistry createMinIoHelperRegistryBean(ApplicationContext context) {
+		Map<String, MinIoProperties> profiles = bindClients(context.getEnvironment());
+		List<MinIoHelperRegistry.Client> clients = new ArrayList<>(profiles.size());
+		profiles.forEach((name, properties) -> {
+			OkHttpClient ownedHttpClient = StringUtils.hasText(properties.getOkHttpClientBeanName()) ? null : newHttpClient(properties);
+			OkHttpClient httpClient = ownedHttpClient != null ? ownedHttpClient : resolveHttpClient(context, properties);
+			clients.add(new MinIoHelperRegistry.Client(
+					name, newMinioClient(properties, httpClient), newMinioAsyncClient(properties, httpClient), properties, ownedHttpClient));
+		});
+		return new MinIoHelperRegistry(clients, context.getAutowireCapableBeanFactory());
+	}
+	
+	/**
+	 * <p>
+	 *     按 {@link MinIoProperties.Http} 构建 {@link OkHttpClient}, 配置了 {@link MinIoProperties#getEndpoints()} 时带有 {@link EndpointFailoverInterceptor},
+	 *     配置了 {@link MinIoProperties.Limit} 中的任一限制时带有 {@link ThrottlingInterceptor}.
+	 * </p>
+	 */
+	static OkHttpClient newHttpClient(MinIoProperties properties) {
+		MinIoProperties.Http http = properties.getHttp();
+		ThrottlingInterceptor throttling = new ThrottlingInterceptor(properties.getLimit());
+		ExecutorService executor = newDispatcherExecutor();
+		// 限流在调度之前放行, 等待令牌或并发名额的调用不占用调度器的线程.
+		Dispatcher dispatcher = new Dispatcher(throttling.isEnabled() ? throttling.admission(executor) : executor);
+		dispatcher.setMaxRequests(http.getMaxRequests());
+		dispatcher.setMaxRequestsPerHost(http.getMaxRequestsPerHost());
+		
+		OkHttpClient.Builder builder = HttpUtils
+												.newDefaultHttpClient(
+														properties.getConnectTimeout().toMillis(),
+														properties.getWriteTimeout().toMillis(),
+														properties.getReadTimeout().toMillis())
+												.newBuilder()
+												.connectionPool(new ConnectionPool(http.getMaxIdleConnections(), http.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS))
+												.dispatcher(dispatcher)
+												.protocols(Boolean.TRUE.equals(http.getHttp2()) ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1));
+		
+		if (http.getSendBufferSize() != null || http.getReceiveBufferSize() != null) {
+			builder.socketFactory(new BufferSizedSocketFactory(toBytes(http.getSendBufferSize()), toBytes(http.getReceiveBufferSize())));
+		}
+		
+		OkHttpClient client = builder.build();
+		List<String> endpoints = properties.getEndpoints();
+		if (endpoints == null || endpoints.isEmpty()) {
+			return throttling.isEnabled() ? client.newBuilder().addInterceptor(throttling).build() : client;
+		}
+		if (Boolean.TRUE.equals(http.getHttp2())) {
+			throw new IllegalArgumentException("'endpoints' cannot be combined with 'http.http2', but it is " + http);
+		}
+		
+		// minio 的同步与异步请求都经由 enqueue 执行, 外层调用在调度器的线程上占用名额等待其各次尝试.
+		// 尝试若与外层调用共用调度器, 并发的外层调用占满名额时尝试将永远排队, 因此尝试使用独立的调度器(共用线程池).
+		// 每个外层调用至多同时进行两次尝试, 独立的调度器按此留足名额.
+		int maxOuterCalls = Math.min(http.getMaxRequests(), http.getMaxRequestsPerHost());
+		Dispatcher hedgeDispatcher = new Dispatcher(executor);
+		hedgeDispatcher.setMaxRequests(2 * maxOuterCalls);
+		hedgeDispatcher.setMaxRequestsPerHost(2 * maxOuterCalls);
+		
+		// 限流位于故障转移之前, 每个外层调用放行一次; 对冲请求与重试使用独立的调度器, 不再经过限流.
+		OkHttpClient hedgeClient = client.newBuilder().dispatcher(hedgeDispatcher).build();
+		OkHttpClient.Builder failoverBuilder = client.newBuilder();
+		if (throttling.isEnabled()) {
+			failoverBuilder.addInterceptor(throttling);
+		}
+		failoverBuilder.addInterceptor(new EndpointFailoverInterceptor(hedgeClient, properties.getEndpoint(), endpoints, properties.getFailover()));
+		return failoverBuilder.build();
+	}
+	
+	/**
+	 * <p>
+	 *     调度器的线程池, 与 OkHttp 默认的线程池相同: 按需创建线程, 空闲 60 秒后回收, 线程数由调度器的名额限制.
+	 * </p>
+	 */
+	private static ExecutorService newDispatcherExecutor() {
+		AtomicInteger threadNumber = new AtomicInteger();
+		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "minio-okhttp-" + threadNumber.incrementAndGet());
+			thread.setDaemon(false);
+			return thread;
+		});
+	}
+	
+	private static MinioClient newMinioClient(MinIoProperties properties, OkHttpClient httpClient) {
 		MinioClient.Builder clientBuilder = MinioClient
 												.builder()
 												.credentialsProvider(new ChainedProvider())
@@ -40,13 +205,7 @@ public class MinIoAutoConfiguration {
 												.region(properties.getRegion())
 												.credentials(properties.getAccessKey(), properties.getSecretKey());
 		
-		String okHttpClientBeanName = properties.getOkHttpClientBeanName();
-		if (StringUtils.hasText(okHttpClientBeanName)) {
-			try {
-				OkHttpClient okHttpClient = context.getBean(okHttpClientBeanName, OkHttpClient.class);
-				clientBuilder.httpClient(okHttpClient);
-			} catch (Exception ignore) {}
-		}
+		clientBuilder.httpClient(httpClient);
 		
 		MinioClient client = clientBuilder.build();
 		client.setTimeout(
@@ -58,22 +217,14 @@ public class MinIoAutoConfiguration {
 		return client;
 	}
 	
-	@Bean
-	@ConditionalOnMissingBean
-	public MinioAsyncClient createMinioAsyncClientBean(ApplicationContext context, MinIoProperties properties) {
+	private static MinioAsyncClient newMinioAsyncClient(MinIoProperties properties, OkHttpClient httpClient) {
 		MinioAsyncClient.Builder asyncClientBuilder = MinioAsyncClient
 															.builder()
 															.endpoint(properties.getEndpoint())
 															.region(properties.getRegion())
 															.credentials(properties.getAccessKey(), properties.getSecretKey());
 		
-		String okHttpClientBeanName = properties.getOkHttpClientBeanName();
-		if (StringUtils.hasText(okHttpClientBeanName)) {
-			try {
-				OkHttpClient okHttpClient = context.getBean(okHttpClientBeanName, OkHttpClient.class);
-				asyncClientBuilder.httpClient(okHttpClient);
-			} catch (Exception ignore) {}
-		}
+		asyncClientBuilder.httpClient(httpClient);
 		
 		MinioAsyncClient asyncClient = asyncClientBuilder.build();
 		asyncClient.setTimeout(
@@ -84,4 +235,80 @@ public class MinIoAutoConfiguration {
 		
 		return asyncClient;
 	}
+	
+	/**
+	 * <p>
+	 *     绑定 customize.minio.clients 下的具名配置. {@link MinIoProperties} 不能以自身类型的属性嵌套, 因此单独绑定.
+	 * </p>
+	 */
+	private static Map<String, MinIoProperties> bindClients(Environment environment) {
+		return Binder.get(environment).bind(CLIENTS_PREFIX, Bindable.mapOf(String.class, MinIoProperties.class)).orElse(Map.of());
+	}
+	
+	/**
+	 * <p>
+	 *     解析客户端使用的 {@link OkHttpClient}: 指定了 okHttpClientBeanName 时为该名称所指的 Bean, 否则为共享的实例.
+	 * </p>
+	 *
+	 * @throws IllegalStateException 根据 okHttpClientBeanName 无法检索出匹配的 Bean 时.
+	 */
+	private static OkHttpClient resolveHttpClient(ApplicationContext context, MinIoProperties properties) {
+		String okHttpClientBeanName = properties.getOkHttpClientBeanName();
+		if (!StringUtils.hasText(okHttpClientBeanName)) {
+			return context.getBean(SHARED_HTTP_CLIENT_BEAN_NAME, OkHttpClient.class);
+		}
+		
+		try {
+			return context.getBean(okHttpClientBeanName, OkHttpClient.class);
+		} catch (BeansException e) {
+			throw new IllegalStateException("No OkHttpClient bean named '" + okHttpClientBeanName + "' (customize.minio.ok-http-client-bean-name) is available", e);
+		}
+	}
+	
+	private static Integer toBytes(DataSize size) {
+		return size == null ? null : Math.toIntExact(size.toBytes());
+	}
+	
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(MeterRegistry.class)
+	@ConditionalOnBean(MeterRegistry.class)
+	static class MinIoMetricsConfiguration {
+		
+		@Bean
+		@ConditionalOnMissingBean
+		public MinIoMetrics createMinIoMetricsBean(MeterRegistry registry, ApplicationContext context, MinIoProperties properties) {
+			MicrometerMinIoMetrics metrics = new MicrometerMinIoMetrics(registry);
+			metrics.bindHttpClient(resolveHttpClient(context, properties));
+			return metrics;
+		}
+	}
+	
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(Flux.class)
+	static class ReactiveMinIoHelperConfiguration {
+		
+		@Bean
+		@ConditionalOnMissingBean
+		public ReactiveMinIoHelper createReactiveMinIoHelperBean(MinioAsyncClient minioAsyncClient, MinIoProperties properties, ObjectProvider<MinIoHelper> helper) {
+			return new ReactiveMinIoHelper(minioAsyncClient, properties, helper.getIfUnique());
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     存在至少一个 customize.minio.clients.&lt;name&gt; 具名配置时匹配.
+	 * </p>
+	 */
+	static class OnMinIoClientsCondition
+			extends SpringBootCondition {
+		
+		@Override
+		public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			ConditionMessage.Builder message = ConditionMessage.forCondition("MinIo clients");
+			Map<String, MinIoProperties> clients = bindClients(context.getEnvironment());
+			return clients.isEmpty()
+					? ConditionOutcome.noMatch(message.didNotFind("property").items(CLIENTS_PREFIX))
+					: ConditionOutcome.match(message.found("clients").items(clients.keySet()));
+		}
+	}
 }
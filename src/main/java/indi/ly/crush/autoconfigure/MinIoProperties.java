@@ -1,11 +1,16 @@
 package indi.ly.crush.autoconfigure;
 
 import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
 import io.minio.http.HttpUtils;
 import okhttp3.OkHttpClient;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * <h2>MinIo 属性</h2>
@@ -24,6 +29,16 @@ public class MinIoProperties {
 	 * </p>
 	 */
 	private String endpoint = "http://localhost:9000";
+	/**
+	 * <p>
+	 *     与 {@link #endpoint} 服务于同一 MinIO 部署的其他节点的访问地址, 默认为空. <br />
+	 *
+	 *     不为空时, 请求按 {@link #failover} 在这些节点与 {@link #endpoint} 之间路由: 优先发往最快的健康节点,
+	 *     节点不可用时切换到其他节点, 幂等的请求(<em>GET、HEAD</em>)过慢时向第二个节点发送对冲请求.
+	 *     请求仍以 {@link #endpoint} 签名, 因此不能与 {@link Http#http2} 同时启用; 预签名 URL 不参与路由.
+	 * </p>
+	 */
+	private List<String> endpoints = new ArrayList<>();
 	/**
 	 * <p>
 	 *     MinIO 服务器所在的物理地址, 可以为 null.
@@ -81,7 +96,10 @@ public class MinIoProperties {
 	private String policyLocation;
 	/**
 	 * <p>
-	 *     {@link OkHttpClient} Bean 的名称. 如果根据此名称无法检索出匹配的 Bean, 则仍然使用默认的 {@link OkHttpClient} 实例.
+	 *     {@link OkHttpClient} Bean 的名称, 可以为 null. <br />
+	 *
+	 *     为 null 时 {@link MinioClient} 与 {@link MinioAsyncClient} 共享一个按 {@link #http} 构建的 {@link OkHttpClient} 实例;
+	 *     否则共享此名称所指的 Bean, 根据此名称无法检索出匹配的 Bean 时启动失败.
 	 * </p>
 	 *
 	 * @see MinioAsyncClient.Builder#build()
@@ -97,6 +115,80 @@ public class MinIoProperties {
 	 */
 	@SuppressWarnings(value = "JavadocReference")
 	private Boolean makeBucket = false;
+	/**
+	 * <p>
+	 *     作为 customize.minio.clients.&lt;name&gt; 下的具名配置时, 在一致性哈希环上的权重, 默认值为 1, 为 0 时不参与按键路由. <br />
+	 *
+	 *     对顶层配置不生效.
+	 * </p>
+	 */
+	private Integer routingWeight = 1;
+	/**
+	 * <p>
+	 *     上传相关的配置.
+	 * </p>
+	 */
+	private final Upload upload = new Upload();
+	/**
+	 * <p>
+	 *     Snowball 批量上传相关的配置.
+	 * </p>
+	 */
+	private final Snowball snowball = new Snowball();
+	/**
+	 * <p>
+	 *     共享的 {@link OkHttpClient} 实例的配置, 指定了 {@link #okHttpClientBeanName} 时不生效.
+	 * </p>
+	 */
+	private final Http http = new Http();
+	/**
+	 * <p>
+	 *     下载及其缓存相关的配置.
+	 * </p>
+	 */
+	private final Download download = new Download();
+	/**
+	 * <p>
+	 *     对象元数据缓存相关的配置.
+	 * </p>
+	 */
+	private final Metadata metadata = new Metadata();
+	/**
+	 * <p>
+	 *     预签名 URL 相关的配置.
+	 * </p>
+	 */
+	private final Presign presign = new Presign();
+	/**
+	 * <p>
+	 *     多节点路由相关的配置, 仅在 {@link #endpoints} 不为空时生效.
+	 * </p>
+	 */
+	private final Failover failover = new Failover();
+	/**
+	 * <p>
+	 *     扇出操作(<em>分段下载、批量删除、批量上传、多前缀列举</em>)的执行相关的配置.
+	 * </p>
+	 */
+	private final Execution execution = new Execution();
+	/**
+	 * <p>
+	 *     客户端限流相关的配置, 由共享 {@link OkHttpClient} 的 {@link MinioClient} 与 {@link MinioAsyncClient} 共用.
+	 * </p>
+	 */
+	private final Limit limit = new Limit();
+	/**
+	 * <p>
+	 *     失败重试相关的配置.
+	 * </p>
+	 */
+	private final Retry retry = new Retry();
+	/**
+	 * <p>
+	 *     上传时压缩内容相关的配置.
+	 * </p>
+	 */
+	private final Compression compression = new Compression();
 	
 	public String getEndpoint() {
 		return endpoint;
@@ -106,6 +198,14 @@ public class MinIoProperties {
 		this.endpoint = endpoint;
 	}
 	
+	public List<String> getEndpoints() {
+		return endpoints;
+	}
+	
+	public void setEndpoints(List<String> endpoints) {
+		this.endpoints = endpoints;
+	}
+	
 	public String getRegion() {
 		return region;
 	}
@@ -194,12 +294,1110 @@ public class MinIoProperties {
 		this.makeBucket = makeBucket;
 	}
 	
+	public Integer getRoutingWeight() {
+		return routingWeight;
+	}
+	
+	public void setRoutingWeight(Integer routingWeight) {
+		this.routingWeight = routingWeight;
+	}
+	
+	public Upload getUpload() {
+		return upload;
+	}
+	
+	public Snowball getSnowball() {
+		return snowball;
+	}
+	
+	public Http getHttp() {
+		return http;
+	}
+	
+	public Download getDownload() {
+		return download;
+	}
+	
+	public Metadata getMetadata() {
+		return metadata;
+	}
+	
+	public Presign getPresign() {
+		return presign;
+	}
+	
+	public Failover getFailover() {
+		return failover;
+	}
+	
+	public Execution getExecution() {
+		return execution;
+	}
+	
+	public Limit getLimit() {
+		return limit;
+	}
+	
+	public Retry getRetry() {
+		return retry;
+	}
+	
+	public Compression getCompression() {
+		return compression;
+	}
+	
 	@Override
 	public String toString() {
-		return "MinIoProperties{" + "endpoint='" + endpoint + '\'' + ", region='" + region + '\'' + ", accessKey='"
+		return "MinIoProperties{" + "endpoint='" + endpoint + '\'' + ", endpoints=" + endpoints + ", region='" + region + '\'' + ", accessKey='"
 				+ accessKey + '\'' + ", secretKey='" + secretKey + '\'' + ", connectTimeout=" + connectTimeout
 				+ ", writeTimeout=" + writeTimeout + ", readTimeout=" + readTimeout + ", bucketName='" + bucketName
 				+ '\'' + ", bucketPolicy=" + bucketPolicy + ", policyLocation='" + policyLocation + '\''
-				+ ", okHttpClientBeanName='" + okHttpClientBeanName + '\'' + ", makeBucket=" + makeBucket + '}';
+				+ ", okHttpClientBeanName='" + okHttpClientBeanName + '\'' + ", makeBucket=" + makeBucket + ", routingWeight=" + routingWeight + ", upload=" + upload + ", snowball=" + snowball + ", http=" + http + ", download=" + download + ", metadata=" + metadata + ", presign=" + presign + ", failover=" + failover + ", execution=" + execution + ", limit=" + limit + ", retry=" + retry + ", compression=" + compression + '}';
+	}
+	
+	/**
+	 * <h2>上传属性</h2>
+	 *
+	 * @author 云上的云
+	 * @since 1.0
+	 */
+	public static class Upload {
+		/**
+		 * <p>
+		 *     分片上传时每个分片的大小, 默认值为 16MB, 值必须在 5MB 和 5GB 之间. <br />
+		 *
+		 *     流式上传时单次上传所占用的堆内存以此值为上限, 而不是以对象的大小为上限.
+		 * </p>
+		 */
+		private DataSize partSize = DataSize.ofMegabytes(16);
+		/**
+		 * <p>
+		 *     识别内容类型时最多读取的流的前缀字节数, 默认值为 8KB. 剩余的内容不会被读入堆内存, 而是直接流式上传.
+		 * </p>
+		 */
+		private DataSize detectLimit = DataSize.ofKilobytes(8);
+		/**
+		 * <p>
+		 *     内容类型识别结果缓存的最大条目数, 默认值为 1024, 为 0 时不缓存.
+		 *     缓存以扩展名与内容开头的若干字节为键, 使同类文件不必重复经过 Tika 的完整识别, 条目数超过上限时淘汰近期未使用的条目.
+		 *     文本与 XML 类型的识别结果取决于更多的内容, 不缓存.
+		 * </p>
+		 */
+		private Integer detectCacheSize = 1024;
+		/**
+		 * <p>
+		 *     上传未知长度的流时, 同时处于读取或上传状态的分片数量, 默认值为 2. <br />
+		 *
+		 *     单次上传所占用的堆内存约为 pipelineDepth * {@link #partSize}.
+		 * </p>
+		 */
+		private Integer pipelineDepth = 2;
+		/**
+		 * <p>
+		 *     分片上传本地文件时, 同时处于上传状态的分片数量(<em>即占用的连接数</em>), 默认值为 4.
+		 * </p>
+		 */
+		private Integer concurrency = 4;
+		/**
+		 * <p>
+		 *     分片上传本地文件时, 单个分片失败后的最大重试次数, 默认值为 2.
+		 * </p>
+		 */
+		private Integer partRetries = 2;
+		
+		public DataSize getPartSize() {
+			return partSize;
+		}
+		
+		public void setPartSize(DataSize partSize) {
+			this.partSize = partSize;
+		}
+		
+		public DataSize getDetectLimit() {
+			return detectLimit;
+		}
+		
+		public void setDetectLimit(DataSize detectLimit) {
+			this.detectLimit = detectLimit;
+		}
+		
+		public Integer getDetectCacheSize() {
+			return detectCacheSize;
+		}
+		
+		public void setDetectCacheSize(Integer detectCacheSize) {
+			this.detectCacheSize = detectCacheSize;
+		}
+		
+		public Integer getPipelineDepth() {
+			return pipelineDepth;
+		}
+		
+		public void setPipelineDepth(Integer pipelineDepth) {
+			this.pipelineDepth = pipelineDepth;
+		}
+		
+		public Integer getConcurrency() {
+			return concurrency;
+		}
+		
+		public void setConcurrency(Integer concurrency) {
+			this.concurrency = concurrency;
+		}
+		
+		public Integer getPartRetries() {
+			return partRetries;
+		}
+		
+		public void setPartRetries(Integer partRetries) {
+			this.partRetries = partRetries;
+		}
+		
+		@Override
+		public String toString() {
+			return "Upload{" + "partSize=" + partSize + ", detectLimit=" + detectLimit + ", detectCacheSize=" + detectCacheSize
+					+ ", pipelineDepth=" + pipelineDepth + ", concurrency=" + concurrency + ", partRetries=" + partRetries + '}';
+		}
+	}
+	
+	/**
+	 * <h2>Snowball 批量上传属性</h2>
+	 *
+	 * @author 云上的云
+	 * @since 1.0
+	 */
+	public static class Snowball {
+		/**
+		 * <p>
+		 *     单个子批次中所有文件的总大小上限, 默认值为 32MB. 超过此值时开始一个新的子批次.
+		 * </p>
+		 */
+		private DataSize batchSize = DataSize.ofMegabytes(32);
+		/**
+		 * <p>
+		 *     单个子批次中的文件数量上限, 默认值为 1000. 达到此值时开始一个新的子批次.
+		 * </p>
+		 */
+		private Integer batchCount = 1000;
+		/**
+		 * <p>
+		 *     同时处于上传状态的子批次数量, 默认值为 4. <br />
+		 *
+		 *     启用 {@link #heapStaging} 时, 批量上传所占用的堆内存约为 concurrency * {@link #batchSize}.
+		 * </p>
+		 */
+		private Integer concurrency = 4;
+		/**
+		 * <p>
+		 *     是否压缩 Snowball 归档, 默认值为 false.
+		 * </p>
+		 */
+		private Boolean compression = false;
+		/**
+		 * <p>
+		 *     暂存 Snowball 归档的目录, 可以为 null. <br />
+		 *
+		 *     每个子批次的归档在此目录下的临时文件中构建, 上传结束后删除; 为 null 时使用 java.io.tmpdir 下的 minio-snowball 目录.
+		 *     长度未知的流同样先复制到此目录下的临时文件中, 以得出其大小.
+		 * </p>
+		 */
+		private String stagingDirectory;
+		/**
+		 * <p>
+		 *     是否在堆内存中构建 Snowball 归档, 默认值为 false. 与 {@link #stagingDirectory} 互斥. <br />
+		 *
+		 *     启用时不产生磁盘读写, 但每个子批次的归档与长度未知的流都完整地驻留在堆内存中, 只适合较小的 {@link #batchSize}.
+		 * </p>
+		 */
+		private Boolean heapStaging = false;
+		
+		public DataSize getBatchSize() {
+			return batchSize;
+		}
+		
+		public void setBatchSize(DataSize batchSize) {
+			this.batchSize = batchSize;
+		}
+		
+		public Integer getBatchCount() {
+			return batchCount;
+		}
+		
+		public void setBatchCount(Integer batchCount) {
+			this.batchCount = batchCount;
+		}
+		
+		public Integer getConcurrency() {
+			return concurrency;
+		}
+		
+		public void setConcurrency(Integer concurrency) {
+			this.concurrency = concurrency;
+		}
+		
+		public Boolean getCompression() {
+			return compression;
+		}
+		
+		public void setCompression(Boolean compression) {
+			this.compression = compression;
+		}
+		
+		public String getStagingDirectory() {
+			return stagingDirectory;
+		}
+		
+		public void setStagingDirectory(String stagingDirectory) {
+			this.stagingDirectory = stagingDirectory;
+		}
+		
+		public Boolean getHeapStaging() {
+			return heapStaging;
+		}
+		
+		public void setHeapStaging(Boolean heapStaging) {
+			this.heapStaging = heapStaging;
+		}
+		
+		@Override
+		public String toString() {
+			return "Snowball{" + "batchSize=" + batchSize + ", batchCount=" + batchCount + ", concurrency=" + concurrency
+					+ ", compression=" + compression + ", stagingDirectory='" + stagingDirectory + '\'' + ", heapStaging=" + heapStaging + '}';
+		}
+	}
+	
+	/**
+	 * <h2>HTTP 客户端属性</h2>
+	 *
+	 * @author 云上的云
+	 * @since 1.0
+	 */
+	public static class Http {
+		/**
+		 * <p>
+		 *     连接池中保持的最大空闲连接数, 默认值为 32.
+		 * </p>
+		 */
+		private Integer maxIdleConnections = 32;
+		/**
+		 * <p>
+		 *     空闲连接在连接池中的保持时间, 默认值为 5 分钟.
+		 * </p>
+		 */
+		private Duration keepAlive = Duration.ofMinutes(5);
+		/**
+		 * <p>
+		 *     异步请求的最大并发数, 默认值为 64.
+		 * </p>
+		 */
+		private Integer maxRequests = 64;
+		/**
+		 * <p>
+		 *     对同一主机的异步请求的最大并发数, 默认值为 64. OkHttp 自身的默认值为 5, 会限制并行的分片上传与列举.
+		 * </p>
+		 */
+		private Integer maxRequestsPerHost = 64;
+		/**
+		 * <p>
+		 *     是否允许通过 ALPN 协商使用 HTTP/2, 默认值为 false(<em>与 MinIO 默认的 HTTP 客户端一致, 只使用 HTTP/1.1</em>).
+		 * </p>
+		 */
+		private Boolean http2 = false;
+		/**
+		 * <p>
+		 *     套接字的发送缓冲区大小, 可以为 null, 为 null 时使用操作系统的默认值.
+		 * </p>
+		 */
+		private DataSize sendBufferSize;
+		/**
+		 * <p>
+		 *     套接字的接收缓冲区大小, 可以为 null, 为 null 时使用操作系统的默认值.
+		 * </p>
+		 */
+		private DataSize receiveBufferSize;
+		
+		public Integer getMaxIdleConnections() {
+			return maxIdleConnections;
+		}
+		
+		public void setMaxIdleConnections(Integer maxIdleConnections) {
+			this.maxIdleConnections = maxIdleConnections;
+		}
+		
+		public Duration getKeepAlive() {
+			return keepAlive;
+		}
+		
+		public void setKeepAlive(Duration keepAlive) {
+			this.keepAlive = keepAlive;
+		}
+		
+		public Integer getMaxRequests() {
+			return maxRequests;
+		}
+		
+		public void setMaxRequests(Integer maxRequests) {
+			this.maxRequests = maxRequests;
+		}
+		
+		public Integer getMaxRequestsPerHost() {
+			return maxRequestsPerHost;
+		}
+		
+		public void setMaxRequestsPerHost(Integer maxRequestsPerHost) {
+			this.maxRequestsPerHost = maxRequestsPerHost;
+		}
+		
+		public Boolean getHttp2() {
+			return http2;
+		}
+		
+		public void setHttp2(Boolean http2) {
+			this.http2 = http2;
+		}
+		
+		public DataSize getSendBufferSize() {
+			return sendBufferSize;
+		}
+		
+		public void setSendBufferSize(DataSize sendBufferSize) {
+			this.sendBufferSize = sendBufferSize;
+		}
+		
+		public DataSize getReceiveBufferSize() {
+			return receiveBufferSize;
+		}
+		
+		public void setReceiveBufferSize(DataSize receiveBufferSize) {
+			this.receiveBufferSize = receiveBufferSize;
+		}
+		
+		@Override
+		public String toString() {
+			return "Http{" + "maxIdleConnections=" + maxIdleConnections + ", keepAlive=" + keepAlive + ", maxRequests="
+					+ maxRequests + ", maxRequestsPerHost=" + maxRequestsPerHost + ", http2=" + http2
+					+ ", sendBufferSize=" + sendBufferSize + ", receiveBufferSize=" + receiveBufferSize + '}';
+		}
+	}
+	
+	/**
+	 * <h2>下载属性</h2>
+	 * <p>
+	 *     堆内存层与磁盘层的容量都为 0 时(<em>默认</em>)不缓存, 每次下载都请求 MinIO 服务器.
+	 * </p>
+	 *
+	 * @author 云上的云
+	 * @since 1.0
+	 */
+	public static class Download {
+		/**
+		 * <p>
+		 *     堆内存缓存层的容量, 默认值为 0, 即不启用.
+		 * </p>
+		 */
+		private DataSize heapCacheSize = DataSize.ofBytes(0);
+		/**
+		 * <p>
+		 *     缓存在堆内存层的单个对象的大小上限, 默认值为 256KB, 更大的对象缓存在磁盘层.
+		 * </p>
+		 */
+		private DataSize heapEntryLimit = DataSize.ofKilobytes(256);
+		/**
+		 * <p>
+		 *     磁盘缓存层的容量, 默认值为 0, 即不启用.
+		 * </p>
+		 */
+		private DataSize diskCacheSize = DataSize.ofBytes(0);
+		/**
+		 * <p>
+		 *     缓存在磁盘层的单个对象的大小上限, 默认值为 64MB, 更大的对象不缓存.
+		 * </p>
+		 */
+		private DataSize diskEntryLimit = DataSize.ofMegabytes(64);
+		/**
+		 * <p>
+		 *     磁盘缓存层的根目录, 默认为临时目录下的 minio-cache 目录. 每个实例在其中创建各自的子目录, 并在关闭时删除.
+		 * </p>
+		 */
+		private String diskCacheDirectory;
+		/**
+		 * <p>
+		 *     缓存条目在确认有效后的新鲜期, 默认值为 10 秒. <br />
+		 *
+		 *     新鲜期内的读取直接命中缓存, 不发起任何请求; 超过新鲜期后以 If-None-Match 条件请求重新确认,
+		 *     对象未改变时服务器只返回 304 而不返回内容.
+		 * </p>
+		 */
+		private Duration cacheTtl = Duration.ofSeconds(10);
+		/**
+		 * <p>
+		 *     分段下载到本地文件时每个字节范围的大小, 默认值为 16MB.
+		 * </p>
+		 */
+		private DataSize rangeSize = DataSize.ofMegabytes(16);
+		/**
+		 * <p>
+		 *     分段下载到本地文件时, 同时处于下载状态的范围数量(<em>即占用的连接数</em>), 默认值为 4.
+		 * </p>
+		 */
+		private Integer rangeConcurrency = 4;
+		/**
+		 * <p>
+		 *     分段下载到本地文件时, 单个范围失败后的最大重试次数, 默认值为 2.
+		 * </p>
+		 */
+		private Integer rangeRetries = 2;
+		
+		public DataSize getHeapCacheSize() {
+			return heapCacheSize;
+		}
+		
+		public void setHeapCacheSize(DataSize heapCacheSize) {
+			this.heapCacheSize = heapCacheSize;
+		}
+		
+		public DataSize getHeapEntryLimit() {
+			return heapEntryLimit;
+		}
+		
+		public void setHeapEntryLimit(DataSize heapEntryLimit) {
+			this.heapEntryLimit = heapEntryLimit;
+		}
+		
+		public DataSize getDiskCacheSize() {
+			return diskCacheSize;
+		}
+		
+		public void setDiskCacheSize(DataSize diskCacheSize) {
+			this.diskCacheSize = diskCacheSize;
+		}
+		
+		public DataSize getDiskEntryLimit() {
+			return diskEntryLimit;
+		}
+		
+		public void setDiskEntryLimit(DataSize diskEntryLimit) {
+			this.diskEntryLimit = diskEntryLimit;
+		}
+		
+		public String getDiskCacheDirectory() {
+			return diskCacheDirectory;
+		}
+		
+		public void setDiskCacheDirectory(String diskCacheDirectory) {
+			this.diskCacheDirectory = diskCacheDirectory;
+		}
+		
+		public Duration getCacheTtl() {
+			return cacheTtl;
+		}
+		
+		public void setCacheTtl(Duration cacheTtl) {
+			this.cacheTtl = cacheTtl;
+		}
+		
+		public DataSize getRangeSize() {
+			return rangeSize;
+		}
+		
+		public void setRangeSize(DataSize rangeSize) {
+			this.rangeSize = rangeSize;
+		}
+		
+		public Integer getRangeConcurrency() {
+			return rangeConcurrency;
+		}
+		
+		public void setRangeConcurrency(Integer rangeConcurrency) {
+			this.rangeConcurrency = rangeConcurrency;
+		}
+		
+		public Integer getRangeRetries() {
+			return rangeRetries;
+		}
+		
+		public void setRangeRetries(Integer rangeRetries) {
+			this.rangeRetries = rangeRetries;
+		}
+		
+		@Override
+		public String toString() {
+			return "Download{" + "heapCacheSize=" + heapCacheSize + ", heapEntryLimit=" + heapEntryLimit
+					+ ", diskCacheSize=" + diskCacheSize + ", diskEntryLimit=" + diskEntryLimit
+					+ ", diskCacheDirectory='" + diskCacheDirectory + '\'' + ", cacheTtl=" + cacheTtl
+					+ ", rangeSize=" + rangeSize + ", rangeConcurrency=" + rangeConcurrency + ", rangeRetries=" + rangeRetries + '}';
+		}
+	}
+	
+	/**
+	 * <h2>元数据缓存属性</h2>
+	 *
+	 * @author 云上的云
+	 * @since 1.0
+	 */
+	public static class Metadata {
+		/**
+		 * <p>
+		 *     缓存的对象元数据的最大条目数, 默认值为 0, 即不缓存(<em>同一对象的并发查询仍然合并为一次请求</em>).
+		 * </p>
+		 */
+		private Integer cacheSize = 0;
+		/**
+		 * <p>
+		 *     存在的对象的元数据的缓存时间, 默认值为 5 秒.
+		 * </p>
+		 */
+		private Duration ttl = Duration.ofSeconds(5);
+		/**
+		 * <p>
+		 *     "对象不存在"这一结果的缓存时间, 默认值为 1 秒, 为 0 时不缓存.
+		 * </p>
+		 */
+		private Duration negativeTtl = Duration.ofSeconds(1);
+		
+		public Integer getCacheSize() {
+			return cacheSize;
+		}
+		
+		public void setCacheSize(Integer cacheSize) {
+			this.cacheSize = cacheSize;
+		}
+		
+		public Duration getTtl() {
+			return ttl;
+		}
+		
+		public void setTtl(Duration ttl) {
+			this.ttl = ttl;
+		}
+		
+		public Duration getNegativeTtl() {
+			return negativeTtl;
+		}
+		
+		public void setNegativeTtl(Duration negativeTtl) {
+			this.negativeTtl = negativeTtl;
+		}
+		
+		@Override
+		public String toString() {
+			return "Metadata{" + "cacheSize=" + cacheSize + ", ttl=" + ttl + ", negativeTtl=" + negativeTtl + '}';
+		}
+	}
+	
+	/**
+	 * <h2>预签名属性</h2>
+	 *
+	 * @author 云上的云
+	 * @since 1.0
+	 */
+	public static class Presign {
+		/**
+		 * <p>
+		 *     缓存的预签名 URL 的最大条目数, 默认值为 4096, 为 0 时每次都重新签名.
+		 * </p>
+		 */
+		private Integer cacheSize = 4096;
+		/**
+		 * <p>
+		 *     预签名 URL 的重复使用期, 默认值为 5 分钟. <br />
+		 *
+		 *     签名时的有效期比请求的有效期多出这段时间, 并在这段时间内重复使用同一个 URL,
+		 *     因此返回的 URL 总是至少在请求的有效期内可用; 请求的有效期加上这段时间不能超过 7 天, 超出的部分不用于重复使用.
+		 * </p>
+		 */
+		private Duration reuseWindow = Duration.ofMinutes(5);
+		/**
+		 * <p>
+		 *     是否以 {@link #accessKey} 与 {@link #secretKey} 在本地为路径风格的 URL 签名, 默认值为 true. <br />
+		 *
+		 *     本地签名比 MinIO 客户端自带的签名快一个数量级; 自定义的 {@link io.minio.MinioClient} 使用其他凭证
+		 *     (<em>如临时凭证</em>)或需要虚拟主机风格的 URL 时, 请设置为 false, 改由 MinIO 客户端签名.
+		 * </p>
+		 */
+		private Boolean localSigning = true;
+		
+		public Integer getCacheSize() {
+			return cacheSize;
+		}
+		
+		public void setCacheSize(Integer cacheSize) {
+			this.cacheSize = cacheSize;
+		}
+		
+		public Duration getReuseWindow() {
+			return reuseWindow;
+		}
+		
+		public void setReuseWindow(Duration reuseWindow) {
+			this.reuseWindow = reuseWindow;
+		}
+		
+		public Boolean getLocalSigning() {
+			return localSigning;
+		}
+		
+		public void setLocalSigning(Boolean localSigning) {
+			this.localSigning = localSigning;
+		}
+		
+		@Override
+		public String toString() {
+			return "Presign{" + "cacheSize=" + cacheSize + ", reuseWindow=" + reuseWindow + ", localSigning=" + localSigning + '}';
+		}
+	}
+	
+	/**
+	 * <h2>多节点路由属性</h2>
+	 *
+	 * @author 云上的云
+	 * @since 1.0
+	 */
+	public static class Failover {
+		/**
+		 * <p>
+		 *     节点连续失败(<em>连接或读取异常, 以及 502、503、504 响应</em>)多少次后被暂时剔除, 默认值为 3.
+		 * </p>
+		 */
+		private Integer failureThreshold = 3;
+		/**
+		 * <p>
+		 *     节点被剔除的时长, 默认值为 10 秒. 期满后重新参与路由, 再次失败时立即被剔除.
+		 * </p>
+		 */
+		private Duration ejectDuration = Duration.ofSeconds(10);
+		/**
+		 * <p>
+		 *     是否为幂等的请求(<em>GET、HEAD</em>)发送对冲请求, 默认值为 true. <br />
+		 *
+		 *     首个节点在其响应时间的 {@link #hedgePercentile} 分位数内没有响应时,
+		 *     向第二快的节点发送相同的请求, 采用先返回的响应并取消另一个.
+		 * </p>
+		 */
+		private Boolean hedge = true;
+		/**
+		 * <p>
+		 *     触发对冲请求的响应时间分位数, 在 0 与 1 之间, 默认值为 0.95, 即约有 5% 的幂等请求会被对冲.
+		 * </p>
+		 */
+		private Double hedgePercentile = 0.95;
+		/**
+		 * <p>
+		 *     对冲请求的最小延迟, 默认值为 10 毫秒, 避免在响应很快的节点上频繁对冲.
+		 * </p>
+		 */
+		private Duration hedgeMinDelay = Duration.ofMillis(10);
+		/**
+		 * <p>
+		 *     节点尚无响应时间的样本(<em>如刚启动时</em>)时对冲请求的延迟, 默认值为 1 秒, 不小于 {@link #hedgeMinDelay}.
+		 * </p>
+		 */
+		private Duration hedgeInitialDelay = Duration.ofSeconds(1);
+		
+		public Integer getFailureThreshold() {
+			return failureThreshold;
+		}
+		
+		public void setFailureThreshold(Integer failureThreshold) {
+			this.failureThreshold = failureThreshold;
+		}
+		
+		public Duration getEjectDuration() {
+			return ejectDuration;
+		}
+		
+		public void setEjectDuration(Duration ejectDuration) {
+			this.ejectDuration = ejectDuration;
+		}
+		
+		public Boolean getHedge() {
+			return hedge;
+		}
+		
+		public void setHedge(Boolean hedge) {
+			this.hedge = hedge;
+		}
+		
+		public Double getHedgePercentile() {
+			return hedgePercentile;
+		}
+		
+		public void setHedgePercentile(Double hedgePercentile) {
+			this.hedgePercentile = hedgePercentile;
+		}
+		
+		public Duration getHedgeMinDelay() {
+			return hedgeMinDelay;
+		}
+		
+		public void setHedgeMinDelay(Duration hedgeMinDelay) {
+			this.hedgeMinDelay = hedgeMinDelay;
+		}
+		
+		public Duration getHedgeInitialDelay() {
+			return hedgeInitialDelay;
+		}
+		
+		public void setHedgeInitialDelay(Duration hedgeInitialDelay) {
+			this.hedgeInitialDelay = hedgeInitialDelay;
+		}
+		
+		@Override
+		public String toString() {
+			return "Failover{" + "failureThreshold=" + failureThreshold + ", ejectDuration=" + ejectDuration + ", hedge=" + hedge + ", hedgePercentile=" + hedgePercentile + ", hedgeMinDelay=" + hedgeMinDelay + ", hedgeInitialDelay=" + hedgeInitialDelay + '}';
+		}
+	}
+	
+	/**
+	 * <h2>执行属性</h2>
+	 *
+	 * @author 云上的云
+	 * @since 1.0
+	 */
+	public static class Execution {
+		/**
+		 * <p>
+		 *     是否在虚拟线程上执行扇出操作中的每个对象操作, 默认值为 false. <br />
+		 *
+		 *     仅在运行时支持虚拟线程(<em>Java 21 及以上</em>)时生效, 否则退回平台线程并记录警告.
+		 *     启用后, download.rangeConcurrency 等每次扇出的线程数不再生效, 并发只受 {@link #maxConcurrency} 限制.
+		 * </p>
+		 */
+		private Boolean virtualThreads = false;
+		/**
+		 * <p>
+		 *     同一助手上同时进行的扇出对象操作的上限, 可以为 null, 为 null 时取 http.maxIdleConnections(<em>连接池的大小</em>).
+		 * </p>
+		 */
+		private Integer maxConcurrency;
+		
+		public Boolean getVirtualThreads() {
+			return virtualThreads;
+		}
+		
+		public void setVirtualThreads(Boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+		}
+		
+		public Integer getMaxConcurrency() {
+			return maxConcurrency;
+		}
+		
+		public void setMaxConcurrency(Integer maxConcurrency) {
+			this.maxConcurrency = maxConcurrency;
+		}
+		
+		@Override
+		public String toString() {
+			return "Execution{" + "virtualThreads=" + virtualThreads + ", maxConcurrency=" + maxConcurrency + '}';
+		}
+	}
+	
+	/**
+	 * <h2>限流属性</h2>
+	 *
+	 * @author 云上的云
+	 * @since 1.0
+	 */
+	public static class Limit {
+		/**
+		 * <p>
+		 *     每秒最多发出的请求数, 可以为 null, 为 null 时不限制.
+		 * </p>
+		 */
+		private Double requestsPerSecond;
+		/**
+		 * <p>
+		 *     每秒最多收发的字节数(<em>请求体与响应体合计</em>), 可以为 null, 为 null 时不限制.
+		 * </p>
+		 */
+		private DataSize bytesPerSecond;
+		/**
+		 * <p>
+		 *     令牌桶可以累积的空闲额度, 以时长表示, 默认值为 1 秒, 即空闲之后最多可以突发 1 秒的额度.
+		 * </p>
+		 */
+		private Duration burst = Duration.ofSeconds(1);
+		/**
+		 * <p>
+		 *     是否启用自适应的并发上限, 默认值为 false. <br />
+		 *
+		 *     启用后, 在途请求的上限在收到 503/429(<em>如 SlowDown</em>)时减半, 在响应时间明显增长时减少,
+		 *     否则缓慢增加, 使吞吐量稳定在服务端能够承受的水平, 而不是在过载与重试之间振荡.
+		 * </p>
+		 */
+		private Boolean adaptiveConcurrency = false;
+		/**
+		 * <p>
+		 *     自适应并发上限的初始值, 默认值为 16.
+		 * </p>
+		 */
+		private Integer initialConcurrency = 16;
+		/**
+		 * <p>
+		 *     自适应并发上限的最大值, 默认值为 64(<em>与 http.maxRequestsPerHost 的默认值一致</em>).
+		 * </p>
+		 */
+		private Integer maxConcurrency = 64;
+		/**
+		 * <p>
+		 *     无请求体的请求的响应时间超过无负载时的多少倍视为拥塞, 默认值为 2.0, 必须大于 1.
+		 * </p>
+		 */
+		private Double latencyTolerance = 2.0;
+		
+		public Double getRequestsPerSecond() {
+			return requestsPerSecond;
+		}
+		
+		public void setRequestsPerSecond(Double requestsPerSecond) {
+			this.requestsPerSecond = requestsPerSecond;
+		}
+		
+		public DataSize getBytesPerSecond() {
+			return bytesPerSecond;
+		}
+		
+		public void setBytesPerSecond(DataSize bytesPerSecond) {
+			this.bytesPerSecond = bytesPerSecond;
+		}
+		
+		public Duration getBurst() {
+			return burst;
+		}
+		
+		public void setBurst(Duration burst) {
+			this.burst = burst;
+		}
+		
+		public Boolean getAdaptiveConcurrency() {
+			return adaptiveConcurrency;
+		}
+		
+		public void setAdaptiveConcurrency(Boolean adaptiveConcurrency) {
+			this.adaptiveConcurrency = adaptiveConcurrency;
+		}
+		
+		public Integer getInitialConcurrency() {
+			return initialConcurrency;
+		}
+		
+		public void setInitialConcurrency(Integer initialConcurrency) {
+			this.initialConcurrency = initialConcurrency;
+		}
+		
+		public Integer getMaxConcurrency() {
+			return maxConcurrency;
+		}
+		
+		public void setMaxConcurrency(Integer maxConcurrency) {
+			this.maxConcurrency = maxConcurrency;
+		}
+		
+		public Double getLatencyTolerance() {
+			return latencyTolerance;
+		}
+		
+		public void setLatencyTolerance(Double latencyTolerance) {
+			this.latencyTolerance = latencyTolerance;
+		}
+		
+		@Override
+		public String toString() {
+			return "Limit{" + "requestsPerSecond=" + requestsPerSecond + ", bytesPerSecond=" + bytesPerSecond + ", burst=" + burst
+					+ ", adaptiveConcurrency=" + adaptiveConcurrency + ", initialConcurrency=" + initialConcurrency
+					+ ", maxConcurrency=" + maxConcurrency + ", latencyTolerance=" + latencyTolerance + '}';
+		}
+	}
+	
+	/**
+	 * <h2>重试属性</h2>
+	 * <p>
+	 *     只有幂等的操作(<em>查询、列举、下载、删除、设置策略</em>)以及分片上传的各个分片、分段下载的各个范围会被重试;
+	 *     以流的形式上传、创建与合并分片上传不会被重试. 只有网络错误与服务器繁忙(<em>SlowDown、5xx、429 等</em>)会被重试.
+	 * </p>
+	 *
+	 * @author 云上的云
+	 * @since 1.0
+	 */
+	public static class Retry {
+		/**
+		 * <p>
+		 *     一个操作最多尝试的次数(<em>包括第一次</em>), 默认值为 3, 为 1 时不重试. <br />
+		 *
+		 *     分片与范围的尝试次数仍分别由 upload.partRetries 与 download.rangeRetries 决定, 但同样遵循以下的退避与预算.
+		 * </p>
+		 */
+		private Integer maxAttempts = 3;
+		/**
+		 * <p>
+		 *     第一次重试之前的退避时间的下限, 默认值为 100 毫秒.
+		 *     每次的退避时间在该下限与上一次的 3 倍之间随机选取(<em>decorrelated jitter</em>), 避免大量客户端同时重试.
+		 * </p>
+		 */
+		private Duration initialBackoff = Duration.ofMillis(100);
+		/**
+		 * <p>
+		 *     退避时间的上限, 默认值为 5 秒.
+		 * </p>
+		 */
+		private Duration maxBackoff = Duration.ofSeconds(5);
+		/**
+		 * <p>
+		 *     重试预算: 重试的次数最多为调用次数的多少倍, 默认值为 0.1. <br />
+		 *
+		 *     服务端整体不可用时每个调用都会失败, 预算使重试最多只增加 10% 的负载, 而不是将负载放大为 maxAttempts 倍.
+		 * </p>
+		 */
+		private Double budgetRatio = 0.1;
+		/**
+		 * <p>
+		 *     每秒无论预算如何都允许的重试次数, 默认值为 10, 使调用很少时偶发的失败仍然能够重试.
+		 * </p>
+		 */
+		private Integer minRetriesPerSecond = 10;
+		
+		public Integer getMaxAttempts() {
+			return maxAttempts;
+		}
+		
+		public void setMaxAttempts(Integer maxAttempts) {
+			this.maxAttempts = maxAttempts;
+		}
+		
+		public Duration getInitialBackoff() {
+			return initialBackoff;
+		}
+		
+		public void setInitialBackoff(Duration initialBackoff) {
+			this.initialBackoff = initialBackoff;
+		}
+		
+		public Duration getMaxBackoff() {
+			return maxBackoff;
+		}
+		
+		public void setMaxBackoff(Duration maxBackoff) {
+			this.maxBackoff = maxBackoff;
+		}
+		
+		public Double getBudgetRatio() {
+			return budgetRatio;
+		}
+		
+		public void setBudgetRatio(Double budgetRatio) {
+			this.budgetRatio = budgetRatio;
+		}
+		
+		public Integer getMinRetriesPerSecond() {
+			return minRetriesPerSecond;
+		}
+		
+		public void setMinRetriesPerSecond(Integer minRetriesPerSecond) {
+			this.minRetriesPerSecond = minRetriesPerSecond;
+		}
+		
+		@Override
+		public String toString() {
+			return "Retry{" + "maxAttempts=" + maxAttempts + ", initialBackoff=" + initialBackoff + ", maxBackoff=" + maxBackoff
+					+ ", budgetRatio=" + budgetRatio + ", minRetriesPerSecond=" + minRetriesPerSecond + '}';
+		}
+	}
+	
+	/**
+	 * <h2>压缩属性</h2>
+	 * <p>
+	 *     启用后, 内容类型匹配 {@link #contentTypes} 的对象在上传时以流的方式压缩, 不会将整个对象读入堆内存;
+	 *     对象带有 Content-Encoding 响应头与记录压缩算法的用户元数据(<em>x-amz-meta-compression</em>), 下载时据此透明地解压. <br />
+	 *
+	 *     压缩后的对象的大小(<em>元数据与列举结果中的 size</em>)是压缩后的字节数, 压缩前的大小已知时记录在 x-amz-meta-uncompressed-size 中.
+	 *     解压只依据用户元数据, 与本属性是否启用无关, 因此关闭压缩后仍能读取此前压缩的对象.
+	 *     以文件通道、Snowball 归档以及响应式助手上传的对象不会被压缩.
+	 * </p>
+	 *
+	 * @author 云上的云
+	 * @since 1.0
+	 */
+	public static class Compression {
+		/**
+		 * <p>
+		 *     是否在上传时压缩匹配的对象, 默认值为 false.
+		 * </p>
+		 */
+		private Boolean enabled = false;
+		/**
+		 * <p>
+		 *     压缩算法, 可选 gzip 与 zstd, 默认值为 gzip. zstd 需要类路径上存在 com.github.luben:zstd-jni.
+		 * </p>
+		 */
+		private String algorithm = "gzip";
+		/**
+		 * <p>
+		 *     压缩级别, 为 null 时使用算法的默认级别(<em>gzip 为 6, zstd 为 3</em>).
+		 * </p>
+		 */
+		private Integer level;
+		/**
+		 * <p>
+		 *     需要压缩的内容类型, 支持通配符(<em>如 text/*、application/*+json</em>), 默认值为常见的文本类型.
+		 *     已经压缩过的格式(<em>图片、视频、归档</em>)再次压缩几乎没有收益, 不应当列入.
+		 * </p>
+		 */
+		private List<String> contentTypes = new ArrayList<>(Arrays.asList(
+				"text/*", "application/json", "application/*+json", "application/x-ndjson", "application/xml", "application/*+xml",
+				"application/javascript", "application/x-yaml", "application/yaml"));
+		/**
+		 * <p>
+		 *     大小已知时, 小于该值的对象不压缩, 默认值为 1KB: 过小的对象压缩后的收益抵不过压缩格式的头部.
+		 *     大小未知的流总是压缩.
+		 * </p>
+		 */
+		private DataSize minSize = DataSize.ofKilobytes(1);
+		
+		public Boolean getEnabled() {
+			return enabled;
+		}
+		
+		public void setEnabled(Boolean enabled) {
+			this.enabled = enabled;
+		}
+		
+		public String getAlgorithm() {
+			return algorithm;
+		}
+		
+		public void setAlgorithm(String algorithm) {
+			this.algorithm = algorithm;
+		}
+		
+		public Integer getLevel() {
+			return level;
+		}
+		
+		public void setLevel(Integer level) {
+			this.level = level;
+		}
+		
+		public List<String> getContentTypes() {
+			return contentTypes;
+		}
+		
+		public void setContentTypes(List<String> contentTypes) {
+			this.contentTypes = contentTypes;
+		}
+		
+		public DataSize getMinSize() {
+			return minSize;
+		}
+		
+		public void setMinSize(DataSize minSize) {
+			this.minSize = minSize;
+		}
+		
+		@Override
+		public String toString() {
+			return "Compression{" + "enabled=" + enabled + ", algorithm='" + algorithm + '\'' + ", level=" + level
+					+ ", contentTypes=" + contentTypes + ", minSize=" + minSize + '}';
+		}
 	}
 }
@@ -0,0 +1,535 @@
+package indi.ly.crush.autoconfigure;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h2>限流拦截器</h2>
+ * <p>
+ *     限制发往 MinIO 的请求:
+ *     <ol>
+ *         <li>请求数的令牌桶({@link MinIoProperties.Limit#getRequestsPerSecond()}), 每个调用消耗一个令牌.</li>
+ *         <li>字节数的令牌桶({@link MinIoProperties.Limit#getBytesPerSecond()}), 后付: 请求体的字节在发出时、
+ *         响应体的字节在收到响应头时按 Content-Length 记账, 之后的调用在欠额还清(<em>不超过突发额度</em>)之前不被放行.</li>
+ *         <li>自适应的并发上限({@link MinIoProperties.Limit#getAdaptiveConcurrency()}), 调用在收到响应头之前占用一个名额.</li>
+ *     </ol>
+ *     两个令牌桶以 GCRA(<em>通用信元速率算法</em>)实现, 各自只维护一个无锁的理论到达时间;
+ *     并发上限按 AIMD 调整: 没有拥塞信号时每个往返增加约 1, 收到 503/429(<em>如 SlowDown</em>)时减半,
+ *     无请求体的请求的响应时间超过基线的 {@link MinIoProperties.Limit#getLatencyTolerance()} 倍时减少 10%. <br />
+ *
+ *     异步调用(<em>minio 的所有请求</em>)在调度之前放行: {@link #admission(ExecutorService)} 作为调度器的线程池,
+ *     令牌或名额不足的调用在其队列中排队, 到期或名额释放时再交给线程池, 等待期间不占用线程.
+ *     排队的调用仍计入调度器的 maxRequests 名额, 与在调度器中排队等价, 所有调用按同一顺序等待同一组限制.
+ *     同步调用(<em>{@link Call#execute()}</em>)没有经过放行, 在调用者的线程上阻塞等待. <br />
+ *
+ *     同一个实例由共享 {@link okhttp3.OkHttpClient} 的所有客户端共用.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class ThrottlingInterceptor
+		implements Interceptor {
+	private final TokenBucket requests;
+	private final TokenBucket bytes;
+	private final ConcurrencyLimit concurrency;
+	/**
+	 * <p>
+	 *     当前线程正在执行的、已经放行的异步调用的名额, 由本拦截器取走并在收到响应头时释放.
+	 * </p>
+	 */
+	private final ThreadLocal<Permit> admitted = new ThreadLocal<>();
+	private Admission admission;
+	
+	ThrottlingInterceptor(MinIoProperties.Limit limit) {
+		Double requestsPerSecond = limit.getRequestsPerSecond();
+		long bytesPerSecond = limit.getBytesPerSecond() == null ? 0 : limit.getBytesPerSecond().toBytes();
+		if ((requestsPerSecond != null && requestsPerSecond <= 0) || bytesPerSecond < 0 || limit.getBurst().isNegative()) {
+			throw new IllegalArgumentException("'limit.requestsPerSecond' and 'limit.bytesPerSecond' must be greater than 0 and 'limit.burst' must not be negative, but it is " + limit);
+		}
+		if (limit.getInitialConcurrency() < 1 || limit.getMaxConcurrency() < limit.getInitialConcurrency() || limit.getLatencyTolerance() <= 1) {
+			throw new IllegalArgumentException("'limit.initialConcurrency' must be between 1 and 'limit.maxConcurrency', and 'limit.latencyTolerance' must be greater than 1, but it is " + limit);
+		}
+		
+		long burstNanos = limit.getBurst().toNanos();
+		this.requests = requestsPerSecond == null ? null : new TokenBucket(requestsPerSecond, burstNanos);
+		this.bytes = bytesPerSecond == 0 ? null : new TokenBucket(bytesPerSecond, burstNanos);
+		this.concurrency = Boolean.TRUE.equals(limit.getAdaptiveConcurrency())
+									? new ConcurrencyLimit(limit.getInitialConcurrency(), limit.getMaxConcurrency(), limit.getLatencyTolerance())
+									: null;
+	}
+	
+	/**
+	 * <p>
+	 *     是否配置了任一限制, 没有时无需安装本拦截器.
+	 * </p>
+	 */
+	boolean isEnabled() {
+		return this.requests != null || this.bytes != null || this.concurrency != null;
+	}
+	
+	/**
+	 * <p>
+	 *     返回在 executor 上执行调用的线程池, 供安装本拦截器的客户端的调度器使用. 每个实例只能调用一次.
+	 *     关闭返回的线程池时一并关闭 executor, 排队中的调用不再等待而立即执行.
+	 * </p>
+	 */
+	synchronized ExecutorService admission(ExecutorService executor) {
+		if (this.admission != null) {
+			throw new IllegalStateException("The admission executor has already been created");
+		}
+		this.admission = new Admission(executor);
+		return this.admission;
+	}
+	
+	@Override
+	public Response intercept(Chain chain) throws IOException {
+		Request request = chain.request();
+		Permit permit = this.admitted.get();
+		if (permit != null) {
+			// 同一线程上嵌套的同步调用不能沿用外层调用的名额.
+			this.admitted.remove();
+		} else {
+			permit = this.await(chain.call());
+		}
+		
+		long requestBytes = request.body() == null ? 0 : request.body().contentLength();
+		if (this.bytes != null && requestBytes > 0) {
+			this.bytes.charge(requestBytes);
+		}
+		long start = System.nanoTime();
+		Response response;
+		try {
+			response = chain.proceed(request);
+		} catch (IOException e) {
+			permit.release();
+			throw e;
+		}
+		if (this.concurrency != null) {
+			int code = response.code();
+			if (code == 503 || code == 429) {
+				this.concurrency.onOverload();
+			} else {
+				// 带有请求体的请求的响应时间取决于请求体的大小, 不作为拥塞的信号.
+				this.concurrency.onSuccess(requestBytes <= 0 ? System.nanoTime() - start : -1);
+			}
+		}
+		permit.release();
+		
+		if (this.bytes != null && response.body() != null && response.body().contentLength() > 0) {
+			this.bytes.charge(response.body().contentLength());
+		}
+		return response;
+	}
+	
+	/**
+	 * <p>
+	 *     同步调用在调用者的线程上依次等待字节数的欠额还清、请求数的令牌与并发名额.
+	 * </p>
+	 */
+	private Permit await(Call call) throws IOException {
+		if (this.bytes != null) {
+			// 不预订任何字节, 只等待欠额还清.
+			this.bytes.acquire(0);
+		}
+		if (this.requests != null) {
+			this.requests.acquire(1);
+		}
+		if (this.concurrency == null) {
+			return Permit.NONE;
+		}
+		this.concurrency.acquire(call);
+		return new Permit(this.concurrency);
+	}
+	
+	/**
+	 * <h2>并发名额</h2>
+	 * <p>
+	 *     一个调用占用的并发名额, 只在执行该调用的线程上访问, 可以重复释放.
+	 * </p>
+	 */
+	private static final class Permit {
+		private static final Permit NONE = new Permit(null);
+		private ConcurrencyLimit concurrency;
+		
+		Permit(ConcurrencyLimit concurrency) {
+			this.concurrency = concurrency;
+		}
+		
+		void release() {
+			if (this.concurrency != null) {
+				this.concurrency.release();
+				this.concurrency = null;
+			}
+		}
+	}
+	
+	/**
+	 * <h2>放行队列</h2>
+	 * <p>
+	 *     调度器交来的调用按到达的顺序排队, 队首的调用在字节数的欠额还清、取得请求数的令牌与并发名额之后交给 {@link #executor} 执行.
+	 *     令牌不足时由 {@link #timer} 在令牌足够的时刻再次检查, 名额不足时由名额的释放触发检查, 等待期间不占用线程.
+	 * </p>
+	 */
+	private final class Admission
+			extends AbstractExecutorService {
+		private final ExecutorService executor;
+		private final ScheduledThreadPoolExecutor timer;
+		private final Deque<Runnable> queue = new ArrayDeque<>();
+		private ScheduledFuture<?> wakeup;
+		private boolean shutdown;
+		
+		Admission(ExecutorService executor) {
+			this.executor = executor;
+			this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+				Thread thread = new Thread(runnable, "minio-throttle");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.timer.setRemoveOnCancelPolicy(true);
+			if (ThrottlingInterceptor.this.concurrency != null) {
+				ThrottlingInterceptor.this.concurrency.onRelease(this :: drain);
+			}
+		}
+		
+		@Override
+		public void execute(Runnable task) {
+			synchronized (this) {
+				if (this.shutdown) {
+					throw new RejectedExecutionException("The MinIo HTTP client has been shut down");
+				}
+				this.queue.add(task);
+			}
+			this.drain();
+		}
+		
+		/**
+		 * <p>
+		 *     依次放行队首的调用, 直到队列为空或限制不允许.
+		 * </p>
+		 */
+		private void drain() {
+			List<Runnable> admitted = new ArrayList<>();
+			synchronized (this) {
+				while (!this.queue.isEmpty()) {
+					long wait = ThrottlingInterceptor.this.bytes == null ? 0 : ThrottlingInterceptor.this.bytes.delay();
+					if (wait <= 0) {
+						ConcurrencyLimit concurrency = ThrottlingInterceptor.this.concurrency;
+						if (concurrency != null && !concurrency.tryAcquire()) {
+							// 名额释放时再次检查.
+							break;
+						}
+						wait = ThrottlingInterceptor.this.requests == null ? 0 : ThrottlingInterceptor.this.requests.tryAcquire(1);
+						if (wait > 0 && concurrency != null) {
+							concurrency.cancel();
+						}
+					}
+					if (wait > 0) {
+						if (this.wakeup == null) {
+							this.wakeup = this.timer.schedule(this :: wake, wait, TimeUnit.NANOSECONDS);
+						}
+						break;
+					}
+					admitted.add(this.queue.poll());
+				}
+			}
+			for (Runnable task : admitted) {
+				this.executor.execute(() -> this.run(task));
+			}
+		}
+		
+		private void wake() {
+			synchronized (this) {
+				this.wakeup = null;
+			}
+			this.drain();
+		}
+		
+		private void run(Runnable task) {
+			Permit permit = ThrottlingInterceptor.this.concurrency == null ? Permit.NONE : new Permit(ThrottlingInterceptor.this.concurrency);
+			ThrottlingInterceptor.this.admitted.set(permit);
+			try {
+				task.run();
+			} finally {
+				// 调用在到达本拦截器之前结束时, 在此释放名额.
+				ThrottlingInterceptor.this.admitted.remove();
+				permit.release();
+			}
+		}
+		
+		@Override
+		public void shutdown() {
+			List<Runnable> pending;
+			synchronized (this) {
+				this.shutdown = true;
+				pending = new ArrayList<>(this.queue);
+				this.queue.clear();
+			}
+			this.timer.shutdownNow();
+			// 调度器认为排队的调用已在执行, 丢弃它们会使其永远不能完成.
+			pending.forEach(this.executor :: execute);
+			this.executor.shutdown();
+		}
+		
+		@Override
+		public List<Runnable> shutdownNow() {
+			List<Runnable> pending;
+			synchronized (this) {
+				this.shutdown = true;
+				pending = new ArrayList<>(this.queue);
+				this.queue.clear();
+			}
+			this.timer.shutdownNow();
+			pending.addAll(this.executor.shutdownNow());
+			return pending;
+		}
+		
+		@Override
+		public synchronized boolean isShutdown() {
+			return this.shutdown;
+		}
+		
+		@Override
+		public boolean isTerminated() {
+			return this.isShutdown() && this.executor.isTerminated();
+		}
+		
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return this.isShutdown() && this.executor.awaitTermination(timeout, unit);
+		}
+	}
+	
+	/**
+	 * <h2>令牌桶</h2>
+	 * <p>
+	 *     以 GCRA 实现: 每个单位占用 {@link #nanosPerUnit} 纳秒, {@link #theoreticalArrival} 是已预订的额度用尽的时刻(<em>理论到达时间</em>),
+	 *     它不晚于当前时刻加上 {@link #burstNanos} 时可以立即通过, 通过后向后推移所取得的单位占用的时长; 空闲时它停在当前时刻, 因此至多积累 {@link #burstNanos} 的额度.
+	 * </p>
+	 */
+	private static final class TokenBucket {
+		private final double nanosPerUnit;
+		private final long burstNanos;
+		private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+		
+		TokenBucket(double unitsPerSecond, long burstNanos) {
+			this.nanosPerUnit = TimeUnit.SECONDS.toNanos(1) / unitsPerSecond;
+			this.burstNanos = burstNanos;
+		}
+		
+		/**
+		 * <p>
+		 *     取得 units 个单位, 令牌不足时阻塞至足够为止. 只用于同步调用, 在调用者的线程上等待.
+		 * </p>
+		 */
+		void acquire(long units) throws InterruptedIOException {
+			long cost = (long) (units * this.nanosPerUnit);
+			long now = System.nanoTime();
+			long previous = this.theoreticalArrival.getAndAccumulate(now, (tat, time) -> Math.max(tat, time) + cost);
+			long allowedAt = Math.max(previous, now) - this.burstNanos;
+			long wait;
+			while ((wait = allowedAt - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(this, wait);
+				if (Thread.interrupted()) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+				}
+			}
+		}
+		
+		/**
+		 * <p>
+		 *     令牌足够时取得 units 个单位并返回 0, 否则不取得并返回需要等待的纳秒数.
+		 * </p>
+		 */
+		long tryAcquire(long units) {
+			long cost = (long) (units * this.nanosPerUnit);
+			while (true) {
+				long now = System.nanoTime();
+				long tat = this.theoreticalArrival.get();
+				long wait = tat - this.burstNanos - now;
+				if (wait > 0) {
+					return wait;
+				}
+				if (this.theoreticalArrival.compareAndSet(tat, Math.max(tat, now) + cost)) {
+					return 0;
+				}
+			}
+		}
+		
+		/**
+		 * <p>
+		 *     预支 units 个单位而不等待, 之后的调用等待偿还.
+		 * </p>
+		 */
+		void charge(long units) {
+			long cost = (long) (units * this.nanosPerUnit);
+			this.theoreticalArrival.accumulateAndGet(System.nanoTime(), (tat, time) -> Math.max(tat, time) + cost);
+		}
+		
+		/**
+		 * <p>
+		 *     欠额还清(<em>不超过突发额度</em>)还需等待的纳秒数, 不大于 0 时无需等待.
+		 * </p>
+		 */
+		long delay() {
+			return this.theoreticalArrival.get() - this.burstNanos - System.nanoTime();
+		}
+	}
+	
+	/**
+	 * <h2>自适应并发上限</h2>
+	 * <p>
+	 *     以 AIMD 调整的并发上限, 在 1 与 {@link #max} 之间:
+	 *     <ol>
+	 *         <li>请求成功且没有拥塞时, 上限增加 1 / 上限, 即每个往返约增加 1.</li>
+	 *         <li>收到过载响应时上限减半, 响应时间超过基线的 {@link #tolerance} 倍时上限减少 10%;
+	 *         两次减少至少间隔一个拥塞时的往返(<em>基线的 {@link #tolerance} 倍, 不少于 10 毫秒</em>), 同一批在途请求带回的多个信号只生效一次.</li>
+	 *         <li>基线是无负载时的响应时间的估计: 取样本与缓慢上浮的历史基线中的较小者.</li>
+	 *     </ol>
+	 * </p>
+	 */
+	private static final class ConcurrencyLimit {
+		private final int max;
+		private final double tolerance;
+		private final Log logger = LogFactory.getLog(ThrottlingInterceptor.class);
+		private double limit;
+		private int inFlight;
+		private double baselineNanos;
+		private long decreasedAt = System.nanoTime();
+		private volatile Runnable listener;
+		/**
+		 * <p>
+		 *     基线每个样本上浮的比例, 使其能够跟随服务端长期的变化.
+		 * </p>
+		 */
+		private static final double BASELINE_DRIFT = 0.001;
+		private static final long POLL_MILLIS = 100;
+		/**
+		 * <p>
+		 *     两次减少的最小间隔, 尚无基线时同样适用.
+		 * </p>
+		 */
+		private static final long MIN_COOLDOWN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+		
+		ConcurrencyLimit(int initial, int max, double tolerance) {
+			this.limit = initial;
+			this.max = max;
+			this.tolerance = tolerance;
+		}
+		
+		/**
+		 * <p>
+		 *     取得一个名额, 在途请求达到上限时等待. 等待期间 call 被取消时抛出异常. 只用于同步调用, 在调用者的线程上等待.
+		 * </p>
+		 */
+		synchronized void acquire(Call call) throws IOException {
+			while (this.inFlight >= (int) this.limit) {
+				if (call.isCanceled()) {
+					throw new IOException("Canceled");
+				}
+				try {
+					this.wait(POLL_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for the concurrency limit");
+				}
+			}
+			this.inFlight++;
+		}
+		
+		/**
+		 * <p>
+		 *     名额足够时取得一个名额并返回 true, 否则不等待而返回 false.
+		 * </p>
+		 */
+		synchronized boolean tryAcquire() {
+			if (this.inFlight >= (int) this.limit) {
+				return false;
+			}
+			this.inFlight++;
+			return true;
+		}
+		
+		/**
+		 * <p>
+		 *     释放一个名额, 并在释放之后(<em>不持有本对象的锁</em>)回调 {@link #onRelease(Runnable)} 设置的监听器.
+		 * </p>
+		 */
+		void release() {
+			this.cancel();
+			Runnable listener = this.listener;
+			if (listener != null) {
+				listener.run();
+			}
+		}
+		
+		/**
+		 * <p>
+		 *     归还刚刚取得而未使用的名额, 不回调监听器.
+		 * </p>
+		 */
+		synchronized void cancel() {
+			this.inFlight--;
+			this.notifyAll();
+		}
+		
+		void onRelease(Runnable listener) {
+			this.listener = listener;
+		}
+		
+		/**
+		 * @param latencyNanos 响应时间, 为负时不作为延迟的样本.
+		 */
+		synchronized void onSuccess(long latencyNanos) {
+			if (latencyNanos >= 0) {
+				this.baselineNanos = this.baselineNanos == 0
+											? latencyNanos
+											: Math.min(latencyNanos, this.baselineNanos * (1 + BASELINE_DRIFT));
+				if (latencyNanos > this.baselineNanos * this.tolerance) {
+					this.decrease(0.9, "latency " + TimeUnit.NANOSECONDS.toMillis(latencyNanos) + "ms");
+					return;
+				}
+			}
+			// 只有在途请求接近上限时才增加, 避免空闲时上限无限增长.
+			if (this.inFlight >= (int) this.limit - 1) {
+				this.limit = Math.min(this.max, this.limit + 1 / this.limit);
+			}
+		}
+		
+		synchronized void onOverload() {
+			this.decrease(0.5, "overload");
+		}
+		
+		private void decrease(double factor, String reason) {
+			long now = System.nanoTime();
+			if (now - this.decreasedAt < Math.max(MIN_COOLDOWN_NANOS, (long) (this.baselineNanos * this.tolerance))) {
+				return;
+			}
+			this.decreasedAt = now;
+			this.limit = Math.max(1, this.limit * factor);
+			if (this.logger.isDebugEnabled()) {
+				this.logger.debug("MinIo concurrency limit decreased to " + (int) this.limit + " (" + reason + ")");
+			}
+		}
+	}
+}
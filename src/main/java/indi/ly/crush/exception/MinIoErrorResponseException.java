@@ -0,0 +1,56 @@
+package indi.ly.crush.exception;
+
+import java.io.Serial;
+
+/**
+ * <h2>MinIo 错误响应异常</h2>
+ * <p>
+ *     服务器以错误响应拒绝了请求. 没有响应体的错误响应(<em>如 HEAD 请求</em>)只有 HTTP 状态码, 此时 S3 错误码为 null.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+public class MinIoErrorResponseException
+		extends MinIoException {
+	@Serial
+	private static final long serialVersionUID = -3905385412765519074L;
+	private final String code;
+	private final int status;
+	private final String requestId;
+	private final String resource;
+	
+	public MinIoErrorResponseException(String message, Throwable cause, String code, int status, String requestId, String resource, boolean retryable) {
+		super(message, cause, retryable);
+		this.code = code;
+		this.status = status;
+		this.requestId = requestId;
+		this.resource = resource;
+	}
+	
+	/**
+	 * <p>
+	 *     S3 错误码, 如 AccessDenied、SlowDown, 可以为 null.
+	 * </p>
+	 */
+	public String getCode() {
+		return code;
+	}
+	
+	/**
+	 * <p>
+	 *     HTTP 状态码, 未知时为 -1.
+	 * </p>
+	 */
+	public int getStatus() {
+		return status;
+	}
+	
+	public String getRequestId() {
+		return requestId;
+	}
+	
+	public String getResource() {
+		return resource;
+	}
+}
@@ -0,0 +1,133 @@
+package indi.ly.crush.exception;
+
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.ServerException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.io.Serial;
+import java.net.SocketTimeoutException;
+import java.nio.file.FileSystemException;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * <h2>MinIo 异常</h2>
+ * <p>
+ *     MinIo 助手的操作失败时抛出的异常, 取代以 {@link RuntimeException} 包装的受检异常:
+ *     <ol>
+ *         <li>{@link MinIoErrorResponseException}: 服务器以错误响应拒绝了请求, 带有 S3 错误码与 HTTP 状态码.</li>
+ *         <li>{@link MinIoNotFoundException}: 对象、桶或分片上传不存在.</li>
+ *         <li>{@link MinIoTransportException}: 连接失败、超时或连接被重置等网络错误.</li>
+ *         <li>其余(<em>如签名、解析响应失败</em>)为本类自身.</li>
+ *     </ol>
+ *     {@link #isRetryable()} 表示同样的请求稍后重试是否可能成功. 助手在抛出之前已经按重试策略重试过幂等的操作,
+ *     此前各次尝试的失败原因以 {@link #getSuppressed()} 附在异常链的最内层.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+public class MinIoException
+		extends RuntimeException {
+	@Serial
+	private static final long serialVersionUID = 2417560284310532962L;
+	/**
+	 * <p>
+	 *     服务器繁忙或暂时不可用时的 S3 错误码, 这些错误可以重试.
+	 * </p>
+	 */
+	private static final Set<String> RETRYABLE_CODES = Set.of(
+			"SlowDown", "SlowDownRead", "SlowDownWrite", "RequestTimeout", "InternalError", "ServiceUnavailable",
+			"Throttling", "ThrottlingException", "RequestThrottled", "OperationTimedOut", "XMinioServerNotInitialized");
+	/**
+	 * <p>
+	 *     表示资源不存在的 S3 错误码.
+	 * </p>
+	 */
+	private static final Set<String> NOT_FOUND_CODES = Set.of("NoSuchKey", "NoSuchBucket", "NoSuchUpload", "NoSuchVersion");
+	private final boolean retryable;
+	
+	public MinIoException(String message, Throwable cause, boolean retryable) {
+		super(message, cause);
+		this.retryable = retryable;
+	}
+	
+	/**
+	 * <p>
+	 *     同样的请求稍后重试是否可能成功.
+	 * </p>
+	 */
+	public boolean isRetryable() {
+		return this.retryable;
+	}
+	
+	/**
+	 * <p>
+	 *     将 MinIO 客户端抛出的异常转换为对应的 {@link MinIoException}. <br />
+	 *
+	 *     外层的 {@link CompletionException}、{@link ExecutionException} 与 {@link UncheckedIOException} 会被剥去,
+	 *     使读取响应体时连接被重置等以 {@link UncheckedIOException} 抛出的网络错误同样可以重试;
+	 *     其他的 {@link RuntimeException}(<em>如参数校验失败</em>)原样返回.
+	 * </p>
+	 *
+	 * @param throwable MinIO 客户端或 HTTP 客户端抛出的异常.
+	 * @return 转换后的异常, 由调用者抛出.
+	 */
+	public static RuntimeException translate(Throwable throwable) {
+		Throwable cause = unwrap(throwable);
+		if (cause instanceof RuntimeException runtimeException) {
+			return runtimeException;
+		}
+		if (cause instanceof ErrorResponseException e) {
+			String code = e.errorResponse() == null ? null : e.errorResponse().code();
+			int status = e.response() == null ? -1 : e.response().code();
+			String requestId = e.errorResponse() == null ? null : e.errorResponse().requestId();
+			String resource = e.errorResponse() == null ? null : e.errorResponse().resource();
+			return NOT_FOUND_CODES.contains(code)
+						? new MinIoNotFoundException(e.getMessage(), e, code, status, requestId, resource)
+						: new MinIoErrorResponseException(e.getMessage(), e, code, status, requestId, resource, isRetryable(code, status));
+		}
+		if (cause instanceof ServerException e) {
+			return new MinIoErrorResponseException(e.getMessage(), e, null, e.statusCode(), null, null, isRetryable(null, e.statusCode()));
+		}
+		if (cause instanceof IOException e && !(cause instanceof FileSystemException)) {
+			// 被中断的等待(如限流)不可重试, 但读取超时同样是 InterruptedIOException 的子类.
+			boolean interrupted = e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException);
+			return new MinIoTransportException(e.getMessage(), e, !interrupted);
+		}
+		return new MinIoException(cause.getMessage(), cause, false);
+	}
+	
+	/**
+	 * <p>
+	 *     throwable 所表示的失败是否可以重试, 语义同 {@link #translate(Throwable)} 得到的异常的 {@link #isRetryable()}.
+	 * </p>
+	 */
+	public static boolean isRetryable(Throwable throwable) {
+		return translate(throwable) instanceof MinIoException e && e.isRetryable();
+	}
+	
+	/**
+	 * <p>
+	 *     服务器繁忙、暂时不可用或请求超时(<em>408、429 以及 5xx 中除 501 以外</em>)时可以重试.
+	 * </p>
+	 */
+	private static boolean isRetryable(String code, int status) {
+		if (code != null && RETRYABLE_CODES.contains(code)) {
+			return true;
+		}
+		return status == 408 || status == 429 || (status >= 500 && status != 501);
+	}
+	
+	private static Throwable unwrap(Throwable throwable) {
+		Throwable cause = throwable;
+		while ((cause instanceof CompletionException || cause instanceof ExecutionException || cause instanceof UncheckedIOException)
+					   && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		return cause;
+	}
+}
@@ -0,0 +1,22 @@
+package indi.ly.crush.exception;
+
+import java.io.Serial;
+
+/**
+ * <h2>MinIo 资源不存在异常</h2>
+ * <p>
+ *     对象、桶、版本或分片上传不存在(<em>NoSuchKey、NoSuchBucket、NoSuchVersion、NoSuchUpload</em>), 不可重试.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+public class MinIoNotFoundException
+		extends MinIoErrorResponseException {
+	@Serial
+	private static final long serialVersionUID = 5197372146532048117L;
+	
+	public MinIoNotFoundException(String message, Throwable cause, String code, int status, String requestId, String resource) {
+		super(message, cause, code, status, requestId, resource, false);
+	}
+}
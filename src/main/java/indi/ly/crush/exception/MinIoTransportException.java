@@ -0,0 +1,22 @@
+package indi.ly.crush.exception;
+
+import java.io.Serial;
+
+/**
+ * <h2>MinIo 传输异常</h2>
+ * <p>
+ *     请求没有得到响应: 连接失败、超时、连接被重置等网络错误. 除等待被中断以外都可以重试.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+public class MinIoTransportException
+		extends MinIoException {
+	@Serial
+	private static final long serialVersionUID = -1286245390614137215L;
+	
+	public MinIoTransportException(String message, Throwable cause, boolean retryable) {
+		super(message, cause, retryable);
+	}
+}
@@ -0,0 +1,74 @@
+package indi.ly.crush.helper;
+
+import indi.ly.crush.autoconfigure.MinIoProperties;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * <h2>同一部署共享的资源</h2>
+ * <p>
+ *     操作同一 MinIO 部署(<em>同一对客户端</em>)中不同桶的助手共享以下资源, 使相应配置的上限针对整个部署而不是每个桶:
+ *     <ol>
+ *         <li>对象缓存: download.heapCacheSize 与 download.diskCacheSize 及其磁盘目录.</li>
+ *         <li>元数据缓存: metadata.cacheSize.</li>
+ *         <li>重试预算: retry.budgetRatio 与 retry.minRetriesPerSecond.</li>
+ *     </ol>
+ *     共享的缓存以 "桶名/位置" 为键. 预签名 URL 的缓存与签名的桶绑定, 仍由每个助手各自持有, presign.cacheSize 针对每个桶.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+final class ClientResources {
+	/**
+	 * <p>
+	 *     下载的读穿透缓存, 未启用时为 null.
+	 * </p>
+	 */
+	final ObjectCache objectCache;
+	final MetadataCache metadataCache;
+	final RetryPolicy.Budget retryBudget;
+	
+	ClientResources(MinIoProperties properties) {
+		MinIoProperties.Download download = properties.getDownload();
+		long heapCacheSize = download.getHeapCacheSize().toBytes();
+		long diskCacheSize = download.getDiskCacheSize().toBytes();
+		if (heapCacheSize < 0 || diskCacheSize < 0 || download.getCacheTtl().isNegative()) {
+			throw new IllegalArgumentException("'download.heapCacheSize', 'download.diskCacheSize' and 'download.cacheTtl' must not be negative, but it is " + download);
+		}
+		MinIoProperties.Metadata metadata = properties.getMetadata();
+		if (metadata.getCacheSize() < 0 || metadata.getTtl().isNegative() || metadata.getNegativeTtl().isNegative()) {
+			throw new IllegalArgumentException("'metadata.cacheSize', 'metadata.ttl' and 'metadata.negativeTtl' must not be negative, but it is " + metadata);
+		}
+		
+		if (heapCacheSize > 0 || diskCacheSize > 0) {
+			Path directory = download.getDiskCacheDirectory() != null
+									? Paths.get(download.getDiskCacheDirectory())
+									: Paths.get(System.getProperty("java.io.tmpdir"), "minio-cache");
+			try {
+				this.objectCache = new ObjectCache(
+						heapCacheSize, download.getHeapEntryLimit().toBytes(), diskCacheSize, download.getDiskEntryLimit().toBytes(), directory);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e.getMessage(), e);
+			}
+		} else {
+			this.objectCache = null;
+		}
+		this.metadataCache = new MetadataCache(metadata.getCacheSize(), metadata.getTtl().toNanos(), metadata.getNegativeTtl().toNanos());
+		this.retryBudget = new RetryPolicy.Budget(properties.getRetry());
+	}
+	
+	/**
+	 * <p>
+	 *     清空缓存并删除对象缓存的磁盘目录.
+	 * </p>
+	 */
+	void close() {
+		if (this.objectCache != null) {
+			this.objectCache.close();
+		}
+	}
+}
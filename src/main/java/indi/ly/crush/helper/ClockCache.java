@@ -0,0 +1,115 @@
+package indi.ly.crush.helper;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h2>CLOCK 缓存</h2>
+ * <p>
+ *     以 {@link ConcurrentHashMap} 保存条目, 以 CLOCK(<em>second chance</em>)算法近似 LRU 地淘汰, 最多保留 {@link #capacity} 个条目:
+ *     <ol>
+ *         <li>读取不加锁, 只在条目尚未被标记时将其标记为最近访问过.</li>
+ *         <li>写入使条目数超过容量时, 时钟指针沿着映射表循环前进, 清除遇到的标记, 淘汰第一个没有标记的条目.</li>
+ *     </ol>
+ *     只有淘汰需要加锁, 并发的读取之间、读取与写入之间都没有锁竞争.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+final class ClockCache<K, V> {
+	private final int capacity;
+	private final Map<K, Node<V>> nodes = new ConcurrentHashMap<>();
+	/**
+	 * <p>
+	 *     时钟指针, 只在持有本实例的锁时使用.
+	 * </p>
+	 */
+	private Iterator<Map.Entry<K, Node<V>>> hand;
+	
+	ClockCache(int capacity) {
+		this.capacity = capacity;
+	}
+	
+	V get(K key) {
+		Node<V> node = this.nodes.get(key);
+		if (node == null) {
+			return null;
+		}
+		if (!node.referenced) {
+			node.referenced = true;
+		}
+		return node.value;
+	}
+	
+	/**
+	 * <p>
+	 *     加入或替换条目, 容量为 0 时不加入.
+	 * </p>
+	 */
+	void put(K key, V value) {
+		if (this.capacity <= 0) {
+			return;
+		}
+		this.nodes.put(key, new Node<>(value));
+		if (this.nodes.size() > this.capacity) {
+			this.evict();
+		}
+	}
+	
+	void remove(K key) {
+		this.nodes.remove(key);
+	}
+	
+	/**
+	 * <p>
+	 *     仅当 key 对应的仍是 value 时移除, 用于移除读取到的过期条目而不影响期间写入的新条目.
+	 * </p>
+	 */
+	void remove(K key, V value) {
+		Node<V> node = this.nodes.get(key);
+		if (node != null && node.value == value) {
+			this.nodes.remove(key, node);
+		}
+	}
+	
+	int size() {
+		return this.nodes.size();
+	}
+	
+	private synchronized void evict() {
+		while (this.nodes.size() > this.capacity) {
+			if (this.hand == null || !this.hand.hasNext()) {
+				this.hand = this.nodes.entrySet().iterator();
+				if (!this.hand.hasNext()) {
+					return;
+				}
+			}
+			Map.Entry<K, Node<V>> entry = this.hand.next();
+			Node<V> node = entry.getValue();
+			if (node.referenced) {
+				node.referenced = false;
+			} else {
+				this.nodes.remove(entry.getKey(), node);
+			}
+		}
+	}
+	
+	/**
+	 * <h2>缓存节点</h2>
+	 */
+	private static final class Node<V> {
+		final V value;
+		/**
+		 * <p>
+		 *     自上次时钟指针经过以来是否被访问过, 新加入的条目未被访问过.
+		 * </p>
+		 */
+		volatile boolean referenced;
+		
+		Node(V value) {
+			this.value = value;
+		}
+	}
+}
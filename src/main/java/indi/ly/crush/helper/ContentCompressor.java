@@ -0,0 +1,301 @@
+package indi.ly.crush.helper;
+
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import indi.ly.crush.autoconfigure.MinIoProperties;
+import okhttp3.Headers;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <h2>内容压缩器</h2>
+ * <p>
+ *     按 compression.contentTypes 决定哪些对象在上传时压缩, 并以流的方式压缩与解压:
+ *     <ol>
+ *         <li>压缩: 返回一个拉取式的 {@link InputStream}, 每次从源流读取一块后压缩, 堆内存中只保留一块的压缩结果.</li>
+ *         <li>解压: 只解压带有 {@link #ENCODING_METADATA} 用户元数据的对象, 其他对象(<em>包括自行设置了 Content-Encoding 的对象</em>)原样返回.</li>
+ *     </ol>
+ *     zstd 依赖于可选的 zstd-jni, 相关的类只在实际使用时加载.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class ContentCompressor {
+	static final String GZIP = "gzip";
+	static final String ZSTD = "zstd";
+	/**
+	 * <p>
+	 *     记录压缩算法的用户元数据, 响应头为 x-amz-meta-compression.
+	 * </p>
+	 */
+	static final String ENCODING_METADATA = "compression";
+	/**
+	 * <p>
+	 *     记录压缩前大小的用户元数据, 只在上传时大小已知的情况下存在.
+	 * </p>
+	 */
+	static final String SIZE_METADATA = "uncompressed-size";
+	private static final String METADATA_PREFIX = "x-amz-meta-";
+	private static final boolean ZSTD_PRESENT = ClassUtils.isPresent("com.github.luben.zstd.ZstdOutputStreamNoFinalizer", ContentCompressor.class.getClassLoader());
+	/**
+	 * <p>
+	 *     每次从源流读取并压缩的字节数.
+	 * </p>
+	 */
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private final String algorithm;
+	private final Integer level;
+	private final List<MimeType> contentTypes;
+	private final long minSize;
+	
+	ContentCompressor(MinIoProperties.Compression compression) {
+		String algorithm = compression.getAlgorithm();
+		if (!GZIP.equals(algorithm) && !ZSTD.equals(algorithm)) {
+			throw new IllegalArgumentException("'compression.algorithm' must be 'gzip' or 'zstd', but it is " + algorithm);
+		}
+		if (ZSTD.equals(algorithm) && !ZSTD_PRESENT) {
+			throw new IllegalArgumentException("'compression.algorithm' is 'zstd', but com.github.luben:zstd-jni is not on the classpath");
+		}
+		Integer level = compression.getLevel();
+		if (level != null && (GZIP.equals(algorithm) ? level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION : level < 1 || level > 22)) {
+			throw new IllegalArgumentException("'compression.level' must be between 0 and 9 for gzip or between 1 and 22 for zstd, but it is " + level);
+		}
+		if (compression.getMinSize().toBytes() < 0) {
+			throw new IllegalArgumentException("'compression.minSize' must not be negative, but it is " + compression.getMinSize());
+		}
+		
+		List<MimeType> contentTypes = new ArrayList<>(compression.getContentTypes().size());
+		for (String contentType : compression.getContentTypes()) {
+			try {
+				contentTypes.add(MimeTypeUtils.parseMimeType(contentType));
+			} catch (InvalidMimeTypeException e) {
+				throw new IllegalArgumentException("'compression.contentTypes' must contain valid content types, but it is " + compression.getContentTypes(), e);
+			}
+		}
+		this.algorithm = algorithm;
+		this.level = level;
+		this.contentTypes = contentTypes;
+		this.minSize = compression.getMinSize().toBytes();
+	}
+	
+	/**
+	 * <p>
+	 *     内容类型为 contentType、大小为 objectSize(<em>-1 表示未知</em>)的对象是否需要压缩.
+	 * </p>
+	 */
+	boolean accepts(String contentType, long objectSize) {
+		if (objectSize != -1 && objectSize < this.minSize) {
+			return false;
+		}
+		MimeType mimeType;
+		try {
+			mimeType = MimeTypeUtils.parseMimeType(contentType);
+		} catch (InvalidMimeTypeException e) {
+			return false;
+		}
+		for (MimeType pattern : this.contentTypes) {
+			if (pattern.includes(mimeType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * <p>
+	 *     返回读取 source 压缩结果的流, 关闭它时一并关闭 source.
+	 * </p>
+	 */
+	InputStream compress(InputStream source) {
+		ExposedBuffer buffer = new ExposedBuffer();
+		try {
+			OutputStream encoder = GZIP.equals(this.algorithm) ? new LeveledGZIPOutputStream(buffer, this.level) : Zstd.encoder(buffer, this.level);
+			return new EncodingInputStream(source, buffer, encoder);
+		} catch (IOException e) {
+			// 压缩器只向堆内存中的缓冲区写入, 实际上不会失败.
+			throw new UncheckedIOException(e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     压缩后的对象的请求头: Content-Encoding 以及记录压缩算法与压缩前大小的用户元数据.
+	 * </p>
+	 *
+	 * @param objectSize 压缩前的大小, -1 表示未知.
+	 */
+	Map<String, String> headers(long objectSize) {
+		Map<String, String> headers = new HashMap<>(4);
+		headers.put("Content-Encoding", this.algorithm);
+		headers.put(METADATA_PREFIX + ENCODING_METADATA, this.algorithm);
+		if (objectSize != -1) {
+			headers.put(METADATA_PREFIX + SIZE_METADATA, Long.toString(objectSize));
+		}
+		return headers;
+	}
+	
+	/**
+	 * <p>
+	 *     由本组件压缩的对象的压缩算法, 其他对象返回 null.
+	 * </p>
+	 */
+	static String encodingOf(Headers headers) {
+		String encoding = headers.get(METADATA_PREFIX + ENCODING_METADATA);
+		return GZIP.equals(encoding) || ZSTD.equals(encoding) ? encoding : null;
+	}
+	
+	/**
+	 * <p>
+	 *     以 encoding 解压 stream, encoding 为 null 时原样返回. 关闭返回的流时一并关闭 stream.
+	 * </p>
+	 */
+	static InputStream decode(String encoding, InputStream stream) throws IOException {
+		if (encoding == null) {
+			return stream;
+		}
+		if (ZSTD.equals(encoding) && !ZSTD_PRESENT) {
+			stream.close();
+			throw new IllegalStateException("The object is compressed with zstd, but com.github.luben:zstd-jni is not on the classpath");
+		}
+		try {
+			return GZIP.equals(encoding) ? new GZIPInputStream(stream, CHUNK_SIZE) : Zstd.decoder(stream);
+		} catch (IOException | RuntimeException e) {
+			stream.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * <h2>可以直接访问内部数组的字节数组输出流</h2>
+	 */
+	private static final class ExposedBuffer
+			extends ByteArrayOutputStream {
+		ExposedBuffer() {
+			super(CHUNK_SIZE);
+		}
+		
+		byte[] array() {
+			return super.buf;
+		}
+	}
+	
+	/**
+	 * <h2>可以指定压缩级别的 GZIP 输出流</h2>
+	 */
+	private static final class LeveledGZIPOutputStream
+			extends GZIPOutputStream {
+		LeveledGZIPOutputStream(OutputStream out, Integer level) throws IOException {
+			super(out, CHUNK_SIZE);
+			if (level != null) {
+				super.def.setLevel(level);
+			}
+		}
+	}
+	
+	/**
+	 * <h2>拉取式的压缩流</h2>
+	 * <p>
+	 *     已压缩的字节读完时才从源流读取下一块, 写入压缩器后产生的压缩结果暂存在 {@link #encoded} 中.
+	 * </p>
+	 */
+	private static final class EncodingInputStream
+			extends InputStream {
+		private final InputStream source;
+		private final ExposedBuffer encoded;
+		private final OutputStream encoder;
+		private final byte[] chunk = new byte[CHUNK_SIZE];
+		private int position;
+		private boolean finished;
+		
+		EncodingInputStream(InputStream source, ExposedBuffer encoded, OutputStream encoder) {
+			this.source = source;
+			this.encoded = encoded;
+			this.encoder = encoder;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return this.read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			Objects.checkFromIndexSize(offset, length, bytes.length);
+			if (length == 0) {
+				return 0;
+			}
+			// 压缩器可能暂不输出任何字节(如 GZIP 在缓冲区满之前), 需要持续读取源流直到有输出或源流结束.
+			while (this.position == this.encoded.size()) {
+				if (this.finished) {
+					return -1;
+				}
+				this.fill();
+			}
+			int count = Math.min(length, this.encoded.size() - this.position);
+			System.arraycopy(this.encoded.array(), this.position, bytes, offset, count);
+			this.position += count;
+			return count;
+		}
+		
+		private void fill() throws IOException {
+			this.encoded.reset();
+			this.position = 0;
+			int count = this.source.read(this.chunk);
+			if (count == -1) {
+				this.encoder.close();
+				this.finished = true;
+			} else {
+				this.encoder.write(this.chunk, 0, count);
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try (this.source) {
+				if (!this.finished) {
+					// 释放压缩器占用的本地内存.
+					this.finished = true;
+					this.encoder.close();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * <h2>zstd 的编解码器</h2>
+	 * <p>
+	 *     隔离对 zstd-jni 的引用, 只有在实际使用 zstd 时才会加载.
+	 * </p>
+	 */
+	private static final class Zstd {
+		static OutputStream encoder(OutputStream out, Integer level) throws IOException {
+			ZstdOutputStreamNoFinalizer encoder = new ZstdOutputStreamNoFinalizer(out);
+			if (level != null) {
+				encoder.setLevel(level);
+			}
+			return encoder;
+		}
+		
+		static InputStream decoder(InputStream in) throws IOException {
+			return new ZstdInputStreamNoFinalizer(in);
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package indi.ly.crush.helper;
+
+import org.apache.tika.Tika;
+import org.apache.tika.mime.MediaType;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * <h2>内容类型识别器</h2>
+ * <p>
+ *     按以下顺序识别内容类型, 命中即返回:
+ *     <ol>
+ *         <li>常见类型(<em>JPEG、PNG、GIF、PDF、MP4、ZIP</em>)的魔数表, 只比较开头的若干字节.</li>
+ *         <li>以扩展名与开头 {@link #MAGIC_LENGTH} 个字节为键的识别结果缓存.</li>
+ *         <li>Tika 对内容前缀与名称的综合识别, 内容无法识别时以名称中的扩展名为准.</li>
+ *     </ol>
+ *     文本与 XML 类型取决于开头 {@link #MAGIC_LENGTH} 个字节之后的内容(<em>如是否出现二进制字节、XML 的根元素</em>),
+ *     同一个键可能对应不同的结果, 因此不缓存. <br />
+ *
+ *     {@link Tika} 实例与缓存都是线程安全的, 且读取缓存时没有锁竞争.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class ContentTypeDetector {
+	private final Tika tika = new Tika();
+	/**
+	 * <p>
+	 *     识别结果缓存, 以 CLOCK 算法近似 LRU 地淘汰.
+	 * </p>
+	 */
+	private final ClockCache<String, String> cache;
+	/**
+	 * <p>
+	 *     作为缓存键的一部分的开头字节数.
+	 * </p>
+	 */
+	private static final int MAGIC_LENGTH = 16;
+	private static final HexFormat HEX_FORMAT = HexFormat.of();
+	private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+	private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	private static final byte[] GIF = {'G', 'I', 'F', '8'};
+	private static final byte[] PDF = {'%', 'P', 'D', 'F', '-'};
+	private static final byte[] ZIP = {'P', 'K', 0x03, 0x04};
+	private static final byte[] FTYP = {'f', 't', 'y', 'p'};
+	/**
+	 * <p>
+	 *     识别为 video/mp4 的 ftyp 主品牌, 其他品牌(<em>如 AVIF、HEIF、CR3、3GPP</em>)交由 Tika 识别.
+	 * </p>
+	 */
+	private static final Set<String> MP4_BRANDS = Set.of("isom", "iso2", "mp41", "mp42", "avc1", "dash", "M4V ");
+	
+	ContentTypeDetector(int cacheSize) {
+		this.cache = new ClockCache<>(cacheSize);
+	}
+	
+	/**
+	 * <p>
+	 *     识别内容类型.
+	 * </p>
+	 *
+	 * @param head   内容的前缀.
+	 * @param length 前缀中有效的字节数.
+	 * @param name   内容的名称(<em>如文件名或在桶中的位置</em>), 用于提供扩展名线索, 可以为 null.
+	 * @return 内容类型, 无法识别时为 {@link MediaType#OCTET_STREAM}.
+	 */
+	String detect(byte[] head, int length, String name) {
+		String extension = extensionOf(name);
+		String contentType = this.detectMagic(head, length, extension);
+		if (contentType != null) {
+			return contentType;
+		}
+		
+		String key = extension + ':' + HEX_FORMAT.formatHex(head, 0, Math.min(length, MAGIC_LENGTH));
+		contentType = this.cache.get(key);
+		if (contentType != null) {
+			return contentType;
+		}
+		
+		contentType = this.tika.detect(length == head.length ? head : Arrays.copyOf(head, length), name);
+		if (!isPrefixAmbiguous(contentType)) {
+			this.cache.put(key, contentType);
+		}
+		return contentType;
+	}
+	
+	/**
+	 * <p>
+	 *     识别结果是否可能随着开头 {@link #MAGIC_LENGTH} 个字节之后的内容而变化.
+	 *     Tika 只在整个前缀看起来都是文本时得出文本类型, 无法识别时得出 {@link MediaType#OCTET_STREAM},
+	 *     XML 的具体类型则取决于根元素.
+	 * </p>
+	 */
+	private static boolean isPrefixAmbiguous(String contentType) {
+		return contentType.startsWith("text/")
+					   || contentType.equals(MediaType.APPLICATION_XML.toString())
+					   || contentType.endsWith("+xml")
+					   || contentType.equals(MediaType.OCTET_STREAM.toString());
+	}
+	
+	private String detectMagic(byte[] head, int length, String extension) {
+		if (startsWith(head, length, 0, JPEG)) {
+			return "image/jpeg";
+		}
+		if (startsWith(head, length, 0, PNG)) {
+			return "image/png";
+		}
+		if (startsWith(head, length, 0, GIF)) {
+			return "image/gif";
+		}
+		if (startsWith(head, length, 0, PDF)) {
+			return "application/pdf";
+		}
+		if (startsWith(head, length, 4, FTYP) && length >= 12) {
+			String brand = new String(head, 8, 4, StandardCharsets.US_ASCII);
+			return switch (brand) {
+				case "qt  " -> "video/quicktime";
+				case "M4A " -> "audio/mp4";
+				default -> MP4_BRANDS.contains(brand) ? "video/mp4" : null;
+			};
+		}
+		if (startsWith(head, length, 0, ZIP) && extension.isEmpty()) {
+			// 带扩展名的 ZIP 容器(docx、jar、apk 等)交由后续步骤区分.
+			return "application/zip";
+		}
+		return null;
+	}
+	
+	private static boolean startsWith(byte[] head, int length, int offset, byte[] magic) {
+		if (length < offset + magic.length) {
+			return false;
+		}
+		for (int i = 0; i < magic.length; i++) {
+			if (head[offset + i] != magic[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static String extensionOf(String name) {
+		String extension = StringUtils.getFilenameExtension(name);
+		return extension == null ? "" : extension.toLowerCase(Locale.ROOT);
+	}
+}
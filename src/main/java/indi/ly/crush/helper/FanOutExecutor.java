@@ -0,0 +1,155 @@
+package indi.ly.crush.helper;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h2>扇出执行器</h2>
+ * <p>
+ *     在多个线程上执行一组阻塞的对象操作(<em>如各个字节范围、各个删除批次、各个前缀的列举</em>), 全部完成后返回:
+ *     <ol>
+ *         <li>虚拟线程模式下每个操作一个虚拟线程; 否则每次扇出创建至多 parallelism 个平台线程.</li>
+ *         <li>无论哪种模式, 同一执行器上同时进行的操作都不超过 {@link #permits} 的许可数, 即 OkHttp 连接池的大小,
+ *         避免大量线程同时等待连接.</li>
+ *         <li>任一操作失败时中断其余操作, 并将失败的原因原样抛出.</li>
+ *     </ol>
+ *     项目以 Java 17 编译, 虚拟线程的执行器(<em>Java 21 起正式提供</em>)经由反射获取, 运行时不支持时退回平台线程.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class FanOutExecutor {
+	private final boolean virtualThreads;
+	private final Semaphore permits;
+	private static final Log LOGGER = LogFactory.getLog(FanOutExecutor.class);
+	/**
+	 * <p>
+	 *     Executors#newVirtualThreadPerTaskExecutor(), 运行时没有此方法时为 null.
+	 * </p>
+	 */
+	private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = virtualThreadFactoryMethod();
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+	
+	/**
+	 * @param virtualThreads 是否使用虚拟线程, 运行时不支持时忽略并记录警告.
+	 * @param maxConcurrency 同时进行的操作的上限.
+	 */
+	FanOutExecutor(boolean virtualThreads, int maxConcurrency) {
+		this.virtualThreads = virtualThreads && isVirtualThreadSupported();
+		if (virtualThreads && !this.virtualThreads && LOGGER.isWarnEnabled()) {
+			LOGGER.warn("Virtual threads are not supported by Java " + Runtime.version() + ", falling back to platform threads");
+		}
+		this.permits = new Semaphore(maxConcurrency);
+	}
+	
+	boolean isVirtualThreads() {
+		return this.virtualThreads;
+	}
+	
+	/**
+	 * <p>
+	 *     执行 tasks 中的全部操作, 返回与之一一对应的结果.
+	 * </p>
+	 *
+	 * @param tasks       要执行的操作.
+	 * @param parallelism 平台线程模式下的线程数上限, 虚拟线程模式下忽略.
+	 * @return 各个操作的结果, 顺序与 tasks 一致.
+	 * @throws Exception 任一操作失败时.
+	 */
+	<T> List<T> invokeAll(List<? extends Callable<T>> tasks, int parallelism) throws Exception {
+		if (tasks.isEmpty()) {
+			return List.of();
+		}
+		if (tasks.size() == 1) {
+			return List.of(this.call(tasks.get(0)));
+		}
+		
+		ExecutorService executor = this.newExecutor(Math.min(parallelism, tasks.size()));
+		List<Future<T>> futures = new ArrayList<>(tasks.size());
+		try {
+			for (Callable<T> task : tasks) {
+				futures.add(executor.submit(() -> this.call(task)));
+			}
+			
+			List<T> results = new ArrayList<>(tasks.size());
+			for (Future<T> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					throw (e.getCause() instanceof Exception cause ? cause : e);
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private <T> T call(Callable<T> task) throws Exception {
+		this.permits.acquire();
+		try {
+			return task.call();
+		} finally {
+			this.permits.release();
+		}
+	}
+	
+	private ExecutorService newExecutor(int threads) {
+		if (this.virtualThreads) {
+			ExecutorService executor = newVirtualThreadExecutor();
+			if (executor != null) {
+				return executor;
+			}
+		}
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "minio-fan-out-" + THREAD_NUMBER.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     运行时是否支持虚拟线程. Java 19 与 20 中虚拟线程是预览特性, 未启用预览时创建执行器会失败, 因此实际创建一次来判断.
+	 * </p>
+	 */
+	static boolean isVirtualThreadSupported() {
+		ExecutorService executor = newVirtualThreadExecutor();
+		if (executor == null) {
+			return false;
+		}
+		executor.shutdown();
+		return true;
+	}
+	
+	private static ExecutorService newVirtualThreadExecutor() {
+		if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+			return null;
+		}
+		try {
+			return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+	
+	private static Method virtualThreadFactoryMethod() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
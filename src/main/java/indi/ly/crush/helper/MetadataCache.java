@@ -0,0 +1,137 @@
+package indi.ly.crush.helper;
+
+import io.minio.StatObjectResponse;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * <h2>元数据缓存</h2>
+ * <p>
+ *     对象元数据的缓存, 以 CLOCK 算法近似 LRU 地淘汰, 最多缓存 capacity 个条目:
+ *     <ol>
+ *         <li>存在的对象缓存 {@link #ttlNanos} 纳秒, 不存在的对象(<em>负结果</em>)缓存 {@link #negativeTtlNanos} 纳秒.</li>
+ *         <li>同一对象的并发查询共享同一个进行中的请求, 即使容量为 0 也是如此.</li>
+ *         <li>{@link #invalidate(String)} 同时丢弃条目与进行中的请求, 在失效之前发起的请求返回后不会写入缓存.</li>
+ *     </ol>
+ *     查询不加锁; 写入与失效按 key 的哈希值分段加锁, 只有同一段内的写入与失效之间互斥.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class MetadataCache {
+	private final long ttlNanos;
+	private final long negativeTtlNanos;
+	private final ClockCache<String, Entry> entries;
+	private final Map<String, CompletableFuture<Optional<StatObjectResponse>>> inFlight = new ConcurrentHashMap<>();
+	/**
+	 * <p>
+	 *     分段锁, 使 {@link #put} 中对进行中的请求的检查与条目的写入, 不会与同一 key 的 {@link #invalidate(String)} 交错.
+	 * </p>
+	 */
+	private final Object[] stripes = new Object[STRIPES];
+	private static final int STRIPES = 16;
+	
+	MetadataCache(int capacity, long ttlNanos, long negativeTtlNanos) {
+		this.entries = new ClockCache<>(capacity);
+		this.ttlNanos = ttlNanos;
+		this.negativeTtlNanos = negativeTtlNanos;
+		for (int i = 0; i < STRIPES; i++) {
+			this.stripes[i] = new Object();
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     获取 key 对应的元数据, 缓存未命中且没有进行中的请求时由 loader 发起请求.
+	 * </p>
+	 *
+	 * @param key    对象在桶中的位置.
+	 * @param loader 发起请求, 对象不存在时以空的 {@link Optional} 完成.
+	 * @return 一个得到对象元数据的 {@link CompletableFuture}.
+	 */
+	CompletableFuture<Optional<StatObjectResponse>> get(String key, Function<String, CompletableFuture<Optional<StatObjectResponse>>> loader) {
+		Entry entry = this.lookup(key);
+		if (entry != null) {
+			return CompletableFuture.completedFuture(Optional.ofNullable(entry.stat));
+		}
+		
+		CompletableFuture<Optional<StatObjectResponse>> future = new CompletableFuture<>();
+		CompletableFuture<Optional<StatObjectResponse>> existing = this.inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			return existing.copy();
+		}
+		
+		CompletableFuture<Optional<StatObjectResponse>> loading;
+		try {
+			loading = loader.apply(key);
+		} catch (RuntimeException e) {
+			loading = CompletableFuture.failedFuture(e);
+		}
+		loading.whenComplete((stat, throwable) -> {
+			if (throwable == null) {
+				this.put(key, future, stat.orElse(null));
+				future.complete(stat);
+			} else {
+				this.inFlight.remove(key, future);
+				future.completeExceptionally(throwable);
+			}
+		});
+		return future.copy();
+	}
+	
+	/**
+	 * <p>
+	 *     丢弃 key 对应的条目与进行中的请求, 在同一助手上传或删除该对象后调用.
+	 * </p>
+	 */
+	void invalidate(String key) {
+		synchronized (this.stripeOf(key)) {
+			this.inFlight.remove(key);
+			this.entries.remove(key);
+		}
+	}
+	
+	private Entry lookup(String key) {
+		Entry entry = this.entries.get(key);
+		if (entry != null && System.nanoTime() - entry.expiresAt >= 0) {
+			// 只移除读取到的条目, 期间写入的新条目不受影响.
+			this.entries.remove(key, entry);
+			return null;
+		}
+		return entry;
+	}
+	
+	/**
+	 * <p>
+	 *     请求返回后调用, 请求仍是 key 对应的进行中的请求(<em>即期间没有失效</em>)时才写入缓存.
+	 * </p>
+	 */
+	private void put(String key, CompletableFuture<Optional<StatObjectResponse>> future, StatObjectResponse stat) {
+		synchronized (this.stripeOf(key)) {
+			if (!this.inFlight.remove(key, future)) {
+				return;
+			}
+			long ttl = stat != null ? this.ttlNanos : this.negativeTtlNanos;
+			if (ttl > 0) {
+				this.entries.put(key, new Entry(stat, System.nanoTime() + ttl));
+			}
+		}
+	}
+	
+	private Object stripeOf(String key) {
+		return this.stripes[(key.hashCode() & Integer.MAX_VALUE) % STRIPES];
+	}
+	
+	/**
+	 * <h2>缓存条目</h2>
+	 *
+	 * @param stat      对象的元数据, 对象不存在时为 null.
+	 * @param expiresAt 过期时刻({@link System#nanoTime()}).
+	 */
+	private record Entry(StatObjectResponse stat, long expiresAt) {}
+}
@@ -0,0 +1,141 @@
+package indi.ly.crush.helper;
+
+import indi.ly.crush.exception.MinIoErrorResponseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.minio.errors.ErrorResponseException;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h2>基于 Micrometer 的 MinIo 指标</h2>
+ * <p>
+ *     记录以下指标:
+ *     <ol>
+ *         <li>minio.requests: 每个操作的耗时直方图, 以 operation、outcome、code(<em>S3 错误码或异常类名</em>)区分.</li>
+ *         <li>minio.errors: 每个操作的失败次数, 以 operation、code 区分.</li>
+ *         <li>minio.requests.active: 每个操作正在进行中的数量.</li>
+ *         <li>minio.retries: 每个操作的重试次数.</li>
+ *         <li>minio.bytes: 每个操作传输的字节数.</li>
+ *         <li>minio.detect: 内容类型识别的耗时.</li>
+ *         <li>minio.http.connections、minio.http.calls: 共享的 {@link OkHttpClient} 的连接池与调度器状态.</li>
+ *     </ol>
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+public class MicrometerMinIoMetrics
+		implements MinIoMetrics {
+	private final MeterRegistry registry;
+	private final Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+	private final Timer detectTimer;
+	private static final String NONE = "None";
+	
+	public MicrometerMinIoMetrics(MeterRegistry registry) {
+		this.registry = registry;
+		this.detectTimer = Timer
+								.builder("minio.detect")
+								.description("Time spent detecting the content type of uploaded files")
+								.register(registry);
+	}
+	
+	/**
+	 * <p>
+	 *     注册 httpClient 的连接池与调度器状态的指标.
+	 * </p>
+	 *
+	 * @param httpClient MinIO 客户端使用的 {@link OkHttpClient}.
+	 */
+	public void bindHttpClient(OkHttpClient httpClient) {
+		ConnectionPool pool = httpClient.connectionPool();
+		Gauge.builder("minio.http.connections", pool, ConnectionPool :: idleConnectionCount).tag("state", "idle").register(this.registry);
+		Gauge.builder("minio.http.connections", pool, ConnectionPool :: connectionCount).tag("state", "total").register(this.registry);
+		
+		Dispatcher dispatcher = httpClient.dispatcher();
+		Gauge.builder("minio.http.calls", dispatcher, Dispatcher :: runningCallsCount).tag("state", "running").register(this.registry);
+		Gauge.builder("minio.http.calls", dispatcher, Dispatcher :: queuedCallsCount).tag("state", "queued").register(this.registry);
+	}
+	
+	@Override
+	public Sample start(String operation) {
+		AtomicInteger inFlight = this.active.computeIfAbsent(operation, key -> this.registry.gauge(
+				"minio.requests.active", Tags.of("operation", key), new AtomicInteger()));
+		inFlight.incrementAndGet();
+		long startTime = System.nanoTime();
+		return throwable -> {
+			long duration = System.nanoTime() - startTime;
+			inFlight.decrementAndGet();
+			
+			String code = throwable == null ? NONE : codeOf(throwable);
+			Timer
+				.builder("minio.requests")
+				.tags("operation", operation, "outcome", throwable == null ? "SUCCESS" : "ERROR", "code", code)
+				.publishPercentileHistogram()
+				.register(this.registry)
+				.record(duration, TimeUnit.NANOSECONDS);
+			if (throwable != null) {
+				Counter
+					.builder("minio.errors")
+					.tags("operation", operation, "code", code)
+					.register(this.registry)
+					.increment();
+			}
+		};
+	}
+	
+	@Override
+	public void recordBytes(String operation, long bytes) {
+		DistributionSummary
+						.builder("minio.bytes")
+						.baseUnit("bytes")
+						.tag("operation", operation)
+						.register(this.registry)
+						.record(bytes);
+	}
+	
+	@Override
+	public void recordDetection(long nanos) {
+		this.detectTimer.record(nanos, TimeUnit.NANOSECONDS);
+	}
+	
+	@Override
+	public void recordRetry(String operation) {
+		Counter
+			.builder("minio.retries")
+			.tag("operation", operation)
+			.register(this.registry)
+			.increment();
+	}
+	
+	/**
+	 * <p>
+	 *     沿异常链查找 S3 错误码, 找不到时以最内层异常的类名代替.
+	 * </p>
+	 */
+	private static String codeOf(Throwable throwable) {
+		Throwable current = throwable;
+		while (true) {
+			if (current instanceof ErrorResponseException e && e.errorResponse() != null) {
+				return e.errorResponse().code();
+			}
+			if (current instanceof MinIoErrorResponseException e && e.getCode() == null) {
+				return "HTTP " + e.getStatus();
+			}
+			if (current.getCause() == null || current.getCause() == current) {
+				return current.getClass().getSimpleName();
+			}
+			current = current.getCause();
+		}
+	}
+}
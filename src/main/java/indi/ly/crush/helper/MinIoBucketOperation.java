@@ -1,6 +1,7 @@
 package indi.ly.crush.helper;
 
 import indi.ly.crush.autoconfigure.MinIoProperties;
+import indi.ly.crush.exception.MinIoException;
 import io.minio.BucketExistsArgs;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioAsyncClient;
@@ -9,6 +10,7 @@ import io.minio.SetBucketPolicyArgs;
 import io.minio.messages.Bucket;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
@@ -19,9 +21,13 @@ import org.springframework.lang.NonNull;
 import org.springframework.util.StreamUtils;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -40,6 +46,7 @@ class MinIoBucketOperation
 	protected final String bucketName;
 	private final Boolean bucketPolicy;
 	private final String policyLocation;
+	private final Boolean makeBucket;
 	protected final Log logger = LogFactory.getLog(this.getClass());
 	/**
 	 * <p>
@@ -79,12 +86,42 @@ class MinIoBucketOperation
 		""";
 	private static final String JSON_SUFFIX = ".json";
 	private ResourcePatternResolver resourcePatternResolver;
+	/**
+	 * <p>
+	 *     指标记录器, 容器中存在 {@link MinIoMetrics} Bean 时由容器注入.
+	 * </p>
+	 */
+	protected MinIoMetrics metrics = MinIoMetrics.NOOP;
+	/**
+	 * <p>
+	 *     幂等操作的重试策略, 每次重试记录于 {@link #metrics}.
+	 * </p>
+	 */
+	protected final RetryPolicy retryPolicy;
 	
 	public MinIoBucketOperation(MinioClient minioClient, MinioAsyncClient minioAsyncClient, MinIoProperties properties) {
+		this(minioClient, minioAsyncClient, properties, Objects.requireNonNull(properties, "properties is null").getBucketName());
+	}
+	
+	/**
+	 * <p>
+	 *     操作 bucketName 桶而不是 properties 中配置的桶, 其余配置仍取自 properties.
+	 * </p>
+	 */
+	public MinIoBucketOperation(MinioClient minioClient, MinioAsyncClient minioAsyncClient, MinIoProperties properties, String bucketName) {
+		this(minioClient, minioAsyncClient, properties, bucketName, new RetryPolicy.Budget(Objects.requireNonNull(properties, "properties is null").getRetry()));
+	}
+	
+	/**
+	 * <p>
+	 *     重试消耗 retryBudget, 其与操作同一部署中其他桶的实例共享.
+	 * </p>
+	 */
+	MinIoBucketOperation(MinioClient minioClient, MinioAsyncClient minioAsyncClient, MinIoProperties properties, String bucketName, RetryPolicy.Budget retryBudget) {
 		this.minioClient = Objects.requireNonNull(minioClient, "minioClient is null");
 		this.minioAsyncClient = Objects.requireNonNull(minioAsyncClient, "minioAsyncClient is null");
 		this.endpoint = Objects.requireNonNull(properties.getEndpoint(), "endpoint is null");
-		this.bucketName = Objects.requireNonNull(properties, "properties is null").getBucketName();
+		this.bucketName = Objects.requireNonNull(bucketName, "bucketName is null");
 		this.region = properties.getRegion();
 		this.bucketPolicy = properties.getBucketPolicy();
 		
@@ -98,6 +135,7 @@ class MinIoBucketOperation
 		}
 		this.policyLocation = policyLocation;
 		this.makeBucket = properties.getMakeBucket();
+		this.retryPolicy = new RetryPolicy(properties.getRetry(), retryBudget, operation -> this.metrics.recordRetry(operation));
 		
 		if (this.logger.isDebugEnabled()) {
 			this.logger.debug(properties);
@@ -105,11 +143,7 @@ class MinIoBucketOperation
 	}
 	
 	protected List<Bucket> listBuckets(){
-		try {
-			return this.minioClient.listBuckets();
-		} catch (Exception e) {
-			throw new RuntimeException(e.getMessage(), e);
-		}
+		return this.observe("bucket.list", () -> this.retry("bucket.list", this.minioClient :: listBuckets));
 	}
 	
 	private Boolean bucketExists() {
@@ -118,11 +152,7 @@ class MinIoBucketOperation
 											.bucket(this.bucketName)
 											.region(this.region)
 											.build();
-		try {
-			return this.minioClient.bucketExists(args);
-		} catch (Exception e) {
-			throw new RuntimeException(e.getMessage(), e);
-		}
+		return this.observe("bucket.exists", () -> this.retry("bucket.exists", () -> this.minioClient.bucketExists(args)));
 	}
 	
 	private void makeBucket(){
@@ -138,8 +168,15 @@ class MinIoBucketOperation
 										.build();
 		String permission = "custom";
 		try {
-			// 创建好的桶的访问权限默认是 private.
-			this.minioClient.makeBucket(args);
+			// 创建好的桶的访问权限默认是 private. 重复创建会失败, 因此不重试.
+			this.observe("bucket.make", () -> {
+				try {
+					this.minioClient.makeBucket(args);
+				} catch (Exception e) {
+					throw MinIoException.translate(e);
+				}
+				return null;
+			});
 			
 			if (this.policyLocation != null) {
 				Resource resource = this.resourcePatternResolver.getResource(this.policyLocation);
@@ -158,8 +195,8 @@ class MinIoBucketOperation
 					traceOn -> LogFormatUtils.formatValue(
 							"MinIo bucket with name '%s' created successfully, There is a '%s' permission".formatted(
 									this.bucketName, finalPermission), !traceOn));
-		} catch (Exception e) {
-			throw new RuntimeException(e.getMessage(), e);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e.getMessage(), e);
 		}
 	}
 	
@@ -170,11 +207,10 @@ class MinIoBucketOperation
 												.region(this.region)
 												.config(policyJson)
 												.build();
-		try {
+		this.observe("bucket.policy", () -> this.retry("bucket.policy", () -> {
 			this.minioClient.setBucketPolicy(args);
-		} catch (Exception e) {
-			throw new RuntimeException(e.getMessage(), e);
-		}
+			return null;
+		}));
 	}
 	
 	@PostConstruct
@@ -192,6 +228,58 @@ class MinIoBucketOperation
 							LogFormatUtils.formatValue(buckets.isEmpty() ? "[]" : messageSupplier.get(), !traceOn)));
 		}
 	}
+	
+	/**
+	 * <p>
+	 *     执行一个同步操作, 并向 {@link #metrics} 记录其耗时与结果.
+	 * </p>
+	 */
+	protected <T> T observe(String operation, Supplier<T> action) {
+		MinIoMetrics.Sample sample = this.metrics.start(operation);
+		try {
+			T result = action.get();
+			sample.stop(null);
+			return result;
+		} catch (RuntimeException | Error e) {
+			sample.stop(e);
+			throw e;
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     按 {@link #retryPolicy} 执行一个幂等的操作, 最终失败时抛出由 {@link MinIoException#translate(Throwable)} 转换的异常.
+	 * </p>
+	 */
+	protected <T> T retry(String operation, Callable<T> action) {
+		try {
+			return this.retryPolicy.call(operation, action);
+		} catch (Exception e) {
+			throw MinIoException.translate(e);
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     发起一个异步操作, 并在其完成时向 {@link #metrics} 记录其耗时与结果.
+	 * </p>
+	 */
+	protected <T> CompletableFuture<T> observeAsync(String operation, Supplier<CompletableFuture<T>> action) {
+		MinIoMetrics.Sample sample = this.metrics.start(operation);
+		CompletableFuture<T> future;
+		try {
+			future = action.get();
+		} catch (RuntimeException e) {
+			future = CompletableFuture.failedFuture(e);
+		}
+		return future.whenComplete((result, throwable) -> sample.stop(throwable));
+	}
+	
+	@Autowired(required = false)
+	public void setMetrics(MinIoMetrics metrics) {
+		this.metrics = Objects.requireNonNull(metrics, "metrics is null");
+	}
+	
 	@Override
 	public void setResourceLoader(@NonNull ResourceLoader resourceLoader) {
 		this.resourcePatternResolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
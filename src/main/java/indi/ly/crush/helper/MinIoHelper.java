@@ -1,31 +1,84 @@
 package indi.ly.crush.helper;
 
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.io.CountingInputStream;
 import indi.ly.crush.autoconfigure.MinIoProperties;
+import indi.ly.crush.exception.MinIoException;
+import indi.ly.crush.exception.MinIoNotFoundException;
+import indi.ly.crush.model.PresignedPostForm;
 import indi.ly.crush.model.UploadResultResponse;
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.GetPresignedObjectUrlArgs;
 import io.minio.ListObjectsArgs;
 import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import io.minio.ObjectWriteArgs;
 import io.minio.ObjectWriteResponse;
+import io.minio.PostPolicy;
 import io.minio.PutObjectArgs;
 import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
 import io.minio.SnowballObject;
-import io.minio.UploadSnowballObjectsArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.credentials.Credentials;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.ServerException;
+import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
-import org.apache.tika.Tika;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
 import org.apache.tika.mime.MediaType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
-import org.springframework.util.StreamUtils;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.LinkedList;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <h2>MinIo 助手</h2>
@@ -37,11 +90,251 @@ import java.util.function.Predicate;
 public class MinIoHelper
 		extends MinIoBucketOperation {
 	final String prefix;
-	final Tika tika = new Tika();
+	/**
+	 * <p>
+	 *     共享的内容类型识别器, 比 HttpURLConnection.guessContentTypeFromStream(stream); 可靠.
+	 * </p>
+	 */
+	final ContentTypeDetector contentTypeDetector;
+	/**
+	 * <p>
+	 *     上传时的内容压缩器, 未启用压缩时为 null.
+	 * </p>
+	 */
+	private final ContentCompressor compressor;
+	/**
+	 * <p>
+	 *     对象不存在时 S3 返回的错误码.
+	 * </p>
+	 */
+	private static final String NO_SUCH_KEY = "NoSuchKey";
+	/**
+	 * <p>
+	 *     分片上传时每个分片的大小(<em>字节</em>).
+	 * </p>
+	 */
+	private final long partSize;
+	/**
+	 * <p>
+	 *     识别内容类型时最多读取的流的前缀字节数.
+	 * </p>
+	 */
+	private final int detectLimit;
+	/**
+	 * <p>
+	 *     未知长度的流以及本地文件的分片上传器.
+	 * </p>
+	 */
+	private final MultipartUploader multipartUploader;
+	/**
+	 * <p>
+	 *     与 {@link #minioAsyncClient} 共享 HTTP 客户端的原语客户端.
+	 * </p>
+	 */
+	private final MinIoRawAsyncClient rawAsyncClient;
+	/**
+	 * <p>
+	 *     Snowball 批量上传器.
+	 * </p>
+	 */
+	private final SnowballUploader snowballUploader;
+	/**
+	 * <p>
+	 *     下载的读穿透缓存, 未启用时为 null.
+	 * </p>
+	 */
+	private final ObjectCache objectCache;
+	/**
+	 * <p>
+	 *     {@link #objectCache}、{@link #metadataCache} 与重试预算的持有者, 以及是否由本助手负责关闭.
+	 * </p>
+	 */
+	final ClientResources resources;
+	private final boolean ownsResources;
+	/**
+	 * <p>
+	 *     缓存条目的新鲜期(<em>纳秒</em>).
+	 * </p>
+	 */
+	private final long cacheTtlNanos;
+	/**
+	 * <p>
+	 *     大对象的分段下载器.
+	 * </p>
+	 */
+	private final RangedDownloader rangedDownloader;
+	/**
+	 * <p>
+	 *     扇出操作的执行器, 以及平台线程模式下每次扇出的线程数上限.
+	 * </p>
+	 */
+	private final FanOutExecutor fanOut;
+	private final int fanOutParallelism;
+	/**
+	 * <p>
+	 *     对象元数据的缓存, 同一对象的并发查询合并为一次请求.
+	 * </p>
+	 */
+	private final MetadataCache metadataCache;
+	/**
+	 * <p>
+	 *     预签名 URL 的缓存.
+	 * </p>
+	 */
+	private final PresignedUrlCache presignedUrlCache;
+	/**
+	 * <p>
+	 *     预签名 URL 的签名器, 上传分片的 URL 不经过缓存, 直接由其签名.
+	 * </p>
+	 */
+	private final PresignedUrlCache.Signer presigner;
+	/**
+	 * <p>
+	 *     签名使用的区域.
+	 * </p>
+	 */
+	private final String signingRegion;
+	/**
+	 * <p>
+	 *     在本地为 POST 策略签名的凭证, presign.localSigning 为 false 时为 null.
+	 * </p>
+	 */
+	private final Credentials signingCredentials;
+	/**
+	 * <p>
+	 *     未配置区域时用于签名的区域, 与 MinIO 服务器的默认区域一致.
+	 * </p>
+	 */
+	private static final String DEFAULT_REGION = "us-east-1";
+	/**
+	 * <p>
+	 *     一个 DeleteObjects 请求最多携带的位置数.
+	 * </p>
+	 */
+	private static final int MAX_DELETE_OBJECTS = 1000;
 	
+	@Autowired
 	public MinIoHelper(MinioClient minioClient, MinioAsyncClient minioAsyncClient, MinIoProperties properties) {
-		super(minioClient, minioAsyncClient, properties);
+		this(minioClient, minioAsyncClient, properties, properties.getBucketName());
+	}
+	
+	/**
+	 * <p>
+	 *     操作 bucketName 桶而不是 properties 中配置的桶, 其余配置仍取自 properties. 可以与其他实例共享同一对客户端.
+	 * </p>
+	 *
+	 * @see MinIoHelperRegistry#helper(String, String)
+	 */
+	public MinIoHelper(MinioClient minioClient, MinioAsyncClient minioAsyncClient, MinIoProperties properties, String bucketName) {
+		this(minioClient, minioAsyncClient, properties, bucketName, new ClientResources(Objects.requireNonNull(properties, "properties is null")), true);
+	}
+	
+	/**
+	 * <p>
+	 *     与操作同一部署中其他桶的助手共享 resources(<em>对象缓存、元数据缓存与重试预算</em>).
+	 * </p>
+	 *
+	 * @param ownsResources 是否由本助手在销毁时关闭 resources.
+	 */
+	MinIoHelper(MinioClient minioClient, MinioAsyncClient minioAsyncClient, MinIoProperties properties, String bucketName,
+				ClientResources resources, boolean ownsResources) {
+		super(minioClient, minioAsyncClient, properties, bucketName, resources.retryBudget);
+		this.resources = resources;
+		this.ownsResources = ownsResources;
 		this.prefix = super.endpoint + '/' + super.bucketName;
+		
+		MinIoProperties.Upload upload = properties.getUpload();
+		this.partSize = upload.getPartSize().toBytes();
+		if (this.partSize < ObjectWriteArgs.MIN_MULTIPART_SIZE || this.partSize > ObjectWriteArgs.MAX_PART_SIZE) {
+			throw new IllegalArgumentException("'upload.partSize' must be between 5MB and 5GB, but it is " + upload.getPartSize());
+		}
+		this.detectLimit = Math.toIntExact(upload.getDetectLimit().toBytes());
+		if (this.detectLimit <= 0) {
+			throw new IllegalArgumentException("'upload.detectLimit' must be greater than 0, but it is " + upload.getDetectLimit());
+		}
+		int detectCacheSize = upload.getDetectCacheSize();
+		if (detectCacheSize < 0) {
+			throw new IllegalArgumentException("'upload.detectCacheSize' must not be negative, but it is " + detectCacheSize);
+		}
+		this.contentTypeDetector = new ContentTypeDetector(detectCacheSize);
+		MinIoProperties.Compression compression = properties.getCompression();
+		this.compressor = Boolean.TRUE.equals(compression.getEnabled()) ? new ContentCompressor(compression) : null;
+		int pipelineDepth = upload.getPipelineDepth();
+		if (pipelineDepth <= 0) {
+			throw new IllegalArgumentException("'upload.pipelineDepth' must be greater than 0, but it is " + pipelineDepth);
+		}
+		int concurrency = upload.getConcurrency();
+		if (concurrency <= 0) {
+			throw new IllegalArgumentException("'upload.concurrency' must be greater than 0, but it is " + concurrency);
+		}
+		int partRetries = upload.getPartRetries();
+		if (partRetries < 0) {
+			throw new IllegalArgumentException("'upload.partRetries' must not be negative, but it is " + partRetries);
+		}
+		
+		this.rawAsyncClient = new MinIoRawAsyncClient(minioAsyncClient);
+		this.multipartUploader = new MultipartUploader(
+				this.rawAsyncClient, super.bucketName, super.region, this.partSize, pipelineDepth, concurrency, partRetries, super.retryPolicy);
+		
+		MinIoProperties.Snowball snowball = properties.getSnowball();
+		if (snowball.getBatchCount() <= 0 || snowball.getConcurrency() <= 0) {
+			throw new IllegalArgumentException("'snowball.batchCount' and 'snowball.concurrency' must be greater than 0, but it is " + snowball);
+		}
+		if (Boolean.TRUE.equals(snowball.getHeapStaging()) && snowball.getStagingDirectory() != null) {
+			throw new IllegalArgumentException("'snowball.heapStaging' and 'snowball.stagingDirectory' are mutually exclusive, but it is " + snowball);
+		}
+		Path stagingDirectory = null;
+		if (!Boolean.TRUE.equals(snowball.getHeapStaging())) {
+			stagingDirectory = snowball.getStagingDirectory() != null
+									   ? Paths.get(snowball.getStagingDirectory())
+									   : Paths.get(System.getProperty("java.io.tmpdir"), "minio-snowball");
+		}
+		this.snowballUploader = new SnowballUploader(
+				minioAsyncClient, super.bucketName, super.region, snowball.getBatchSize().toBytes(), snowball.getBatchCount(),
+				snowball.getConcurrency(), snowball.getCompression(), stagingDirectory);
+		
+		MinIoProperties.Download download = properties.getDownload();
+		this.objectCache = resources.objectCache;
+		this.cacheTtlNanos = download.getCacheTtl().toNanos();
+		
+		MinIoProperties.Execution execution = properties.getExecution();
+		this.fanOutParallelism = execution.getMaxConcurrency() != null ? execution.getMaxConcurrency() : properties.getHttp().getMaxIdleConnections();
+		if (this.fanOutParallelism <= 0) {
+			throw new IllegalArgumentException("'execution.maxConcurrency' must be greater than 0, but it is " + this.fanOutParallelism);
+		}
+		this.fanOut = new FanOutExecutor(Boolean.TRUE.equals(execution.getVirtualThreads()), this.fanOutParallelism);
+		
+		long rangeSize = download.getRangeSize().toBytes();
+		if (rangeSize <= 0 || download.getRangeConcurrency() <= 0 || download.getRangeRetries() < 0) {
+			throw new IllegalArgumentException("'download.rangeSize' and 'download.rangeConcurrency' must be greater than 0 and 'download.rangeRetries' must not be negative, but it is " + download);
+		}
+		this.rangedDownloader = new RangedDownloader(
+				minioAsyncClient, super.bucketName, super.region, rangeSize, download.getRangeConcurrency(), download.getRangeRetries(), this.fanOut, super.retryPolicy);
+		
+		this.metadataCache = resources.metadataCache;
+		
+		MinIoProperties.Presign presign = properties.getPresign();
+		if (presign.getCacheSize() < 0 || presign.getReuseWindow().isNegative()) {
+			throw new IllegalArgumentException("'presign.cacheSize' and 'presign.reuseWindow' must not be negative, but it is " + presign);
+		}
+		// 提前确定签名使用的区域, 避免 MinIO 客户端为此查询桶的位置.
+		this.signingRegion = super.region != null ? super.region : DEFAULT_REGION;
+		if (Boolean.TRUE.equals(presign.getLocalSigning())) {
+			this.presigner = new SigV4Presigner(super.endpoint, super.bucketName, this.signingRegion, properties.getAccessKey(), properties.getSecretKey());
+			this.signingCredentials = new Credentials(properties.getAccessKey(), properties.getSecretKey(), null, null);
+		} else {
+			this.presigner = (method, object, expirySeconds, queryParams) -> minioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs
+																													.builder()
+																													.method(method)
+																													.bucket(super.bucketName)
+																													.region(this.signingRegion)
+																													.object(object)
+																													.expiry(expirySeconds)
+																													.extraQueryParams(queryParams)
+																													.build());
+			this.signingCredentials = null;
+		}
+		this.presignedUrlCache = new PresignedUrlCache(this.presigner, presign.getCacheSize(), presign.getReuseWindow().toSeconds());
 	}
 	
 	/**
@@ -58,26 +351,28 @@ public class MinIoHelper
 		Assert.notNull(inputStream, "stream is null");
 		Assert.state(StringUtils.hasLength(location), "location is not valid");
 		
+		// 只将流的前 detectLimit 个字节读入堆内存用于识别内容类型, 随后回退到标记处, 剩余内容原样流式上传.
+		InputStream stream = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream, this.detectLimit);
 		String contentType;
-		byte[] bytes;
 		try {
-			bytes = inputStream.readAllBytes();
-			// 比 HttpURLConnection.guessContentTypeFromStream(stream); 可靠.
-			contentType = this.tika.detect(bytes);
+			stream.mark(this.detectLimit);
+			byte[] head = stream.readNBytes(this.detectLimit);
+			stream.reset();
+			contentType = this.detectContentType(head, head.length, location);
 		} catch (IOException e) {
-			throw new RuntimeException(e.getMessage(), e);
+			throw new UncheckedIOException(e.getMessage(), e);
 		}
 		
 		if (MediaType.OCTET_STREAM.toString().equals(contentType)) {
-			throw new RuntimeException("Unable to identify the content type of the stream");
+			throw new IllegalArgumentException("Unable to identify the content type of the stream");
 		}
 		
-		return this.uploadFile(new ByteArrayInputStream(bytes), location, contentType);
+		return this.uploadFile(stream, -1, location, contentType);
 	}
 	
 	/**
 	 * <p>
-	 *     单文件上传至指定 {@link #bucketName} 桶的指定位置, 该桶所在 {@link #region}.
+	 *     语义继承 {@link #uploadFile(InputStream, long, String, String)} 方法, 在此基础上将上传文件的大小视为未知.
 	 * </p>
 	 *
 	 * @param inputStream 上传文件的流形式.
@@ -86,130 +381,1517 @@ public class MinIoHelper
 	 * @return 一个上传结果响应实例.
 	 */
 	public UploadResultResponse uploadFile(InputStream inputStream, String location, String contentType) {
+		return this.uploadFile(inputStream, -1, location, contentType);
+	}
+	
+	/**
+	 * <p>
+	 *     单文件上传至指定 {@link #bucketName} 桶的指定位置, 该桶所在 {@link #region}, 上传结束后(<em>无论成功与否</em>)关闭流. <br />
+	 *
+	 *     上传文件的大小未知时(<em>如网络流、Servlet 的 multipart 流、GZIP 流</em>), 以 {@link #partSize} 为分片大小流水线式地分片上传,
+	 *     请不要以 {@link InputStream#available()} 作为上传文件的大小, 它对于这些流而言往往是 0 或者只是部分正确. <br />
+	 *
+	 *     启用了压缩且 contentType 匹配 compression.contentTypes 时, 上传的是以流的方式压缩后的内容, 压缩后的大小未知, 同样分片上传.
+	 * </p>
+	 *
+	 * @param inputStream 上传文件的流形式.
+	 * @param objectSize  上传文件的大小(<em>字节</em>), -1 表示未知.
+	 * @param location    上传文件存放在桶中的位置, 如: "xxx/xxx/xxx/文件名.文件扩展名"、"文件名.文件扩展名".
+ 	 * @param contentType 上传文件的内容类型.
+	 * @return 一个上传结果响应实例.
+	 */
+	public UploadResultResponse uploadFile(InputStream inputStream, long objectSize, String location, String contentType) {
 		Assert.notNull(inputStream, "inputStream is null");
+		Assert.state(objectSize >= -1, "objectSize is not valid");
 		Assert.state(StringUtils.hasLength(location), "location is not valid");
 		Assert.state(StringUtils.hasLength(contentType), "contentType is not valid");
 		
+		return super.observe("upload", () -> this.doUploadFile(inputStream, objectSize, location, contentType));
+	}
+	
+	private UploadResultResponse doUploadFile(InputStream inputStream, long objectSize, String location, String contentType) {
 		try (inputStream) {
-			PutObjectArgs args = PutObjectArgs
-											.builder()
-											.bucket(super.bucketName)
-											.region(super.region)
-											.object(location)
-											.stream(inputStream, inputStream.available(), -1)
-											.contentType(contentType)
-											.build();
-			ObjectWriteResponse response = super.minioClient.putObject(args);
+			ObjectWriteResponse response;
+			if (this.compressor != null && this.compressor.accepts(contentType, objectSize)) {
+				// 压缩后的长度未知, 边上传边计数, 记录的是实际发送的字节数.
+				try (InputStream compressed = this.compressor.compress(inputStream)) {
+					CountingInputStream countingStream = new CountingInputStream(compressed);
+					response = this.multipartUploader.upload(countingStream, location, contentType, this.compressor.headers(objectSize));
+					super.metrics.recordBytes("upload", countingStream.getCount());
+				}
+			} else if (objectSize == -1) {
+				// 长度未知时边上传边计数.
+				CountingInputStream countingStream = new CountingInputStream(inputStream);
+				response = this.multipartUploader.upload(countingStream, location, contentType, Map.of());
+				super.metrics.recordBytes("upload", countingStream.getCount());
+			} else {
+				PutObjectArgs args = PutObjectArgs
+												.builder()
+												.bucket(super.bucketName)
+												.region(super.region)
+												.object(location)
+												.stream(inputStream, objectSize, this.partSizeOf(objectSize))
+												.contentType(contentType)
+												.build();
+				response = super.minioClient.putObject(args);
+				super.metrics.recordBytes("upload", objectSize);
+			}
 			String url = "%s/%s/%s".formatted(super.endpoint, super.bucketName, location);
 			return new UploadResultResponse(url, response);
 		} catch (Exception e) {
-			throw new RuntimeException(e.getMessage(), e);
+			throw MinIoException.translate(e);
+		} finally {
+			this.invalidate(location);
 		}
 	}
 	
 	/**
 	 * <p>
-	 *     删除指定 {@link #bucketName} 桶中指定位置的单文件.
+	 *     语义继承 {@link #uploadFile(Path, String, String)} 方法,
+	 *     在此基础上省略了 contentType 参数的传入, 由方法内部根据文件开头的少量字节以及文件名来分析出 contentType(<em>内容类型</em>).
 	 * </p>
 	 *
-	 * @param fileAccessUrl MinIO 服务器提供给外界的一个完整 URL.
+	 * @param file     上传的本地文件.
+	 * @param location 上传文件存放在桶中的位置, 如: "xxx/xxx/xxx/文件名.文件扩展名"、"文件名.文件扩展名".
+	 * @return 一个上传结果响应实例.
 	 */
-	public void removeFile(String fileAccessUrl) {
-		Assert.state(StringUtils.hasLength(fileAccessUrl), "location is not valid");
+	public UploadResultResponse uploadFile(Path file, String location) {
+		Assert.notNull(file, "file is null");
+		Assert.state(Files.isRegularFile(file), "file is not a regular file");
 		
-		// 要删除的文件在 Bucket(桶) 中的位置.
-		fileAccessUrl = fileAccessUrl.substring(this.prefix.length());
-		
-		List<Item> items = this.searchFile(fileAccessUrl);
-		if (items.isEmpty()) {
-			throw new IllegalArgumentException("This file does not exist on the 'MinIO' OSS server, and the access path is: " + this.prefix + fileAccessUrl);
-		}
-		if (items.size() > 1) {
-			List<String> itemNames = items
-										.stream()
-										.map(Item :: objectName)
-										.toList();
-			throw new IllegalArgumentException("Multiple files with the same access path were found that can be deleted: " + itemNames);
+		String contentType;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			contentType = this.detect(channel, 0, channel.size(), file.getFileName().toString());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e.getMessage(), e);
 		}
 		
-		RemoveObjectArgs args = RemoveObjectArgs
-											.builder()
-											.bucket(this.bucketName)
-											.region(this.region)
-											.object(fileAccessUrl)
-											.build();
-		try {
-			this.minioClient.removeObject(args);
-		} catch (Exception e) {
-			throw new RuntimeException(e.getMessage(), e);
-		}
+		return this.uploadFile(file, location, contentType);
 	}
 	
-	public List<Item> searchFile(String prefix) {
-		Assert.state(StringUtils.hasLength(prefix), "prefix is not valid");
-		return this.searchFile(builder -> builder.prefix(prefix));
+	/**
+	 * <p>
+	 *     将本地文件上传至指定 {@link #bucketName} 桶的指定位置, 该桶所在 {@link #region}. <br />
+	 *
+	 *     适用于大文件: 文件被切分为若干分片, 多个分片并行上传(<em>并行数由 upload.concurrency 决定</em>),
+	 *     单个分片失败时独立重试, 最终失败时中止本次分片上传.
+	 *     需要压缩的文件无法按位置切分, 改为以流的方式读取并压缩, 语义同 {@link #uploadFile(InputStream, long, String, String)}.
+	 * </p>
+	 *
+	 * @param file        上传的本地文件.
+	 * @param location    上传文件存放在桶中的位置, 如: "xxx/xxx/xxx/文件名.文件扩展名"、"文件名.文件扩展名".
+	 * @param contentType 上传文件的内容类型.
+	 * @return 一个上传结果响应实例.
+	 */
+	public UploadResultResponse uploadFile(Path file, String location, String contentType) {
+		Assert.notNull(file, "file is null");
+		Assert.state(Files.isRegularFile(file), "file is not a regular file");
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		Assert.state(StringUtils.hasLength(contentType), "contentType is not valid");
+		
+		return super.observe("upload", () -> {
+			try {
+				long size = Files.size(file);
+				if (this.compressor != null && this.compressor.accepts(contentType, size)) {
+					return this.doUploadFile(Files.newInputStream(file), size, location, contentType);
+				}
+				ObjectWriteResponse response = this.multipartUploader.upload(file, location, contentType);
+				super.metrics.recordBytes("upload", size);
+				String url = "%s/%s/%s".formatted(super.endpoint, super.bucketName, location);
+				return new UploadResultResponse(url, response);
+			} catch (Exception e) {
+				throw MinIoException.translate(e);
+			} finally {
+				this.invalidate(location);
+			}
+		});
 	}
 	
-	public List<Item> searchFile(Consumer<ListObjectsArgs.Builder> builderConsumer) {
-		return this.search(builderConsumer, item -> !item.isDir());
+	/**
+	 * <p>
+	 *     并行地上传多个本地文件, 每个文件的上传作为一个扇出操作, 语义同 {@link #uploadFile(Path, String)}. <br />
+	 *
+	 *     与以 Snowball 归档打包的 {@link #uploadFiles(Collection)} 不同, 每个文件各自上传, 适用于数量不多但各自较大的文件.
+	 *     任一文件上传失败时中断其余的上传并抛出异常, 已上传的文件不会被删除.
+	 * </p>
+	 *
+	 * @param files 键为文件存放在桶中的位置, 值为本地文件.
+	 * @return 键为文件存放在桶中的位置, 值为上传结果响应, 顺序与 files 一致.
+	 */
+	public Map<String, UploadResultResponse> uploadLocalFiles(Map<String, Path> files) {
+		Assert.notNull(files, "files is null");
+		
+		List<Map.Entry<String, Path>> entries = new ArrayList<>(files.entrySet());
+		List<Callable<UploadResultResponse>> tasks = new ArrayList<>(entries.size());
+		entries.forEach(entry -> tasks.add(() -> this.uploadFile(entry.getValue(), entry.getKey())));
+		List<UploadResultResponse> results = this.fanOut(tasks);
+		
+		Map<String, UploadResultResponse> responses = new LinkedHashMap<>((int) (entries.size() / 0.75F) + 1);
+		for (int i = 0; i < entries.size(); i++) {
+			responses.put(entries.get(i).getKey(), results.get(i));
+		}
+		return responses;
 	}
 	
-	public List<Item> search(Consumer<ListObjectsArgs.Builder> builderConsume) {
-		return this.search(builderConsume, item -> true);
+	/**
+	 * <p>
+	 *     将文件通道中从 position 开始的 count 个字节上传至指定 {@link #bucketName} 桶的指定位置, 该桶所在 {@link #region}. <br />
+	 *
+	 *     内容类型由通道中 position 处开始的少量字节分析得出; 上传时各分片以位置读取的方式从通道中按需读取, 不会改变通道的位置.
+	 *     MinIO 客户端会将每个分片复制到堆内存的缓冲区后再发送, 因此堆内存的占用约为分片大小 × 分片上传并发数,
+	 *     内存受限时优先使用 {@link #uploadFile(Path, String, String)}.
+	 * </p>
+	 *
+	 * @param channel  上传的文件通道, 由调用者负责关闭.
+	 * @param position 上传内容在通道中的起始位置.
+	 * @param count    上传内容的字节数.
+	 * @param location 上传文件存放在桶中的位置, 如: "xxx/xxx/xxx/文件名.文件扩展名"、"文件名.文件扩展名".
+	 * @return 一个上传结果响应实例.
+	 */
+	public UploadResultResponse uploadFile(FileChannel channel, long position, long count, String location) {
+		Assert.notNull(channel, "channel is null");
+		Assert.state(position >= 0 && count >= 0, "position or count is not valid");
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		
+		return super.observe("upload", () -> {
+			try {
+				Assert.state(position + count <= channel.size(), "position + count exceeds the size of the channel");
+				String contentType = this.detect(channel, position, count, location);
+				ObjectWriteResponse response = this.multipartUploader.upload(channel, position, count, location, contentType);
+				super.metrics.recordBytes("upload", count);
+				String url = "%s/%s/%s".formatted(super.endpoint, super.bucketName, location);
+				return new UploadResultResponse(url, response);
+			} catch (Exception e) {
+				throw MinIoException.translate(e);
+			} finally {
+				this.invalidate(location);
+			}
+		});
 	}
 	
-	private List<Item> search(Consumer<ListObjectsArgs.Builder> builderConsumer, Predicate<Item> itemPredicate) {
-		ListObjectsArgs.Builder builder = ListObjectsArgs
-													.builder()
-													.bucket(this.bucketName)
-													.region(this.region);
+	/**
+	 * <p>
+	 *     以位置读取的方式读取通道中 position 处开始的至多 {@link #detectLimit} 个字节, 结合名称分析出内容类型.
+	 * </p>
+	 */
+	private String detect(FileChannel channel, long position, long count, String name) throws IOException {
+		ByteBuffer head = ByteBuffer.allocate((int) Math.min(this.detectLimit, count));
+		while (head.hasRemaining()) {
+			if (channel.read(head, position + head.position()) == -1) {
+				break;
+			}
+		}
 		
-		if (builderConsumer != null) {
-			builderConsumer.accept(builder);
+		String contentType = this.detectContentType(head.array(), head.position(), name);
+		if (MediaType.OCTET_STREAM.toString().equals(contentType)) {
+			throw new IllegalArgumentException("Unable to identify the content type of the file");
 		}
+		return contentType;
+	}
+	
+	private String detectContentType(byte[] head, int length, String name) {
+		long startTime = System.nanoTime();
+		String contentType = this.contentTypeDetector.detect(head, length, name);
+		super.metrics.recordDetection(System.nanoTime() - startTime);
+		return contentType;
+	}
+	
+	/**
+	 * <p>
+	 *     已知大小的对象按 {@link #partSize} 切分会超出 {@link ObjectWriteArgs#MAX_MULTIPART_COUNT} 个分片时,
+	 *     返回 -1 交由 MinIO 客户端自行计算分片大小.
+	 * </p>
+	 */
+	private long partSizeOf(long objectSize) {
+		return objectSize > this.partSize * ObjectWriteArgs.MAX_MULTIPART_COUNT ? -1 : this.partSize;
+	}
+	
+	/**
+	 * <p>
+	 *     删除指定 {@link #bucketName} 桶中指定位置的单文件.
+	 * </p>
+	 *
+	 * @param fileAccessUrl MinIO 服务器提供给外界的一个完整 URL.
+	 */
+	public void removeFile(String fileAccessUrl) {
+		Assert.state(StringUtils.hasLength(fileAccessUrl), "location is not valid");
 		
-		List<Item> items = new LinkedList<>();
+		// 要删除的文件在 Bucket(桶) 中的位置.
+		String location = this.locationOf(fileAccessUrl);
 		
-		this.minioClient.listObjects(builder.build()).forEach(result -> {
+		// 以一次 HEAD 请求确认文件存在, 而不是列举所有以其为前缀的文件.
+		StatObjectArgs statArgs = StatObjectArgs
+												.builder()
+												.bucket(this.bucketName)
+												.region(this.region)
+												.object(location)
+												.build();
+		RemoveObjectArgs args = RemoveObjectArgs
+											.builder()
+											.bucket(this.bucketName)
+											.region(this.region)
+											.object(location)
+											.build();
+		super.observe("remove", () -> {
 			try {
-				Item item = result.get();
-				if (itemPredicate.test(item)) {
-					items.add(item);
+				super.retry("stat", () -> this.minioClient.statObject(statArgs));
+				super.retry("remove", () -> {
+					this.minioClient.removeObject(args);
+					return null;
+				});
+			} catch (MinIoNotFoundException e) {
+				if (NO_SUCH_KEY.equals(e.getCode())) {
+					throw new IllegalArgumentException("This file does not exist on the 'MinIO' OSS server, and the access path is: " + fileAccessUrl, e);
 				}
-			} catch (Exception e) {
-				throw new RuntimeException(e.getMessage(), e);
+				throw e;
+			} finally {
+				this.invalidate(location);
 			}
+			return null;
 		});
-		
-		return items;
 	}
 	
-	public void uploadFiles(Map<String, InputStream> fileMap) {
-		List<SnowballObject> snowballObjectList = fileMap
-														.entrySet()
-														.stream()
-														.map(MinIoHelper :: convertSnowballObject)
-														.toList();
-		UploadSnowballObjectsArgs args = UploadSnowballObjectsArgs
-														.builder()
-														.bucket(super.bucketName)
-														.region(super.region)
-														.objects(snowballObjectList)
-														.build();
-		try {
-			ObjectWriteResponse response = super.minioClient.uploadSnowballObjects(args);
-		} catch (Exception e) {
-			throw new RuntimeException(e.getMessage(), e);
-		}
+	/**
+	 * <p>
+	 *     语义继承 {@link #removeFiles(Collection, Consumer)} 方法, 在此基础上将删除失败的文件收集为一个列表.
+	 * </p>
+	 *
+	 * @param locations 要删除的文件在桶中的位置.
+	 * @return 删除失败的文件及其原因, 全部删除成功时为空列表.
+	 */
+	public List<DeleteError> removeFiles(Collection<String> locations) {
+		List<DeleteError> errors = new ArrayList<>();
+		this.removeFiles(locations, errors :: add);
+		return errors;
 	}
 	
-	static SnowballObject convertSnowballObject(Map.Entry<String, InputStream> entry) {
-		try (InputStream file = entry.getValue()) {
-			byte[] bytes = StreamUtils.copyToByteArray(file);
-			InputStream stream = new ByteArrayInputStream(bytes);
-			return new SnowballObject(entry.getKey(), stream, file.available(), null);
+	/**
+	 * <p>
+	 *     批量删除指定 {@link #bucketName} 桶中指定位置的文件. <br />
+	 *
+	 *     每个请求最多携带 1000 个位置(<em>S3 DeleteObjects 接口的上限</em>), 每个请求返回后,
+	 *     其中删除失败的文件立即交给 errorConsumer, 不存在的文件不视为失败.
+	 *     多于 1000 个位置时, 各个请求作为扇出操作并行执行, 对 errorConsumer 的调用仍是串行的.
+	 * </p>
+	 *
+	 * @param locations     要删除的文件在桶中的位置.
+	 * @param errorConsumer 删除失败的文件及其原因的消费者.
+	 */
+	public void removeFiles(Collection<String> locations, Consumer<DeleteError> errorConsumer) {
+		Assert.notNull(locations, "locations is null");
+		Assert.notNull(errorConsumer, "errorConsumer is null");
+		if (locations.isEmpty()) {
+			return;
+		}
+		
+		super.observe("removeBatch", () -> {
+			try {
+				if (locations.size() <= MAX_DELETE_OBJECTS) {
+					this.removeBatch(locations, errorConsumer);
+					return null;
+				}
+				
+				List<String> all = new ArrayList<>(locations);
+				Consumer<DeleteError> serialized = error -> {
+					synchronized (errorConsumer) {
+						errorConsumer.accept(error);
+					}
+				};
+				List<Callable<Void>> tasks = new ArrayList<>();
+				for (int from = 0; from < all.size(); from += MAX_DELETE_OBJECTS) {
+					List<String> batch = all.subList(from, Math.min(from + MAX_DELETE_OBJECTS, all.size()));
+					tasks.add(() -> {
+						this.removeBatch(batch, serialized);
+						return null;
+					});
+				}
+				this.fanOut(tasks);
+			} finally {
+				locations.forEach(this :: invalidate);
+			}
+			return null;
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     以 MinIO 客户端删除 locations(<em>至多 1000 个, 即一个请求</em>), 位置按需从 locations 中取出. <br />
+	 *
+	 *     删除是幂等的, 请求失败时整批重试; 删除失败的文件在请求成功之后才交给 errorConsumer, 重试不会重复回调.
+	 * </p>
+	 */
+	private void removeBatch(Collection<String> locations, Consumer<DeleteError> errorConsumer) {
+		RemoveObjectsArgs args = RemoveObjectsArgs
+											.builder()
+											.bucket(this.bucketName)
+											.region(this.region)
+											.objects(() -> locations.stream().map(DeleteObject :: new).iterator())
+											.build();
+		List<DeleteError> errors = super.retry("removeBatch", () -> {
+			List<DeleteError> batchErrors = new ArrayList<>();
+			for (Result<DeleteError> result : this.minioClient.removeObjects(args)) {
+				batchErrors.add(result.get());
+			}
+			return batchErrors;
+		});
+		errors.forEach(errorConsumer);
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #copyObject(String, String, String)} 方法, 在此基础上从同一个桶中复制.
+	 * </p>
+	 */
+	public UploadResultResponse copyObject(String source, String location) {
+		return this.copyObject(super.bucketName, source, location);
+	}
+	
+	/**
+	 * <p>
+	 *     在服务端将 sourceBucket 桶中的 source 复制到指定 {@link #bucketName} 桶的指定位置, 内容不经过本进程. <br />
+	 *
+	 *     对象的元数据(<em>包括内容类型与压缩标记</em>)随之复制. 复制是幂等的, 失败时按 retry 属性重试.
+	 *     单次复制的源对象在 AWS S3 上不能超过 5GB, MinIO 服务器没有此限制.
+	 * </p>
+	 *
+	 * @param sourceBucket 源对象所在的桶, 与 {@link #bucketName} 位于同一个区域.
+	 * @param source       源对象在桶中的位置.
+	 * @param location     目标对象在桶中的位置, 已存在时被覆盖.
+	 * @return 一个上传结果响应实例.
+	 */
+	public UploadResultResponse copyObject(String sourceBucket, String source, String location) {
+		Assert.state(StringUtils.hasLength(sourceBucket), "sourceBucket is not valid");
+		Assert.state(StringUtils.hasLength(source), "source is not valid");
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		
+		return super.observe("copy", () -> {
+			ObjectWriteResponse response = this.doCopyObject(sourceBucket, source, location);
+			String url = "%s/%s/%s".formatted(super.endpoint, super.bucketName, location);
+			return new UploadResultResponse(url, response);
+		});
+	}
+	
+	private ObjectWriteResponse doCopyObject(String sourceBucket, String source, String location) {
+		CopyObjectArgs args = CopyObjectArgs
+										.builder()
+										.bucket(super.bucketName)
+										.region(super.region)
+										.object(location)
+										.source(CopySource
+														.builder()
+														.bucket(sourceBucket)
+														.region(super.region)
+														.object(source)
+														.build())
+										.build();
+		try {
+			return super.retry("copy", () -> super.minioClient.copyObject(args));
+		} finally {
+			this.invalidate(location);
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     在服务端将同一个桶中的 sources 按顺序拼接为指定位置的对象, 内容不经过本进程. <br />
+	 *
+	 *     以分片上传的方式实现(<em>每个源对象是一个以 UploadPartCopy 复制的分片</em>), 因此除最后一个外每个源对象都不能小于 5MB,
+	 *     且至多 10000 个. 合并基于分片上传, 不会被重试. 结果只带有 contentType, 不会继承源对象的元数据,
+	 *     请不要合并上传时被压缩过的对象.
+	 * </p>
+	 *
+	 * @param sources     按顺序拼接的源对象在桶中的位置.
+	 * @param location    目标对象在桶中的位置, 已存在时被覆盖.
+	 * @param contentType 目标对象的内容类型.
+	 * @return 一个上传结果响应实例.
+	 */
+	public UploadResultResponse composeObject(List<String> sources, String location, String contentType) {
+		Assert.notNull(sources, "sources is null");
+		Assert.state(!sources.isEmpty() && sources.size() <= ObjectWriteArgs.MAX_MULTIPART_COUNT, "sources must contain between 1 and 10000 locations");
+		sources.forEach(source -> Assert.state(StringUtils.hasLength(source), "source is not valid"));
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		Assert.state(StringUtils.hasLength(contentType), "contentType is not valid");
+		
+		List<ComposeSource> composeSources = new ArrayList<>(sources.size());
+		sources.forEach(source -> composeSources.add(ComposeSource
+																.builder()
+																.bucket(super.bucketName)
+																.region(super.region)
+																.object(source)
+																.build()));
+		ComposeObjectArgs args = ComposeObjectArgs
+											.builder()
+											.bucket(super.bucketName)
+											.region(super.region)
+											.object(location)
+											.sources(composeSources)
+											.headers(Map.of("Content-Type", contentType))
+											.build();
+		return super.observe("compose", () -> {
+			try {
+				ObjectWriteResponse response = super.minioClient.composeObject(args);
+				String url = "%s/%s/%s".formatted(super.endpoint, super.bucketName, location);
+				return new UploadResultResponse(url, response);
+			} catch (Exception e) {
+				throw MinIoException.translate(e);
+			} finally {
+				this.invalidate(location);
+			}
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #moveByPrefix(String, String, Consumer)} 方法, 在此基础上将删除失败的源对象收集为一个列表.
+	 * </p>
+	 *
+	 * @param sourcePrefix 要移动的对象的前缀.
+	 * @param targetPrefix 替换 sourcePrefix 的新前缀.
+	 * @return 删除失败的源对象及其原因, 全部删除成功时为空列表.
+	 */
+	public List<DeleteError> moveByPrefix(String sourcePrefix, String targetPrefix) {
+		List<DeleteError> errors = new ArrayList<>();
+		this.moveByPrefix(sourcePrefix, targetPrefix, errors :: add);
+		return errors;
+	}
+	
+	/**
+	 * <p>
+	 *     将指定 {@link #bucketName} 桶中 sourcePrefix 下的所有文件移动到 targetPrefix 下(<em>名称中的 sourcePrefix 替换为 targetPrefix</em>),
+	 *     内容不经过本进程. <br />
+	 *
+	 *     惰性地列举源对象, 每 1000 个为一批: 批内的对象作为扇出操作并行地在服务端复制(<em>并行数由 execution.maxConcurrency 决定</em>),
+	 *     全部复制成功后以一个 DeleteObjects 请求删除这一批源对象, 内存中只驻留一批对象. <br />
+	 *
+	 *     任一复制最终失败时抛出异常, 当前批次的源对象均不会被删除, 此前的批次已经移动完成; 复制会覆盖目标, 重新执行即可从中断处继续.
+	 *     删除失败的源对象交给 errorConsumer, 其目标对象已经存在.
+	 * </p>
+	 *
+	 * @param sourcePrefix  要移动的对象的前缀.
+	 * @param targetPrefix  替换 sourcePrefix 的新前缀, 可以为空字符串, 不能以 sourcePrefix 开头(<em>否则移动后的对象会被再次列举</em>).
+	 * @param errorConsumer 删除失败的源对象及其原因的消费者.
+	 * @return 复制到 targetPrefix 下的对象数量.
+	 */
+	public long moveByPrefix(String sourcePrefix, String targetPrefix, Consumer<DeleteError> errorConsumer) {
+		Assert.state(StringUtils.hasLength(sourcePrefix), "sourcePrefix is not valid");
+		Assert.notNull(targetPrefix, "targetPrefix is null");
+		Assert.state(!targetPrefix.startsWith(sourcePrefix), "targetPrefix must not start with sourcePrefix");
+		Assert.notNull(errorConsumer, "errorConsumer is null");
+		
+		return super.observe("move", () -> {
+			long moved = 0;
+			try (Stream<Item> items = this.searchStream(builder -> builder.prefix(sourcePrefix).recursive(true), item -> !item.isDir(), -1, null)) {
+				Iterator<Item> iterator = items.iterator();
+				List<String> batch = new ArrayList<>(MAX_DELETE_OBJECTS);
+				while (iterator.hasNext()) {
+					batch.add(iterator.next().objectName());
+					if (batch.size() == MAX_DELETE_OBJECTS || !iterator.hasNext()) {
+						moved += this.moveBatch(batch, sourcePrefix, targetPrefix, errorConsumer);
+						batch = new ArrayList<>(MAX_DELETE_OBJECTS);
+					}
+				}
+			}
+			return moved;
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     并行地复制一批(<em>至多 1000 个</em>)源对象, 全部成功后删除它们, 返回复制的数量.
+	 * </p>
+	 */
+	private int moveBatch(List<String> sources, String sourcePrefix, String targetPrefix, Consumer<DeleteError> errorConsumer) {
+		List<Callable<ObjectWriteResponse>> tasks = new ArrayList<>(sources.size());
+		for (String source : sources) {
+			String location = targetPrefix + source.substring(sourcePrefix.length());
+			tasks.add(() -> this.doCopyObject(super.bucketName, source, location));
+		}
+		this.fanOut(tasks);
+		
+		try {
+			this.removeBatch(sources, errorConsumer);
+		} finally {
+			sources.forEach(this :: invalidate);
+		}
+		return sources.size();
+	}
+	
+	public List<Item> searchFile(String prefix) {
+		Assert.state(StringUtils.hasLength(prefix), "prefix is not valid");
+		return this.searchFile(builder -> builder.prefix(prefix));
+	}
+	
+	public List<Item> searchFile(Consumer<ListObjectsArgs.Builder> builderConsumer) {
+		return this.search(builderConsumer, item -> !item.isDir());
+	}
+	
+	/**
+	 * <p>
+	 *     并行地列举多个前缀下的文件, 每个前缀的列举作为一个扇出操作, 语义同 {@link #searchFile(String)}.
+	 * </p>
+	 *
+	 * @param prefixes 要列举的前缀, 重复的前缀只列举一次.
+	 * @return 键为前缀, 值为该前缀下的文件, 顺序与 prefixes 一致.
+	 */
+	public Map<String, List<Item>> searchFiles(Collection<String> prefixes) {
+		Assert.notNull(prefixes, "prefixes is null");
+		List<String> distinct = new ArrayList<>(new LinkedHashSet<>(prefixes));
+		distinct.forEach(prefix -> Assert.state(StringUtils.hasLength(prefix), "prefix is not valid"));
+		
+		List<Callable<List<Item>>> tasks = new ArrayList<>(distinct.size());
+		distinct.forEach(prefix -> tasks.add(() -> this.searchFile(prefix)));
+		List<List<Item>> results = this.fanOut(tasks);
+		
+		Map<String, List<Item>> items = new LinkedHashMap<>((int) (distinct.size() / 0.75F) + 1);
+		for (int i = 0; i < distinct.size(); i++) {
+			items.put(distinct.get(i), results.get(i));
+		}
+		return items;
+	}
+	
+	public List<Item> search(Consumer<ListObjectsArgs.Builder> builderConsume) {
+		return this.search(builderConsume, item -> true);
+	}
+	
+	private List<Item> search(Consumer<ListObjectsArgs.Builder> builderConsumer, Predicate<Item> itemPredicate) {
+		return super.observe("search", () -> {
+			try (Stream<Item> items = this.searchStream(builderConsumer, itemPredicate, -1, null)) {
+				return items.collect(Collectors.toCollection(ArrayList :: new));
+			}
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #searchStream(Consumer, Predicate, long, Consumer)} 方法, 在此基础上不过滤、不限制数量、不回调.
+	 * </p>
+	 */
+	public Stream<Item> searchStream(Consumer<ListObjectsArgs.Builder> builderConsumer) {
+		return this.searchStream(builderConsumer, item -> true, -1, null);
+	}
+	
+	/**
+	 * <p>
+	 *     惰性地列举对象: 只有在消费流时才逐页请求列举结果, 内存中至多驻留两页对象, 流被短路(<em>如 findFirst、limit</em>)后不再请求后续的页. <br />
+	 *
+	 *     从某处继续列举时, 可以通过 builderConsumer 指定 {@link ListObjectsArgs.Builder#startAfter(String)}
+	 *     (<em>如上次消费的最后一个对象的名称</em>), 或者 {@link ListObjectsArgs.Builder#continuationToken(String)}
+	 *     (<em>由 pageCallback 得到, 从下一页的开头继续</em>). 请在使用完毕后关闭流, 以取消尚未完成的预取请求.
+	 * </p>
+	 *
+	 * @param builderConsumer 用于定制列举参数.
+	 * @param itemPredicate   对象的过滤条件, 在迭代时逐个应用.
+	 * @param limit           最多返回的对象数量, -1 表示不限制.
+	 * @param pageCallback    每拿到一页时以下一页的 continuationToken 回调(<em>最后一页时为 null</em>), 可以为 null;
+	 *                        按版本列举或使用 V1 接口时不会回调.
+	 * @return 满足过滤条件的对象组成的顺序流.
+	 */
+	public Stream<Item> searchStream(Consumer<ListObjectsArgs.Builder> builderConsumer, Predicate<Item> itemPredicate,
+									 long limit, Consumer<String> pageCallback) {
+		Assert.notNull(itemPredicate, "itemPredicate is null");
+		Assert.state(limit >= -1, "limit is not valid");
+		
+		ListObjectsArgs args = this.listObjectsArgs(builderConsumer);
+		Stream<Item> items;
+		if (args.includeVersions() || args.useApiVersion1()) {
+			// 按版本列举或使用 V1 接口时退回到 MinioClient 自身的惰性迭代, 此时不会回调 pageCallback.
+			items = StreamSupport
+							.stream(this.minioClient.listObjects(args).spliterator(), false)
+							.map(result -> {
+								try {
+									return result.get();
+								} catch (Exception e) {
+									throw MinIoException.translate(e);
+								}
+							});
+		} else {
+			PagedItemIterator iterator = new PagedItemIterator(new ObjectLister(this.rawAsyncClient, args, super.retryPolicy), pageCallback);
+			items = StreamSupport
+							.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+							.onClose(iterator :: cancel);
+		}
+		
+		items = items.filter(itemPredicate);
+		return limit == -1 ? items : items.limit(limit);
+	}
+	
+	private ListObjectsArgs listObjectsArgs(Consumer<ListObjectsArgs.Builder> builderConsumer) {
+		ListObjectsArgs.Builder builder = ListObjectsArgs
+													.builder()
+													.bucket(this.bucketName)
+													.region(this.region);
+		
+		if (builderConsumer != null) {
+			builderConsumer.accept(builder);
+		}
+		
+		return builder.build();
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #getObject(String)} 方法, 在此基础上将文件的全部内容读入堆内存.
+	 * </p>
+	 *
+	 * @param location 文件存放在桶中的位置.
+	 * @return 文件的内容.
+	 */
+	public byte[] download(String location) {
+		try (InputStream stream = this.getObject(location)) {
+			return stream.readAllBytes();
+		} catch (IOException e) {
+			throw MinIoException.translate(e);
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     获取指定 {@link #bucketName} 桶中指定位置的文件的内容. <br />
+	 *
+	 *     启用了下载缓存(<em>download.heapCacheSize 或 download.diskCacheSize 大于 0</em>)时:
+	 *     新鲜期内的缓存条目直接返回, 不发起任何请求; 超过新鲜期的条目以 If-None-Match 条件请求重新确认, 未改变时不重新下载内容;
+	 *     未命中时下载并缓存不超过大小上限的文件, 更大的文件直接以响应流的形式返回. <br />
+	 *
+	 *     上传时被压缩的文件(<em>见 compression 属性</em>)在读取时以流的方式解压, 缓存中保存的是压缩后的内容.
+	 * </p>
+	 *
+	 * @param location 文件存放在桶中的位置.
+	 * @return 文件内容的流, 由调用者负责关闭.
+	 */
+	public InputStream getObject(String location) {
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		
+		// 写入缓存的内容在返回之前已经读完, 重试覆盖了整个下载; 直接返回的响应流在读取时失败则不会重试.
+		return super.observe("download", () -> super.retry("download", () -> this.doGetObject(location)));
+	}
+	
+	private InputStream doGetObject(String location) throws Exception {
+		GetObjectArgs.Builder builder = GetObjectArgs
+												.builder()
+												.bucket(super.bucketName)
+												.region(super.region)
+												.object(location);
+		ObjectCache.Entry cached = this.objectCache == null ? null : this.objectCache.get(this.cacheKey(location));
+		if (cached != null) {
+			if (cached.isFresh(this.cacheTtlNanos)) {
+				InputStream stream = this.openCached(location, cached);
+				if (stream != null) {
+					return ContentCompressor.decode(cached.encoding, stream);
+				}
+				cached = null;
+			} else {
+				builder.notMatchETag(cached.etag);
+			}
+		}
+		
+		GetObjectResponse response;
+		try {
+			response = super.minioClient.getObject(builder.build());
+		} catch (ServerException e) {
+			if (cached == null || e.statusCode() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+				throw e;
+			}
+			this.objectCache.validated(cached);
+			InputStream stream = this.openCached(location, cached);
+			return stream != null ? ContentCompressor.decode(cached.encoding, stream) : this.doGetObject(location);
+		}
+		
+		String encoding = ContentCompressor.encodingOf(response.headers());
+		String etag = response.headers().get("ETag");
+		String contentLength = response.headers().get("Content-Length");
+		long size = contentLength == null ? -1 : Long.parseLong(contentLength);
+		if (size >= 0) {
+			super.metrics.recordBytes("download", size);
+		}
+		if (this.objectCache == null) {
+			return ContentCompressor.decode(encoding, response);
+		}
+		if (etag == null || !this.objectCache.accepts(size)) {
+			this.objectCache.remove(this.cacheKey(location));
+			return ContentCompressor.decode(encoding, response);
+		}
+		
+		InputStream stream;
+		try (response) {
+			if (this.objectCache.onHeap(size)) {
+				byte[] content = response.readAllBytes();
+				this.objectCache.putHeap(this.cacheKey(location), etag, encoding, content);
+				stream = new ByteArrayInputStream(content);
+			} else {
+				stream = this.objectCache.putDisk(this.cacheKey(location), etag, encoding, response).open();
+			}
+		}
+		return ContentCompressor.decode(encoding, stream);
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #download(String, FileChannel, long)} 方法, 在此基础上写入 target 文件(<em>已存在时覆盖</em>).
+	 * </p>
+	 *
+	 * @param location 文件存放在桶中的位置.
+	 * @param target   本地的目标文件.
+	 * @return 下载开始时文件的元数据.
+	 */
+	public StatObjectResponse download(String location, Path target) {
+		Assert.notNull(target, "target is null");
+		
+		try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			return this.download(location, channel, 0);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     将指定 {@link #bucketName} 桶中指定位置的文件并行地分段下载到文件通道中. <br />
+	 *
+	 *     适用于大文件: 先获取文件的大小与 ETag, 再按 download.rangeSize 切分为若干字节范围,
+	 *     以 download.rangeConcurrency 个连接同时下载, 每个范围以位置写入的方式原地写入通道, 失败时独立重试.
+	 *     每个范围都以 If-Match 校验 ETag, 文件在下载期间被改变时抛出异常. 不经过下载缓存.
+	 *     上传时被压缩的文件无法按范围解压, 以一个连接下载并解压后写入通道.
+	 * </p>
+	 *
+	 * @param location 文件存放在桶中的位置.
+	 * @param channel  目标文件通道, 由调用者负责关闭.
+	 * @param position 文件的第一个字节写入通道的位置.
+	 * @return 下载开始时文件的元数据.
+	 */
+	public StatObjectResponse download(String location, FileChannel channel, long position) {
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		Assert.notNull(channel, "channel is null");
+		Assert.state(position >= 0, "position is not valid");
+		
+		return super.observe("rangedDownload", () -> {
+			try {
+				StatObjectResponse stat = this.rangedDownloader.download(location, channel, position);
+				super.metrics.recordBytes("download", stat.size());
+				return stat;
+			} catch (Exception e) {
+				throw MinIoException.translate(e);
+			}
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     打开缓存条目, 条目的文件已被淘汰时移除该条目并返回 null.
+	 * </p>
+	 */
+	private InputStream openCached(String location, ObjectCache.Entry cached) {
+		try {
+			return cached.open();
+		} catch (IOException e) {
+			this.objectCache.remove(this.cacheKey(location));
+			return null;
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #uploadFileAsync(InputStream, long, String, String, Executor)} 方法, 在此基础上不指定执行器.
+	 * </p>
+	 */
+	public CompletableFuture<UploadResultResponse> uploadFileAsync(InputStream inputStream, long objectSize,
+																   String location, String contentType) {
+		return this.uploadFileAsync(inputStream, objectSize, location, contentType, null);
+	}
+	
+	/**
+	 * <p>
+	 *     {@link #uploadFile(InputStream, long, String, String)} 方法的非阻塞版本, 由 {@link #minioAsyncClient} 发起请求,
+	 *     调用线程不会等待上传完成, 上传结束后(<em>无论成功与否</em>)关闭流.
+	 * </p>
+	 *
+	 * @param inputStream 上传文件的流形式.
+	 * @param objectSize  上传文件的大小(<em>字节</em>), -1 表示未知.
+	 * @param location    上传文件存放在桶中的位置, 如: "xxx/xxx/xxx/文件名.文件扩展名"、"文件名.文件扩展名".
+	 * @param contentType 上传文件的内容类型.
+	 * @param executor    执行后续阶段(<em>completion stages</em>)的执行器, 为 null 时由 HTTP 客户端的线程执行.
+	 * @return 一个在上传完成时得到上传结果响应实例的 {@link CompletableFuture}.
+	 */
+	public CompletableFuture<UploadResultResponse> uploadFileAsync(InputStream inputStream, long objectSize,
+																   String location, String contentType, Executor executor) {
+		Assert.notNull(inputStream, "inputStream is null");
+		Assert.state(objectSize >= -1, "objectSize is not valid");
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		Assert.state(StringUtils.hasLength(contentType), "contentType is not valid");
+		
+		MinIoMetrics.Sample sample = super.metrics.start("upload");
+		boolean compressed = this.compressor != null && this.compressor.accepts(contentType, objectSize);
+		CountingInputStream stream = null;
+		CompletableFuture<ObjectWriteResponse> future;
+		try {
+			if (compressed) {
+				// 压缩后的长度未知, 由 MinIO 客户端按 partSize 分片上传, 并边上传边计数.
+				stream = new CountingInputStream(this.compressor.compress(inputStream));
+			}
+			PutObjectArgs args = PutObjectArgs
+											.builder()
+											.bucket(super.bucketName)
+											.region(super.region)
+											.object(location)
+											.stream(compressed ? stream : inputStream, compressed ? -1 : objectSize, this.partSizeOf(objectSize))
+											.contentType(contentType)
+											.headers(compressed ? this.compressor.headers(objectSize) : Map.of())
+											.build();
+			future = super.minioAsyncClient.putObject(args);
+		} catch (Exception e) {
+			future = CompletableFuture.failedFuture(e);
+		}
+		
+		// 压缩流创建失败时关闭原始的流.
+		CountingInputStream counted = stream;
+		InputStream body = counted != null ? counted : inputStream;
+		future = future.whenComplete((response, throwable) -> {
+			try {
+				body.close();
+			} catch (IOException ignore) {}
+			this.invalidate(location);
+			sample.stop(throwable);
+			if (throwable == null && (compressed || objectSize != -1)) {
+				super.metrics.recordBytes("upload", compressed ? counted.getCount() : objectSize);
+			}
+		});
+		String url = "%s/%s/%s".formatted(super.endpoint, super.bucketName, location);
+		return completeOn(future.thenApply(response -> new UploadResultResponse(url, response)), executor);
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #removeFileAsync(String, Executor)} 方法, 在此基础上不指定执行器.
+	 * </p>
+	 */
+	public CompletableFuture<Void> removeFileAsync(String fileAccessUrl) {
+		return this.removeFileAsync(fileAccessUrl, null);
+	}
+	
+	/**
+	 * <p>
+	 *     {@link #removeFile(String)} 方法的非阻塞版本, 先确认文件存在(<em>不存在时以 {@link ErrorResponseException} 异常完成</em>), 再删除文件.
+	 * </p>
+	 *
+	 * @param fileAccessUrl MinIO 服务器提供给外界的一个完整 URL.
+	 * @param executor      执行后续阶段的执行器, 为 null 时由 HTTP 客户端的线程执行.
+	 * @return 一个在删除完成时完成的 {@link CompletableFuture}.
+	 */
+	public CompletableFuture<Void> removeFileAsync(String fileAccessUrl, Executor executor) {
+		Assert.state(StringUtils.hasLength(fileAccessUrl), "location is not valid");
+		
+		String location = this.locationOf(fileAccessUrl);
+		RemoveObjectArgs args = RemoveObjectArgs
+											.builder()
+											.bucket(this.bucketName)
+											.region(this.region)
+											.object(location)
+											.build();
+		CompletableFuture<Void> future = super.observeAsync("remove", () -> this
+																				.statAsync(location)
+																				.thenCompose(response -> super.retryPolicy.callAsync("remove", () -> {
+																					try {
+																						return this.minioAsyncClient.removeObject(args);
+																					} catch (Exception e) {
+																						return CompletableFuture.failedFuture(e);
+																					}
+																				}))
+																				.whenComplete((response, throwable) -> this.invalidate(location)));
+		return completeOn(future, executor);
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #searchAsync(Consumer, Executor)} 方法, 在此基础上不指定执行器.
+	 * </p>
+	 */
+	public CompletableFuture<List<Item>> searchAsync(Consumer<ListObjectsArgs.Builder> builderConsumer) {
+		return this.searchAsync(builderConsumer, null);
+	}
+	
+	/**
+	 * <p>
+	 *     {@link #search(Consumer)} 方法的非阻塞版本, 逐页异步地请求列举结果, 上一页返回后才请求下一页.
+	 * </p>
+	 *
+	 * @param builderConsumer 用于定制列举参数.
+	 * @param executor        执行后续阶段的执行器, 为 null 时由 HTTP 客户端的线程执行.
+	 * @return 一个在列举完成时得到所有对象的 {@link CompletableFuture}.
+	 */
+	public CompletableFuture<List<Item>> searchAsync(Consumer<ListObjectsArgs.Builder> builderConsumer, Executor executor) {
+		ObjectLister lister = new ObjectLister(this.rawAsyncClient, this.listObjectsArgs(builderConsumer), super.retryPolicy);
+		return completeOn(super.observeAsync("search", () -> collect(lister, lister.fetchFirst(), new ArrayList<>())), executor);
+	}
+	
+	private static CompletableFuture<List<Item>> collect(ObjectLister lister, CompletableFuture<ObjectLister.Page> future, List<Item> items) {
+		return future.thenCompose(page -> {
+			items.addAll(page.items());
+			return page.isLast()
+						? CompletableFuture.completedFuture(items)
+						: collect(lister, lister.fetch(page.nextContinuationToken()), items);
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #statAsync(String, Executor)} 方法, 在此基础上不指定执行器.
+	 * </p>
+	 */
+	public CompletableFuture<StatObjectResponse> statAsync(String location) {
+		return this.statAsync(location, null);
+	}
+	
+	/**
+	 * <p>
+	 *     非阻塞地获取指定位置的对象的元数据(<em>大小、内容类型、ETag 等</em>).
+	 * </p>
+	 *
+	 * @param location 文件存放在桶中的位置.
+	 * @param executor 执行后续阶段的执行器, 为 null 时由 HTTP 客户端的线程执行.
+	 * @return 一个在获取完成时得到对象元数据的 {@link CompletableFuture}, 对象不存在时以 {@link ErrorResponseException} 异常完成.
+	 */
+	public CompletableFuture<StatObjectResponse> statAsync(String location, Executor executor) {
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		
+		StatObjectArgs args = StatObjectArgs
+										.builder()
+										.bucket(this.bucketName)
+										.region(this.region)
+										.object(location)
+										.build();
+		return completeOn(super.observeAsync("stat", () -> super.retryPolicy.callAsync("stat", () -> {
+			try {
+				return this.minioAsyncClient.statObject(args);
+			} catch (Exception e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		})), executor);
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #statFileAsync(String)} 方法, 在此基础上等待查询完成.
+	 * </p>
+	 *
+	 * @param location 文件存放在桶中的位置.
+	 * @return 文件的元数据, 文件不存在时为空.
+	 */
+	public Optional<StatObjectResponse> statFile(String location) {
+		try {
+			return this.statFileAsync(location).join();
+		} catch (CompletionException e) {
+			throw MinIoException.translate(e);
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     指定位置的文件是否存在, 语义继承 {@link #statFile(String)} 方法.
+	 * </p>
+	 *
+	 * @param location 文件存放在桶中的位置.
+	 * @return 文件存在时为 true.
+	 */
+	public boolean exists(String location) {
+		return this.statFile(location).isPresent();
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #statFileAsync(String, Executor)} 方法, 在此基础上不指定执行器.
+	 * </p>
+	 */
+	public CompletableFuture<Optional<StatObjectResponse>> statFileAsync(String location) {
+		return this.statFileAsync(location, null);
+	}
+	
+	/**
+	 * <p>
+	 *     经过元数据缓存获取指定位置的文件的元数据. <br />
+	 *
+	 *     与 {@link #statAsync(String, Executor)} 方法不同: 文件不存在时以空的 {@link Optional} 完成而不是异常完成;
+	 *     启用了元数据缓存(<em>metadata.cacheSize 大于 0</em>)时, 结果(<em>包括文件不存在</em>)在 metadata.ttl 或 metadata.negativeTtl 内直接返回;
+	 *     同一文件的并发查询共享一次 HEAD 请求. 由本助手上传或删除文件后, 其缓存的元数据立即失效.
+	 * </p>
+	 *
+	 * @param location 文件存放在桶中的位置.
+	 * @param executor 执行后续阶段的执行器, 为 null 时由 HTTP 客户端的线程执行.
+	 * @return 一个在获取完成时得到文件元数据的 {@link CompletableFuture}.
+	 */
+	public CompletableFuture<Optional<StatObjectResponse>> statFileAsync(String location, Executor executor) {
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		
+		return completeOn(this.metadataCache.get(this.cacheKey(location), key -> this
+																	.statAsync(location)
+																	.handle((stat, throwable) -> {
+																		if (throwable == null) {
+																			return Optional.of(stat);
+																		}
+																		Throwable cause = unwrap(throwable);
+																		if (cause instanceof ErrorResponseException e && NO_SUCH_KEY.equals(e.errorResponse().code())) {
+																			return Optional.empty();
+																		}
+																		throw throwable instanceof CompletionException completionException ? completionException : new CompletionException(cause);
+																	})), executor);
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #presignUrl(Method, String, Duration)} 方法, 生成下载(<em>GET</em>)用的 URL.
+	 * </p>
+	 */
+	public String presignGetUrl(String location, Duration expiry) {
+		return this.presignUrl(Method.GET, location, expiry);
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #presignUrl(Method, String, Duration)} 方法, 生成上传(<em>PUT</em>)用的 URL.
+	 * </p>
+	 */
+	public String presignPutUrl(String location, Duration expiry) {
+		return this.presignUrl(Method.PUT, location, expiry);
+	}
+	
+	/**
+	 * <p>
+	 *     生成访问指定 {@link #bucketName} 桶中指定位置的文件的预签名 URL, 适用于不公开的桶. <br />
+	 *
+	 *     签名完全在本地完成, 不发起任何请求(<em>未配置 region 时以 us-east-1 签名</em>), 默认由本助手而不是 MinIO 客户端签名(<em>见 presign.localSigning</em>).
+	 *     启用了缓存(<em>presign.cacheSize 大于 0</em>)时, 同一方法、文件与有效期的 URL 在 presign.reuseWindow 内重复使用,
+	 *     返回的 URL 总是至少在 expiry 内可用.
+	 * </p>
+	 *
+	 * @param method   URL 允许的 HTTP 方法.
+	 * @param location 文件存放在桶中的位置.
+	 * @param expiry   URL 至少可用的时间, 精确到秒, 不超过 7 天.
+	 * @return 预签名 URL.
+	 */
+	public String presignUrl(Method method, String location, Duration expiry) {
+		Assert.notNull(method, "method is null");
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		
+		try {
+			return this.presignedUrlCache.presign(method, location, expirySecondsOf(expiry));
+		} catch (Exception e) {
+			throw MinIoException.translate(e);
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     批量生成下载(<em>GET</em>)用的预签名 URL, 适用于一次渲染需要大量 URL 的页面.
+	 *     语义继承 {@link #presignUrl(Method, String, Duration)} 方法, 所有缓存的 URL 在一次加锁中取出.
+	 * </p>
+	 *
+	 * @param locations 文件存放在桶中的位置.
+	 * @param expiry    URL 至少可用的时间, 精确到秒, 不超过 7 天.
+	 * @return 键为文件存放在桶中的位置, 值为预签名 URL, 顺序与 locations 一致.
+	 */
+	public Map<String, String> presignGetUrls(Collection<String> locations, Duration expiry) {
+		Assert.notNull(locations, "locations is null");
+		Assert.state(locations.stream().allMatch(StringUtils :: hasLength), "locations is not valid");
+		
+		try {
+			return this.presignedUrlCache.presign(Method.GET, locations, expirySecondsOf(expiry));
+		} catch (Exception e) {
+			throw MinIoException.translate(e);
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #presignPostForm(Duration, Consumer)} 方法, 生成只能上传到 location 的表单. <br />
+	 *
+	 *     上传的文件大小必须在 minSize 与 maxSize 之间; contentType 以 '/' 结尾时(<em>如 "image/"</em>)只限制其前缀,
+	 *     否则必须完全一致, 为 null 时不限制. 返回的字段中已经包含 key 与(<em>完全一致时的</em>)Content-Type.
+	 * </p>
+	 *
+	 * @param location    上传文件存放在桶中的位置.
+	 * @param contentType 允许的内容类型或其前缀, 可以为 null.
+	 * @param minSize     允许的最小字节数.
+	 * @param maxSize     允许的最大字节数.
+	 * @param expiry      表单的有效期, 不超过 7 天.
+	 * @return 一个预签名 POST 表单.
+	 */
+	public PresignedPostForm presignPostForm(String location, String contentType, long minSize, long maxSize, Duration expiry) {
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		Assert.state(minSize >= 0 && minSize <= maxSize, "minSize or maxSize is not valid");
+		
+		boolean exactContentType = contentType != null && !contentType.endsWith("/");
+		PresignedPostForm form = this.presignPostForm(expiry, policy -> {
+			policy.addEqualsCondition("key", location);
+			policy.addContentLengthRangeCondition(minSize, maxSize);
+			if (exactContentType) {
+				policy.addEqualsCondition("Content-Type", contentType);
+			} else if (contentType != null) {
+				policy.addStartsWithCondition("Content-Type", contentType);
+			}
+		});
+		form.getFields().put("key", location);
+		if (exactContentType) {
+			form.getFields().put("Content-Type", contentType);
+		}
+		return form;
+	}
+	
+	/**
+	 * <p>
+	 *     生成浏览器直接上传文件至指定 {@link #bucketName} 桶的预签名 POST 表单, 文件不经过应用服务器. <br />
+	 *
+	 *     policyConsumer 用于添加策略的条件, 其中必须包含 key 的条件(<em>完全一致或前缀</em>);
+	 *     条件所要求的字段(<em>如 key、Content-Type</em>)需要由调用者加入表单. 签名在本地完成, 不发起任何请求.
+	 * </p>
+	 *
+	 * @param expiry         表单的有效期, 不超过 7 天.
+	 * @param policyConsumer 用于定制 POST 策略.
+	 * @return 一个预签名 POST 表单, 其字段可以修改.
+	 */
+	public PresignedPostForm presignPostForm(Duration expiry, Consumer<PostPolicy> policyConsumer) {
+		Assert.notNull(policyConsumer, "policyConsumer is null");
+		
+		PostPolicy policy = new PostPolicy(super.bucketName, ZonedDateTime.now().plusSeconds(expirySecondsOf(expiry)));
+		policyConsumer.accept(policy);
+		try {
+			Map<String, String> fields = this.signingCredentials != null
+												? policy.formData(this.signingCredentials, this.signingRegion)
+												: super.minioClient.getPresignedPostFormData(policy);
+			return new PresignedPostForm(this.prefix, new LinkedHashMap<>(fields));
+		} catch (Exception e) {
+			throw MinIoException.translate(e);
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     开始一个由客户端上传分片的分片上传, 之后以 {@link #presignUploadPartUrls(String, String, int, Duration)} 为客户端生成各分片的上传 URL,
+	 *     全部分片上传后以 {@link #completeMultipartUpload(String, String)} 合并, 放弃时以 {@link #abortMultipartUpload(String, String)} 中止.
+	 * </p>
+	 *
+	 * @param location    上传文件存放在桶中的位置.
+	 * @param contentType 上传文件的内容类型.
+	 * @return 分片上传的 ID.
+	 */
+	public String createMultipartUpload(String location, String contentType) {
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		Assert.state(StringUtils.hasLength(contentType), "contentType is not valid");
+		
+		return super.observe("createMultipart", () -> {
+			try {
+				return this.rawAsyncClient
+							.createMultipartUploadAsync(super.bucketName, super.region, location, ImmutableMultimap.of("Content-Type", contentType), null)
+							.get()
+							.result()
+							.uploadId();
+			} catch (Exception e) {
+				// 每次创建都得到新的分片上传, 重试可能遗留无人中止的分片上传, 因此不重试.
+				throw MinIoException.translate(e);
+			}
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #presignUploadPartUrls(String, String, int, Duration)} 方法, 只生成一个分片的 URL.
+	 * </p>
+	 */
+	public String presignUploadPartUrl(String location, String uploadId, int partNumber, Duration expiry) {
+		Assert.state(partNumber >= 1 && partNumber <= ObjectWriteArgs.MAX_MULTIPART_COUNT, "partNumber is not valid");
+		
+		return this.presignUploadPart(location, uploadId, partNumber, expirySecondsOf(expiry));
+	}
+	
+	/**
+	 * <p>
+	 *     为分片上传的第 1 至 partCount 个分片生成预签名的上传(<em>PUT</em>)URL, 客户端以 PUT 请求上传各分片的内容.
+	 *     除最后一个分片外, 每个分片至少为 5MB. 这些 URL 各不相同, 因此不经过预签名缓存.
+	 * </p>
+	 *
+	 * @param location  上传文件存放在桶中的位置.
+	 * @param uploadId  {@link #createMultipartUpload(String, String)} 返回的分片上传 ID.
+	 * @param partCount 分片的数量, 不超过 10000.
+	 * @param expiry    URL 的有效期, 不超过 7 天.
+	 * @return 按分片编号排列的 URL.
+	 */
+	public List<String> presignUploadPartUrls(String location, String uploadId, int partCount, Duration expiry) {
+		Assert.state(partCount >= 1 && partCount <= ObjectWriteArgs.MAX_MULTIPART_COUNT, "partCount is not valid");
+		
+		int expirySeconds = expirySecondsOf(expiry);
+		List<String> urls = new ArrayList<>(partCount);
+		for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+			urls.add(this.presignUploadPart(location, uploadId, partNumber, expirySeconds));
+		}
+		return urls;
+	}
+	
+	private String presignUploadPart(String location, String uploadId, int partNumber, int expirySeconds) {
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		Assert.state(StringUtils.hasLength(uploadId), "uploadId is not valid");
+		
+		try {
+			return this.presigner.presign(Method.PUT, location, expirySeconds, Map.of("partNumber", String.valueOf(partNumber), "uploadId", uploadId));
+		} catch (Exception e) {
+			throw MinIoException.translate(e);
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #completeMultipartUpload(String, String, List)} 方法, 在此基础上由服务器列举已上传的分片,
+	 *     客户端无需回传各分片的 ETag(<em>浏览器读取 ETag 响应头需要额外的 CORS 配置</em>).
+	 * </p>
+	 */
+	public UploadResultResponse completeMultipartUpload(String location, String uploadId) {
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		Assert.state(StringUtils.hasLength(uploadId), "uploadId is not valid");
+		
+		return this.completeMultipartUpload(location, uploadId, super.observe("listParts", () -> this.listParts(location, uploadId)));
+	}
+	
+	/**
+	 * <p>
+	 *     合并由客户端上传的分片, 完成分片上传.
+	 * </p>
+	 *
+	 * @param location 上传文件存放在桶中的位置.
+	 * @param uploadId 分片上传的 ID.
+	 * @param parts    已上传的分片(<em>编号与 ETag</em>), 按编号升序排列.
+	 * @return 一个上传结果响应实例.
+	 */
+	public UploadResultResponse completeMultipartUpload(String location, String uploadId, List<Part> parts) {
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		Assert.state(StringUtils.hasLength(uploadId), "uploadId is not valid");
+		Assert.state(parts != null && !parts.isEmpty(), "parts is empty");
+		
+		return super.observe("completeMultipart", () -> {
+			try {
+				ObjectWriteResponse response = this.rawAsyncClient
+														.completeMultipartUploadAsync(super.bucketName, super.region, location, uploadId, parts.toArray(Part[] :: new), null, null)
+														.get();
+				String url = "%s/%s/%s".formatted(super.endpoint, super.bucketName, location);
+				return new UploadResultResponse(url, response);
+			} catch (Exception e) {
+				// 合并成功但响应丢失时, 重试只会得到 NoSuchUpload, 因此不重试.
+				throw MinIoException.translate(e);
+			} finally {
+				this.invalidate(location);
+			}
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     中止分片上传, 释放已上传的分片所占用的空间.
+	 * </p>
+	 *
+	 * @param location 上传文件存放在桶中的位置.
+	 * @param uploadId 分片上传的 ID.
+	 */
+	public void abortMultipartUpload(String location, String uploadId) {
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		Assert.state(StringUtils.hasLength(uploadId), "uploadId is not valid");
+		
+		super.observe("abortMultipart", () -> super.retry("abortMultipart", () -> this.rawAsyncClient
+																						.abortMultipartUploadAsync(super.bucketName, super.region, location, uploadId, null, null)
+																						.get()));
+	}
+	
+	/**
+	 * <p>
+	 *     逐页(<em>每页至多 1000 个</em>)列举分片上传中已上传的分片, 每页各自重试.
+	 * </p>
+	 */
+	private List<Part> listParts(String location, String uploadId) {
+		List<Part> parts = new ArrayList<>();
+		int marker = 0;
+		while (true) {
+			int partNumberMarker = marker;
+			ListPartsResult result = super.retry("listParts", () -> this.rawAsyncClient
+																		.listPartsAsync(super.bucketName, super.region, location, 1000, partNumberMarker, uploadId, null, null)
+																		.get()
+																		.result());
+			parts.addAll(result.partList());
+			if (!result.isTruncated()) {
+				return parts;
+			}
+			marker = result.nextPartNumberMarker();
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     以 {@link #fanOut} 执行 tasks, 受检异常由 {@link MinIoException#translate(Throwable)} 转换.
+	 * </p>
+	 */
+	private <T> List<T> fanOut(List<? extends Callable<T>> tasks) {
+		try {
+			return this.fanOut.invokeAll(tasks, this.fanOutParallelism);
+		} catch (Exception e) {
+			throw MinIoException.translate(e);
+		}
+	}
+	
+	private static int expirySecondsOf(Duration expiry) {
+		Assert.notNull(expiry, "expiry is null");
+		long seconds = expiry.toSeconds();
+		Assert.state(seconds >= 1 && seconds <= GetPresignedObjectUrlArgs.DEFAULT_EXPIRY_TIME, "expiry must be between 1 second and 7 days");
+		return (int) seconds;
+	}
+	
+	/**
+	 * <p>
+	 *     剥去 throwable 外层的 {@link CompletionException}, {@link MinioAsyncClient#statObject(StatObjectArgs)} 返回的 future 自身就会再包装一层.
+	 * </p>
+	 */
+	private static Throwable unwrap(Throwable throwable) {
+		Throwable cause = throwable;
+		while (cause instanceof CompletionException && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		return cause;
+	}
+	
+	/**
+	 * <p>
+	 *     位置在共享的缓存中的键, 区分同一部署中不同的桶.
+	 * </p>
+	 */
+	private String cacheKey(String location) {
+		return super.bucketName + '/' + location;
+	}
+	
+	/**
+	 * <p>
+	 *     使指定位置的文件的缓存失效, 在本助手上传或删除文件后调用.
+	 * </p>
+	 */
+	private void invalidate(String location) {
+		this.metadataCache.invalidate(this.cacheKey(location));
+		if (this.objectCache != null) {
+			this.objectCache.remove(this.cacheKey(location));
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     由 MinIO 服务器提供给外界的完整 URL 得到文件在桶中的位置.
+	 * </p>
+	 */
+	private String locationOf(String fileAccessUrl) {
+		Assert.state(fileAccessUrl.startsWith(this.prefix + '/'), "fileAccessUrl does not belong to " + this.prefix);
+		return fileAccessUrl.substring(this.prefix.length() + 1);
+	}
+	
+	/**
+	 * <p>
+	 *     executor 不为 null 时, 令 future 的后续阶段在 executor 中执行.
+	 * </p>
+	 */
+	private static <T> CompletableFuture<T> completeOn(CompletableFuture<T> future, Executor executor) {
+		return executor == null ? future : future.whenCompleteAsync((result, throwable) -> {}, executor);
+	}
+	
+	/**
+	 * <p>
+	 *     以 Snowball 归档的方式批量上传文件至指定 {@link #bucketName} 桶, 键为文件存放在桶中的位置, 值为文件的流形式. <br />
+	 *
+	 *     {@link ByteArrayInputStream} 与 {@link FileInputStream} 的大小可以直接得出, 其内容在打包时才被读取;
+	 *     其他长度未知的流在打包前复制到 snowball.stagingDirectory 中的临时文件(<em>上传结束后删除</em>),
+	 *     启用了 snowball.heapStaging 时读入堆内存. 所有的流都会在上传结束后(<em>无论成功与否</em>)关闭.
+	 * </p>
+	 *
+	 * @param fileMap 要上传的文件.
+	 * @see #uploadFiles(Collection)
+	 */
+	public void uploadFiles(Map<String, InputStream> fileMap) {
+		Assert.notNull(fileMap, "fileMap is null");
+		
+		try {
+			this.uploadSnowballObjects(fileMap.entrySet().stream().map(this :: convertSnowballObject).iterator());
+		} finally {
+			// 未被打包的流同样需要关闭, 重复关闭是无害的.
+			fileMap.values().forEach(stream -> {
+				try {
+					stream.close();
+				} catch (IOException ignore) {}
+			});
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     以 Snowball 归档的方式批量上传文件至指定 {@link #bucketName} 桶. <br />
+	 *
+	 *     文件按 snowball.batchSize 与 snowball.batchCount 切分为若干子批次, 每个子批次打包为一个归档(<em>可选压缩</em>),
+	 *     最多同时上传 snowball.concurrency 个子批次. 每个文件的内容在打包时才从其流或本地文件中流式地读取,
+	 *     因此请在 {@link SnowballObject} 中提供正确的大小.
+	 * </p>
+	 *
+	 * @param objects 要上传的文件.
+	 */
+	public void uploadFiles(Collection<SnowballObject> objects) {
+		Assert.notNull(objects, "objects is null");
+		
+		this.uploadSnowballObjects(objects.iterator());
+	}
+	
+	private void uploadSnowballObjects(Iterator<SnowballObject> objects) {
+		super.observe("uploadBatch", () -> {
+			LongAdder bytes = new LongAdder();
+			List<String> names = new ArrayList<>();
+			try {
+				this.snowballUploader.upload(new Iterator<>() {
+					@Override
+					public boolean hasNext() {
+						return objects.hasNext();
+					}
+					
+					@Override
+					public SnowballObject next() {
+						SnowballObject object = objects.next();
+						names.add(object.name());
+						try {
+							bytes.add(SnowballUploader.sizeOf(object));
+						} catch (IOException ignore) {}
+						return object;
+					}
+				});
+			} catch (Exception e) {
+				throw MinIoException.translate(e);
+			} finally {
+				names.forEach(this :: invalidate);
+			}
+			super.metrics.recordBytes("uploadBatch", bytes.sum());
+			return null;
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     关闭本助手独占的 {@link #resources}(<em>清空缓存并删除对象缓存的磁盘目录</em>),
+	 *     由 {@link MinIoHelperRegistry} 在多个助手之间共享的资源由注册表关闭.
+	 * </p>
+	 */
+	@PreDestroy
+	private void destroy() {
+		if (this.ownsResources) {
+			this.resources.close();
+		}
+	}
+	
+	private SnowballObject convertSnowballObject(Map.Entry<String, InputStream> entry) {
+		InputStream file = entry.getValue();
+		try {
+			if (file instanceof ByteArrayInputStream) {
+				return new SnowballObject(entry.getKey(), file, file.available(), null);
+			}
+			if (file instanceof FileInputStream fileInputStream) {
+				FileChannel channel = fileInputStream.getChannel();
+				return new SnowballObject(entry.getKey(), file, channel.size() - channel.position(), null);
+			}
+			
+			return this.snowballUploader.stage(entry.getKey(), file);
 		} catch (IOException e) {
-			throw new RuntimeException(e.getMessage(), e);
+			throw new UncheckedIOException(e.getMessage(), e);
 		}
 	}
 }
@@ -0,0 +1,204 @@
+package indi.ly.crush.helper;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import indi.ly.crush.autoconfigure.MinIoProperties;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h2>MinIo 助手注册表</h2>
+ * <p>
+ *     管理 customize.minio.clients.&lt;name&gt; 下的具名配置, 每个配置对应一个 MinIO 部署(<em>一对客户端</em>)及其默认桶:
+ *     <ol>
+ *         <li>{@link #helper(String)} 与 {@link #helper(String, String)} 按配置名(<em>及桶名</em>)取得助手, 同一配置的助手共享客户端.</li>
+ *         <li>{@link #route(String)} 按对象键的前缀(<em>第一个 '/' 之前的部分, 如租户</em>)在一致性哈希环上选择配置,
+ *         增减配置时只有少量前缀会改变归属.</li>
+ *     </ol>
+ *     助手在首次取得时创建, 并由 Spring 容器完成注入与初始化(<em>指标、创建桶等</em>), 注册表销毁时一并销毁.
+ *     同一配置中不同桶的助手共享对象缓存、元数据缓存与重试预算, 其容量与预算针对整个配置而不是每个桶.
+ *     注册表销毁时关闭由其创建的 HTTP 客户端({@link Client#ownedHttpClient()}), 即停止其调度器的线程并关闭空闲的连接.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+public class MinIoHelperRegistry
+		implements DisposableBean {
+	private final Map<String, Client> clients = new LinkedHashMap<>();
+	/**
+	 * <p>
+	 *     一致性哈希环, 键为虚拟节点的哈希值, 值为配置名.
+	 * </p>
+	 */
+	private final NavigableMap<Long, String> ring = new TreeMap<>();
+	private final Map<String, MinIoHelper> helpers = new ConcurrentHashMap<>();
+	/**
+	 * <p>
+	 *     每个配置的助手共享的资源, 在首次取得该配置的助手时创建.
+	 * </p>
+	 */
+	private final Map<String, ClientResources> resources = new ConcurrentHashMap<>();
+	private final AutowireCapableBeanFactory beanFactory;
+	/**
+	 * <p>
+	 *     权重为 1 的配置在环上的虚拟节点数.
+	 * </p>
+	 */
+	private static final int VIRTUAL_NODES = 160;
+	private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+	
+	/**
+	 * @param clients     具名配置及其客户端.
+	 * @param beanFactory 用于注入与初始化助手, 为 null 时助手不经过 Spring 容器.
+	 */
+	public MinIoHelperRegistry(List<Client> clients, AutowireCapableBeanFactory beanFactory) {
+		Assert.notEmpty(clients, "clients is empty");
+		
+		for (Client client : clients) {
+			if (this.clients.put(client.name(), client) != null) {
+				throw new IllegalArgumentException("Duplicate MinIo client name '" + client.name() + "'");
+			}
+			int weight = client.properties().getRoutingWeight();
+			if (weight < 0) {
+				throw new IllegalArgumentException("'clients." + client.name() + ".routingWeight' must not be negative, but it is " + weight);
+			}
+			for (int i = 0; i < weight * VIRTUAL_NODES; i++) {
+				this.ring.put(hash(client.name() + '#' + i), client.name());
+			}
+		}
+		if (this.ring.isEmpty()) {
+			throw new IllegalArgumentException("At least one MinIo client must have a positive 'routingWeight'");
+		}
+		this.beanFactory = beanFactory;
+	}
+	
+	/**
+	 * <p>
+	 *     所有配置名, 顺序与配置的顺序一致.
+	 * </p>
+	 */
+	public Set<String> names() {
+		return Collections.unmodifiableSet(this.clients.keySet());
+	}
+	
+	/**
+	 * <p>
+	 *     操作 name 配置的默认桶的助手.
+	 * </p>
+	 *
+	 * @throws IllegalArgumentException 不存在名为 name 的配置时.
+	 */
+	public MinIoHelper helper(String name) {
+		return this.helper(name, this.clientOf(name).properties().getBucketName());
+	}
+	
+	/**
+	 * <p>
+	 *     操作 name 配置所指的 MinIO 部署中 bucketName 桶的助手, 其余配置(<em>上传、下载、缓存等</em>)取自 name 配置.
+	 * </p>
+	 *
+	 * @throws IllegalArgumentException 不存在名为 name 的配置时.
+	 */
+	public MinIoHelper helper(String name, String bucketName) {
+		Assert.hasLength(bucketName, "bucketName is not valid");
+		
+		Client client = this.clientOf(name);
+		return this.helpers.computeIfAbsent(name + '/' + bucketName, beanName -> {
+			ClientResources shared = this.resources.computeIfAbsent(name, key -> new ClientResources(client.properties()));
+			MinIoHelper helper = new MinIoHelper(client.minioClient(), client.minioAsyncClient(), client.properties(), bucketName, shared, false);
+			if (this.beanFactory == null) {
+				return helper;
+			}
+			this.beanFactory.autowireBean(helper);
+			return (MinIoHelper) this.beanFactory.initializeBean(helper, "minIoHelper." + beanName);
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     按对象键的前缀选择配置, 返回操作其默认桶的助手. 同一前缀的对象键总是选择同一个配置.
+	 * </p>
+	 *
+	 * @param key 对象在桶中的位置, 如: "tenant/xxx/文件名.文件扩展名".
+	 */
+	public MinIoHelper route(String key) {
+		return this.helper(this.nameOf(key));
+	}
+	
+	/**
+	 * <p>
+	 *     对象键在一致性哈希环上所属的配置名.
+	 * </p>
+	 */
+	public String nameOf(String key) {
+		Assert.hasLength(key, "key is not valid");
+		
+		int end = key.indexOf('/');
+		Map.Entry<Long, String> node = this.ring.ceilingEntry(hash(end == -1 ? key : key.substring(0, end)));
+		return (node != null ? node : this.ring.firstEntry()).getValue();
+	}
+	
+	@Override
+	public void destroy() {
+		if (this.beanFactory != null) {
+			this.helpers.values().forEach(this.beanFactory :: destroyBean);
+		}
+		this.helpers.clear();
+		this.resources.values().forEach(ClientResources :: close);
+		this.resources.clear();
+		for (Client client : this.clients.values()) {
+			OkHttpClient httpClient = client.ownedHttpClient();
+			if (httpClient != null) {
+				httpClient.dispatcher().executorService().shutdown();
+				httpClient.connectionPool().evictAll();
+			}
+		}
+	}
+	
+	private Client clientOf(String name) {
+		Client client = this.clients.get(name);
+		if (client == null) {
+			throw new IllegalArgumentException("No MinIo client named '" + name + "', available: " + this.clients.keySet());
+		}
+		return client;
+	}
+	
+	private static long hash(String value) {
+		return HASH_FUNCTION.hashString(value, StandardCharsets.UTF_8).asLong();
+	}
+	
+	/**
+	 * <h2>具名配置</h2>
+	 *
+	 * @param name             配置名.
+	 * @param minioClient      该配置的同步客户端.
+	 * @param minioAsyncClient 该配置的异步客户端.
+	 * @param properties       该配置的属性.
+	 * @param ownedHttpClient  由注册表的创建者为该配置专门构建的 HTTP 客户端, 注册表销毁时将其关闭; 客户端由他处管理(<em>如容器中的 Bean</em>)时为 null.
+	 */
+	public record Client(String name, MinioClient minioClient, MinioAsyncClient minioAsyncClient, MinIoProperties properties, OkHttpClient ownedHttpClient) {
+		/**
+		 * <p>
+		 *     客户端由他处管理, 注册表不负责关闭.
+		 * </p>
+		 */
+		public Client(String name, MinioClient minioClient, MinioAsyncClient minioAsyncClient, MinIoProperties properties) {
+			this(name, minioClient, minioAsyncClient, properties, null);
+		}
+	}
+}
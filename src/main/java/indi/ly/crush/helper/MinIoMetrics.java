@@ -0,0 +1,69 @@
+package indi.ly.crush.helper;
+
+/**
+ * <h2>MinIo 指标</h2>
+ * <p>
+ *     {@link MinIoHelper} 在每个操作的热路径上回调的指标记录器, 默认为什么也不做的 {@link #NOOP}.
+ *     存在 Micrometer 的 MeterRegistry Bean 时, 自动配置为 {@link MicrometerMinIoMetrics}.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+public interface MinIoMetrics {
+	MinIoMetrics NOOP = new MinIoMetrics() {};
+	
+	/**
+	 * <p>
+	 *     一个操作开始时调用.
+	 * </p>
+	 *
+	 * @param operation 操作名称, 如 upload、remove、search.
+	 * @return 用于在操作结束时记录耗时与结果的样本.
+	 */
+	default Sample start(String operation) {
+		return Sample.NOOP;
+	}
+	
+	/**
+	 * <p>
+	 *     记录一个操作所传输的字节数.
+	 * </p>
+	 */
+	default void recordBytes(String operation, long bytes) {}
+	
+	/**
+	 * <p>
+	 *     记录一次内容类型识别的耗时(<em>纳秒</em>).
+	 * </p>
+	 */
+	default void recordDetection(long nanos) {}
+	
+	/**
+	 * <p>
+	 *     记录一次重试, 在退避之前调用.
+	 * </p>
+	 *
+	 * @param operation 被重试的操作名称.
+	 */
+	default void recordRetry(String operation) {}
+	
+	/**
+	 * <h2>样本</h2>
+	 *
+	 * @author 云上的云
+	 * @since 1.0
+	 */
+	interface Sample {
+		Sample NOOP = throwable -> {};
+		
+		/**
+		 * <p>
+		 *     操作结束时调用, 每个样本只调用一次.
+		 * </p>
+		 *
+		 * @param throwable 操作失败的原因, 成功时为 null.
+		 */
+		void stop(Throwable throwable);
+	}
+}
@@ -0,0 +1,94 @@
+package indi.ly.crush.helper;
+
+import com.google.common.collect.Multimap;
+import io.minio.AbortMultipartUploadResponse;
+import io.minio.CreateMultipartUploadResponse;
+import io.minio.ListObjectsV2Response;
+import io.minio.ListPartsResponse;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.UploadPartResponse;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.Part;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <h2>MinIo 原语客户端</h2>
+ * <p>
+ *     {@link MinioAsyncClient} 将分片上传(<em>创建、上传分片、列举分片、合并、中止</em>)、分页列举等 S3 原语声明为 protected,
+ *     此类以复制构造的方式共享同一个 {@link MinioAsyncClient} 的 HTTP 客户端与凭证, 并将这些原语开放给本包使用.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class MinIoRawAsyncClient
+		extends MinioAsyncClient {
+	
+	MinIoRawAsyncClient(MinioAsyncClient client) {
+		super(client);
+	}
+	
+	@Override
+	public CompletableFuture<CreateMultipartUploadResponse> createMultipartUploadAsync(
+			String bucketName, String region, String objectName,
+			Multimap<String, String> headers, Multimap<String, String> extraQueryParams)
+			throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+				   NoSuchAlgorithmException, XmlParserException {
+		return super.createMultipartUploadAsync(bucketName, region, objectName, headers, extraQueryParams);
+	}
+	
+	@Override
+	public CompletableFuture<UploadPartResponse> uploadPartAsync(
+			String bucketName, String region, String objectName, Object data, long length,
+			String uploadId, int partNumber,
+			Multimap<String, String> extraHeaders, Multimap<String, String> extraQueryParams)
+			throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+				   NoSuchAlgorithmException, XmlParserException {
+		return super.uploadPartAsync(bucketName, region, objectName, data, length, uploadId, partNumber, extraHeaders, extraQueryParams);
+	}
+	
+	@Override
+	public CompletableFuture<ObjectWriteResponse> completeMultipartUploadAsync(
+			String bucketName, String region, String objectName, String uploadId, Part[] parts,
+			Multimap<String, String> extraHeaders, Multimap<String, String> extraQueryParams)
+			throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+				   NoSuchAlgorithmException, XmlParserException {
+		return super.completeMultipartUploadAsync(bucketName, region, objectName, uploadId, parts, extraHeaders, extraQueryParams);
+	}
+	
+	@Override
+	public CompletableFuture<AbortMultipartUploadResponse> abortMultipartUploadAsync(
+			String bucketName, String region, String objectName, String uploadId,
+			Multimap<String, String> extraHeaders, Multimap<String, String> extraQueryParams)
+			throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+				   NoSuchAlgorithmException, XmlParserException {
+		return super.abortMultipartUploadAsync(bucketName, region, objectName, uploadId, extraHeaders, extraQueryParams);
+	}
+	
+	@Override
+	public CompletableFuture<ListPartsResponse> listPartsAsync(
+			String bucketName, String region, String objectName, Integer maxParts, Integer partNumberMarker, String uploadId,
+			Multimap<String, String> extraHeaders, Multimap<String, String> extraQueryParams)
+			throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+				   NoSuchAlgorithmException, XmlParserException {
+		return super.listPartsAsync(bucketName, region, objectName, maxParts, partNumberMarker, uploadId, extraHeaders, extraQueryParams);
+	}
+	
+	@Override
+	public CompletableFuture<ListObjectsV2Response> listObjectsV2Async(
+			String bucketName, String region, String delimiter, String encodingType, String startAfter,
+			Integer maxKeys, String prefix, String continuationToken, boolean fetchOwner, boolean includeUserMetadata,
+			Multimap<String, String> extraHeaders, Multimap<String, String> extraQueryParams)
+			throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+				   NoSuchAlgorithmException, XmlParserException {
+		return super.listObjectsV2Async(bucketName, region, delimiter, encodingType, startAfter, maxKeys, prefix,
+										continuationToken, fetchOwner, includeUserMetadata, extraHeaders, extraQueryParams);
+	}
+}
@@ -0,0 +1,406 @@
+package indi.ly.crush.helper;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.ObjectWriteArgs;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.UploadObjectArgs;
+import io.minio.messages.Part;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <h2>分片上传器</h2>
+ * <p>
+ *     基于 {@link MinIoRawAsyncClient} 的分片上传原语, 将对象切分为若干分片后上传, 任一分片最终失败时中止本次分片上传. <br />
+ *
+ *     分片的内容可以重新读取(<em>堆内存中的缓冲区或文件中的区间</em>), 因此每个分片按 {@link #retryPolicy} 各自重试;
+ *     创建与合并分片上传不是幂等的, 不会被重试.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class MultipartUploader {
+	private final MinIoRawAsyncClient client;
+	private final String bucketName;
+	private final String region;
+	private final int partSize;
+	/**
+	 * <p>
+	 *     上传未知长度的流时, 同时处于读取或上传状态的分片数量.
+	 * </p>
+	 */
+	private final int pipelineDepth;
+	/**
+	 * <p>
+	 *     上传文件时, 同时处于上传状态的分片数量.
+	 * </p>
+	 */
+	private final int concurrency;
+	/**
+	 * <p>
+	 *     单个分片失败后的最大重试次数.
+	 * </p>
+	 */
+	private final int partRetries;
+	private final RetryPolicy retryPolicy;
+	private final Log logger = LogFactory.getLog(this.getClass());
+	private static final long MIB = 1024 * 1024;
+	
+	MultipartUploader(MinIoRawAsyncClient client, String bucketName, String region, long partSize,
+					  int pipelineDepth, int concurrency, int partRetries, RetryPolicy retryPolicy) {
+		this.client = client;
+		this.bucketName = bucketName;
+		this.region = region;
+		this.partSize = Math.toIntExact(partSize);
+		this.pipelineDepth = pipelineDepth;
+		this.concurrency = concurrency;
+		this.partRetries = partRetries;
+		this.retryPolicy = retryPolicy;
+	}
+	
+	/**
+	 * <p>
+	 *     上传一个未知长度的流. <br />
+	 *
+	 *     流的长度不超过一个分片时, 直接以已知大小上传; 否则以流水线的方式分片上传:
+	 *     在前一个分片上传的同时读取下一个分片, 处于读取或上传状态的分片最多有 {@link #pipelineDepth} 个.
+	 *     分片在堆内存中, 失败时独立重试, 超过 {@link #partRetries} 次后中止本次分片上传.
+	 * </p>
+	 *
+	 * @param stream      上传文件的流形式, 由调用者负责关闭.
+	 * @param objectName  上传文件存放在桶中的位置.
+	 * @param contentType 上传文件的内容类型.
+	 * @param headers     额外的请求头(<em>如 Content-Encoding 与用户元数据</em>), 可以为空.
+	 * @return 合并分片后的写入响应.
+	 * @throws Exception 读取流或上传失败时.
+	 */
+	ObjectWriteResponse upload(InputStream stream, String objectName, String contentType, Map<String, String> headers) throws Exception {
+		byte[] buffer = stream.readNBytes(this.partSize);
+		if (buffer.length < this.partSize) {
+			byte[] content = buffer;
+			return this.retryPolicy.call("upload", this.partRetries + 1, () -> this.client.putObject(PutObjectArgs
+																										.builder()
+																										.bucket(this.bucketName)
+																										.region(this.region)
+																										.object(objectName)
+																										.stream(new ByteArrayInputStream(content), content.length, -1)
+																										.contentType(contentType)
+																										.headers(headers)
+																										.build()).get());
+		}
+		
+		String uploadId = this.createMultipartUpload(objectName, contentType, headers);
+		try {
+			Semaphore permits = new Semaphore(this.pipelineDepth);
+			AtomicBoolean failed = new AtomicBoolean();
+			List<CompletableFuture<Part>> futures = new ArrayList<>();
+			int partNumber = 0;
+			// 每个分片在读取之前取得许可、上传结束后归还, 因此堆内存中最多有 pipelineDepth 个分片.
+			permits.acquire();
+			while (buffer.length > 0) {
+				if (partNumber == ObjectWriteArgs.MAX_MULTIPART_COUNT) {
+					throw new IllegalArgumentException("The stream exceeds " + ObjectWriteArgs.MAX_MULTIPART_COUNT + " parts of " + this.partSize + " bytes");
+				}
+				CompletableFuture<Part> future = this.uploadPart(objectName, uploadId, ++partNumber, buffer);
+				future.whenComplete((part, throwable) -> {
+					if (throwable != null) {
+						failed.set(true);
+					}
+					permits.release();
+				});
+				futures.add(future);
+				if (failed.get()) {
+					break;
+				}
+				permits.acquire();
+				buffer = stream.readNBytes(this.partSize);
+				if (buffer.length == 0) {
+					permits.release();
+				}
+			}
+			return this.completeMultipartUpload(objectName, uploadId, futures);
+		} catch (Exception e) {
+			this.abortMultipartUpload(objectName, uploadId);
+			throw e;
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     上传一个本地文件. <br />
+	 *
+	 *     文件不超过一个分片时直接上传; 否则将文件切分为若干分片, 最多同时上传 {@link #concurrency} 个分片.
+	 *     每个分片都以 {@link RandomAccessFile} 的形式从文件中的对应位置直接读取, 不会被整体读入堆内存.
+	 *     单个分片失败时独立重试, 超过 {@link #partRetries} 次后中止本次分片上传.
+	 * </p>
+	 *
+	 * @param file        上传的本地文件.
+	 * @param objectName  上传文件存放在桶中的位置.
+	 * @param contentType 上传文件的内容类型.
+	 * @return 合并分片后的写入响应.
+	 * @throws Exception 读取文件或上传失败时.
+	 */
+	ObjectWriteResponse upload(Path file, String objectName, String contentType) throws Exception {
+		long objectSize = Files.size(file);
+		long partSize = this.partSizeOf(objectSize);
+		if (objectSize <= partSize) {
+			UploadObjectArgs args = UploadObjectArgs
+												.builder()
+												.bucket(this.bucketName)
+												.region(this.region)
+												.object(objectName)
+												.filename(file.toString())
+												.contentType(contentType)
+												.build();
+			// 每次上传都重新打开文件.
+			return this.retryPolicy.call("upload", this.partRetries + 1, () -> this.client.uploadObject(args).get());
+		}
+		
+		return this.uploadParts(objectSize, partSize, (offset, length) -> {
+			RandomAccessFile data = new RandomAccessFile(file.toFile(), "r");
+			data.seek(offset);
+			return data;
+		}, objectName, contentType);
+	}
+	
+	/**
+	 * <p>
+	 *     上传文件通道中从 position 开始的 count 个字节. <br />
+	 *
+	 *     语义与 {@link #upload(Path, String, String)} 相同, 每个分片都通过 {@link FileChannel#read(ByteBuffer, long)}
+	 *     从通道的对应位置按需读取, 不会改变通道的位置. <br />
+	 *
+	 *     与 {@link RandomAccessFile} 不同, MinIO 客户端会将 {@link InputStream} 形式的分片整体复制到堆内存的缓冲区后再发送,
+	 *     因此每个处于上传状态的分片都占用一个分片大小的堆内存, 总量不超过分片大小 × {@link #concurrency}.
+	 * </p>
+	 *
+	 * @param channel     上传的文件通道, 由调用者负责关闭.
+	 * @param position    上传内容在通道中的起始位置.
+	 * @param count       上传内容的字节数.
+	 * @param objectName  上传文件存放在桶中的位置.
+	 * @param contentType 上传文件的内容类型.
+	 * @return 合并分片后的写入响应.
+	 * @throws Exception 读取通道或上传失败时.
+	 */
+	ObjectWriteResponse upload(FileChannel channel, long position, long count, String objectName, String contentType) throws Exception {
+		long partSize = this.partSizeOf(count);
+		if (count <= partSize) {
+			return this.retryPolicy.call("upload", this.partRetries + 1, () -> this.client.putObject(PutObjectArgs
+																										.builder()
+																										.bucket(this.bucketName)
+																										.region(this.region)
+																										.object(objectName)
+																										.stream(new ChannelRangeInputStream(channel, position, count), count, -1)
+																										.contentType(contentType)
+																										.build()).get());
+		}
+		
+		return this.uploadParts(count, partSize,
+								(offset, length) -> new ChannelRangeInputStream(channel, position + offset, length),
+								objectName, contentType);
+	}
+	
+	/**
+	 * <p>
+	 *     将大小为 objectSize 的对象按 partSize 切分为若干分片, 最多同时上传 {@link #concurrency} 个分片.
+	 * </p>
+	 */
+	private ObjectWriteResponse uploadParts(long objectSize, long partSize, PartOpener opener,
+											String objectName, String contentType) throws Exception {
+		String uploadId = this.createMultipartUpload(objectName, contentType, Map.of());
+		try {
+			Semaphore permits = new Semaphore(this.concurrency);
+			AtomicBoolean failed = new AtomicBoolean();
+			List<CompletableFuture<Part>> futures = new ArrayList<>();
+			int partNumber = 0;
+			for (long offset = 0; offset < objectSize; offset += partSize) {
+				permits.acquire();
+				long length = Math.min(partSize, objectSize - offset);
+				CompletableFuture<Part> future = this.uploadPart(opener, offset, length, objectName, uploadId, ++partNumber);
+				future.whenComplete((part, throwable) -> {
+					if (throwable != null) {
+						failed.set(true);
+					}
+					permits.release();
+				});
+				futures.add(future);
+				if (failed.get()) {
+					break;
+				}
+			}
+			return this.completeMultipartUpload(objectName, uploadId, futures);
+		} catch (Exception e) {
+			this.abortMultipartUpload(objectName, uploadId);
+			throw e;
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     对象按 {@link #partSize} 切分会超出 {@link ObjectWriteArgs#MAX_MULTIPART_COUNT} 个分片时, 按 1MB 对齐放大分片.
+	 * </p>
+	 */
+	private long partSizeOf(long objectSize) {
+		long minPartSize = (objectSize + ObjectWriteArgs.MAX_MULTIPART_COUNT - 1) / ObjectWriteArgs.MAX_MULTIPART_COUNT;
+		return Math.max(this.partSize, (minPartSize + MIB - 1) / MIB * MIB);
+	}
+	
+	private String createMultipartUpload(String objectName, String contentType, Map<String, String> extraHeaders) throws Exception {
+		Multimap<String, String> headers = ImmutableMultimap
+														.<String, String>builder()
+														.put("Content-Type", contentType)
+														.putAll(extraHeaders.entrySet())
+														.build();
+		return this.client
+					.createMultipartUploadAsync(this.bucketName, this.region, objectName, headers, null)
+					.get()
+					.result()
+					.uploadId();
+	}
+	
+	private CompletableFuture<Part> uploadPart(String objectName, String uploadId, int partNumber, byte[] data) {
+		return this.retryPolicy.callAsync("uploadPart", this.partRetries + 1, () -> {
+			try {
+				return this.client
+							.uploadPartAsync(this.bucketName, this.region, objectName, data, data.length, uploadId, partNumber, null, null)
+							.thenApply(response -> new Part(partNumber, response.etag()));
+			} catch (Exception e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     上传一个分片, 每次尝试都重新打开分片的内容.
+	 * </p>
+	 */
+	private CompletableFuture<Part> uploadPart(PartOpener opener, long offset, long length, String objectName,
+											   String uploadId, int partNumber) {
+		return this.retryPolicy.callAsync("uploadPart", this.partRetries + 1, () -> {
+			CompletableFuture<Part> future;
+			try {
+				Closeable data = opener.open(offset, length);
+				try {
+					future = this.client
+								.uploadPartAsync(this.bucketName, this.region, objectName, data, length, uploadId, partNumber, null, null)
+								.thenApply(response -> new Part(partNumber, response.etag()));
+				} catch (Exception e) {
+					future = CompletableFuture.failedFuture(e);
+				}
+				future.whenComplete((part, throwable) -> closeQuietly(data));
+			} catch (Exception e) {
+				future = CompletableFuture.failedFuture(e);
+			}
+			return future;
+		});
+	}
+	
+	private ObjectWriteResponse completeMultipartUpload(String objectName, String uploadId,
+														List<CompletableFuture<Part>> futures) throws Exception {
+		Part[] parts = new Part[futures.size()];
+		for (int i = 0; i < parts.length; i++) {
+			try {
+				parts[i] = futures.get(i).get();
+			} catch (ExecutionException e) {
+				throw (e.getCause() instanceof Exception cause ? cause : e);
+			}
+		}
+		return this.client
+					.completeMultipartUploadAsync(this.bucketName, this.region, objectName, uploadId, parts, null, null)
+					.get();
+	}
+	
+	private void abortMultipartUpload(String objectName, String uploadId) {
+		try {
+			this.retryPolicy.call("abortMultipart", () -> this.client.abortMultipartUploadAsync(this.bucketName, this.region, objectName, uploadId, null, null).get());
+		} catch (Exception e) {
+			this.logger.warn("Failed to abort the multipart upload '" + uploadId + "' of the object '" + objectName + "'", e);
+		}
+	}
+	
+	private static void closeQuietly(Closeable closeable) {
+		try {
+			closeable.close();
+		} catch (IOException ignore) {}
+	}
+	
+	/**
+	 * <h2>分片打开器</h2>
+	 */
+	@FunctionalInterface
+	private interface PartOpener {
+		/**
+		 * <p>
+		 *     打开对象中 [offset, offset + length) 区间的内容, 返回值必须是 {@link RandomAccessFile} 或者 {@link InputStream}.
+		 * </p>
+		 */
+		Closeable open(long offset, long length) throws IOException;
+	}
+	
+	/**
+	 * <h2>通道区间输入流</h2>
+	 * <p>
+	 *     以位置读取的方式读取 {@link FileChannel} 中的一段区间, 多个实例可以并发地读取同一个通道.
+	 * </p>
+	 */
+	private static class ChannelRangeInputStream
+			extends InputStream {
+		private final FileChannel channel;
+		private long position;
+		private final long end;
+		
+		ChannelRangeInputStream(FileChannel channel, long position, long length) {
+			this.channel = channel;
+			this.position = position;
+			this.end = position + length;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return this.read(b, 0, 1) == -1 ? -1 : (b[0] & 0xFF);
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			long remaining = this.end - this.position;
+			if (remaining <= 0) {
+				return -1;
+			}
+			int n = this.channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), this.position);
+			if (n > 0) {
+				this.position += n;
+			}
+			return n;
+		}
+		
+		@Override
+		public int available() {
+			return (int) Math.min(this.end - this.position, Integer.MAX_VALUE);
+		}
+	}
+}
@@ -0,0 +1,315 @@
+package indi.ly.crush.helper;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h2>对象缓存</h2>
+ * <p>
+ *     下载的读穿透缓存, 分为两层, 每层各自按字节数限制容量, 以 LRU 的顺序淘汰:
+ *     <ol>
+ *         <li>堆内存层: 不超过 {@link #heapEntryLimit} 的对象以字节数组的形式缓存.</li>
+ *         <li>磁盘层: 更大但不超过 {@link #diskEntryLimit} 的对象缓存为本地文件, 读取时以内存映射的方式访问.</li>
+ *     </ol>
+ *     每个条目记录其 ETag 与最近一次确认有效的时间, 由调用者决定何时以 If-None-Match 条件请求重新确认.
+ *     压缩过的对象以压缩后的形式缓存, 条目记录其压缩算法, 由调用者在读取时解压.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class ObjectCache {
+	private final Tier heap;
+	private final Tier disk;
+	private final long heapEntryLimit;
+	private final long diskEntryLimit;
+	private final Path directory;
+	private final Log logger = LogFactory.getLog(this.getClass());
+	
+	ObjectCache(long heapSize, long heapEntryLimit, long diskSize, long diskEntryLimit, Path directory) throws IOException {
+		this.heap = new Tier(heapSize);
+		this.disk = new Tier(diskSize);
+		this.heapEntryLimit = Math.min(heapEntryLimit, heapSize);
+		this.diskEntryLimit = Math.min(diskEntryLimit, diskSize);
+		// 每个实例使用各自的子目录, 避免同一主机上的多个进程或实例互相删除缓存文件.
+		this.directory = diskSize > 0 ? Files.createTempDirectory(Files.createDirectories(directory), "cache-") : null;
+	}
+	
+	/**
+	 * <p>
+	 *     是否会缓存大小为 size 的对象.
+	 * </p>
+	 */
+	boolean accepts(long size) {
+		return size >= 0 && (size <= this.heapEntryLimit || size <= this.diskEntryLimit);
+	}
+	
+	/**
+	 * <p>
+	 *     大小为 size 的对象是否缓存在堆内存层.
+	 * </p>
+	 */
+	boolean onHeap(long size) {
+		return size <= this.heapEntryLimit;
+	}
+	
+	Entry get(String key) {
+		Entry entry = this.heap.get(key);
+		return entry != null ? entry : this.disk.get(key);
+	}
+	
+	void putHeap(String key, String etag, String encoding, byte[] content) {
+		this.disk.remove(key);
+		this.heap.put(key, new Entry(etag, encoding, content.length, content, null));
+	}
+	
+	/**
+	 * <p>
+	 *     将对象的内容写入磁盘层的文件后缓存.
+	 * </p>
+	 *
+	 * @param content 对象的内容, 由调用者负责关闭.
+	 * @return 缓存的条目.
+	 */
+	Entry putDisk(String key, String etag, String encoding, InputStream content) throws IOException {
+		Path temporary = Files.createTempFile(this.directory, "object-", ".tmp");
+		try {
+			long size;
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				size = content.transferTo(Channels.newOutputStream(channel));
+			}
+			Path file = Files.move(temporary, temporary.resolveSibling(temporary.getFileName().toString().replace(".tmp", ".bin")), StandardCopyOption.ATOMIC_MOVE);
+			Entry entry = new Entry(etag, encoding, size, null, file);
+			this.heap.remove(key);
+			this.disk.put(key, entry);
+			return entry;
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     以 If-None-Match 条件请求确认条目仍然有效后调用, 更新其确认时间.
+	 * </p>
+	 */
+	void validated(Entry entry) {
+		entry.validatedAt = System.nanoTime();
+	}
+	
+	void remove(String key) {
+		this.heap.remove(key);
+		this.disk.remove(key);
+	}
+	
+	/**
+	 * <p>
+	 *     清空缓存并删除磁盘层的目录.
+	 * </p>
+	 */
+	void close() {
+		this.heap.clear();
+		this.disk.clear();
+		if (this.directory != null) {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory)) {
+				for (Path file : files) {
+					Files.deleteIfExists(file);
+				}
+				Files.deleteIfExists(this.directory);
+			} catch (IOException e) {
+				this.logger.warn("Failed to delete the cache directory '" + this.directory + "'", e);
+			}
+		}
+	}
+	
+	private void release(Entry entry) {
+		if (entry.file != null) {
+			try {
+				// 已映射的缓冲区在文件删除后仍然可以读取(Windows 除外, 此时删除失败, 留待下次清理).
+				Files.deleteIfExists(entry.file);
+			} catch (IOException e) {
+				this.logger.warn("Failed to delete the cached file '" + entry.file + "'", e);
+			}
+		}
+	}
+	
+	/**
+	 * <h2>缓存条目</h2>
+	 */
+	final class Entry {
+		final String etag;
+		/**
+		 * <p>
+		 *     对象的压缩算法, 未压缩时为 null.
+		 * </p>
+		 */
+		final String encoding;
+		final long size;
+		private final byte[] content;
+		private final Path file;
+		private volatile MappedByteBuffer mapped;
+		private volatile long validatedAt = System.nanoTime();
+		
+		private Entry(String etag, String encoding, long size, byte[] content, Path file) {
+			this.etag = etag;
+			this.encoding = encoding;
+			this.size = size;
+			this.content = content;
+			this.file = file;
+		}
+		
+		/**
+		 * <p>
+		 *     距最近一次确认有效是否未超过 ttlNanos 纳秒.
+		 * </p>
+		 */
+		boolean isFresh(long ttlNanos) {
+			return System.nanoTime() - this.validatedAt < ttlNanos;
+		}
+		
+		/**
+		 * <p>
+		 *     打开一个读取条目内容的流, 磁盘层的条目在首次读取时映射到内存, 此后的读取不再经过系统调用.
+		 * </p>
+		 */
+		InputStream open() throws IOException {
+			if (this.content != null) {
+				return new ByteArrayInputStream(this.content);
+			}
+			
+			MappedByteBuffer buffer = this.mapped;
+			if (buffer == null) {
+				try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+					buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, this.size);
+				}
+				this.mapped = buffer;
+			}
+			return new ByteBufferInputStream(buffer.duplicate());
+		}
+	}
+	
+	/**
+	 * <h2>缓存层</h2>
+	 * <p>
+	 *     按字节数限制容量的 LRU 映射, 所有操作都在自身上同步.
+	 * </p>
+	 */
+	private class Tier {
+		private final long capacity;
+		private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+		private long size;
+		
+		Tier(long capacity) {
+			this.capacity = capacity;
+		}
+		
+		synchronized Entry get(String key) {
+			return this.entries.get(key);
+		}
+		
+		void put(String key, Entry entry) {
+			Entry previous;
+			List<Entry> evicted = new ArrayList<>();
+			synchronized (this) {
+				previous = this.entries.put(key, entry);
+				this.size += entry.size - (previous == null ? 0 : previous.size);
+				Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+				while (this.size > this.capacity && iterator.hasNext()) {
+					Map.Entry<String, Entry> eldest = iterator.next();
+					iterator.remove();
+					this.size -= eldest.getValue().size;
+					evicted.add(eldest.getValue());
+				}
+			}
+			
+			if (previous != null && previous != entry) {
+				ObjectCache.this.release(previous);
+			}
+			evicted.forEach(ObjectCache.this :: release);
+		}
+		
+		void clear() {
+			List<Entry> removed;
+			synchronized (this) {
+				removed = new ArrayList<>(this.entries.values());
+				this.entries.clear();
+				this.size = 0;
+			}
+			removed.forEach(ObjectCache.this :: release);
+		}
+		
+		void remove(String key) {
+			Entry removed;
+			synchronized (this) {
+				removed = this.entries.remove(key);
+				if (removed != null) {
+					this.size -= removed.size;
+				}
+			}
+			if (removed != null) {
+				ObjectCache.this.release(removed);
+			}
+		}
+	}
+	
+	/**
+	 * <h2>字节缓冲区输入流</h2>
+	 */
+	private static class ByteBufferInputStream
+			extends InputStream {
+		private final ByteBuffer buffer;
+		
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+		
+		@Override
+		public int read() {
+			return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0) {
+				return 0;
+			}
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(length, this.buffer.remaining());
+			this.buffer.get(bytes, offset, count);
+			return count;
+		}
+		
+		@Override
+		public long skip(long n) {
+			int count = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+			this.buffer.position(this.buffer.position() + count);
+			return count;
+		}
+		
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package indi.ly.crush.helper;
+
+import io.minio.ListObjectsArgs;
+import io.minio.messages.Item;
+import io.minio.messages.ListBucketResultV2;
+import io.minio.messages.Prefix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <h2>对象列举器</h2>
+ * <p>
+ *     基于 {@link MinIoRawAsyncClient} 的 ListObjectsV2 原语, 按页异步地列举桶中的对象, 每次只请求一页.
+ *     不支持按版本列举以及 ListObjects V1 接口. 每页的请求按重试策略各自重试.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class ObjectLister {
+	private final MinIoRawAsyncClient client;
+	private final ListObjectsArgs args;
+	private final String encodingType;
+	private final RetryPolicy retryPolicy;
+	
+	ObjectLister(MinIoRawAsyncClient client, ListObjectsArgs args, RetryPolicy retryPolicy) {
+		if (args.includeVersions() || args.useApiVersion1()) {
+			throw new IllegalArgumentException("Listing object versions or using the ListObjects V1 API is not supported");
+		}
+		this.client = client;
+		this.args = args;
+		this.encodingType = args.useUrlEncodingType() ? "url" : null;
+		this.retryPolicy = retryPolicy;
+	}
+	
+	/**
+	 * <p>
+	 *     请求 continuationToken 所指向的一页, 第一页的 continuationToken 取自 {@link ListObjectsArgs#continuationToken()}.
+	 * </p>
+	 *
+	 * @param continuationToken 上一页返回的 {@link Page#nextContinuationToken()}.
+	 * @return 一页对象, 目录(<em>非递归列举时的公共前缀</em>)排在对象之后.
+	 */
+	CompletableFuture<Page> fetch(String continuationToken) {
+		return this.retryPolicy.callAsync("search", () -> {
+			try {
+				return this.client
+							.listObjectsV2Async(
+									this.args.bucket(), this.args.region(), this.args.delimiter(), this.encodingType,
+									this.args.startAfter(), this.args.maxKeys(), this.args.prefix(), continuationToken,
+									this.args.fetchOwner(), this.args.includeUserMetadata(),
+									this.args.extraHeaders(), this.args.extraQueryParams())
+							.thenApply(response -> this.toPage(response.result()));
+			} catch (Exception e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     请求第一页.
+	 * </p>
+	 */
+	CompletableFuture<Page> fetchFirst() {
+		return this.fetch(this.args.continuationToken());
+	}
+	
+	private Page toPage(ListBucketResultV2 result) {
+		List<Item> items = new ArrayList<>(result.contents().size() + result.commonPrefixes().size());
+		for (Item item : result.contents()) {
+			item.setEncodingType(this.encodingType);
+			items.add(item);
+		}
+		for (Prefix prefix : result.commonPrefixes()) {
+			Item item = prefix.toItem();
+			item.setEncodingType(this.encodingType);
+			items.add(item);
+		}
+		
+		String nextContinuationToken = result.isTruncated() ? result.nextContinuationToken() : null;
+		return new Page(items, nextContinuationToken);
+	}
+	
+	/**
+	 * <h2>一页对象</h2>
+	 *
+	 * @param items                 本页的对象.
+	 * @param nextContinuationToken 下一页的标记, 为 null 时表示已是最后一页.
+	 */
+	record Page(List<Item> items, String nextContinuationToken) {
+		
+		boolean isLast() {
+			return this.nextContinuationToken == null;
+		}
+	}
+}
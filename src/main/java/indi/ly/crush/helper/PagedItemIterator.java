@@ -0,0 +1,86 @@
+package indi.ly.crush.helper;
+
+import indi.ly.crush.exception.MinIoException;
+import io.minio.messages.Item;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * <h2>分页对象迭代器</h2>
+ * <p>
+ *     惰性地逐页迭代 {@link ObjectLister} 列举出的对象, 内存中至多驻留两页对象:
+ *     拿到一页后立即预取下一页, 使迭代当前页与请求下一页重叠进行.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class PagedItemIterator
+		implements Iterator<Item> {
+	private final ObjectLister lister;
+	/**
+	 * <p>
+	 *     每拿到一页时以该页的 {@link ObjectLister.Page#nextContinuationToken()} 回调, 可以为 null.
+	 * </p>
+	 */
+	private final Consumer<String> pageCallback;
+	private Iterator<Item> current = Collections.emptyIterator();
+	private CompletableFuture<ObjectLister.Page> next;
+	private boolean started;
+	
+	PagedItemIterator(ObjectLister lister, Consumer<String> pageCallback) {
+		this.lister = lister;
+		this.pageCallback = pageCallback;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		while (!this.current.hasNext()) {
+			if (!this.started) {
+				this.started = true;
+				this.next = this.lister.fetchFirst();
+			}
+			if (this.next == null) {
+				return false;
+			}
+			
+			ObjectLister.Page page;
+			try {
+				page = this.next.join();
+			} catch (CompletionException e) {
+				throw MinIoException.translate(e);
+			}
+			this.next = page.isLast() ? null : this.lister.fetch(page.nextContinuationToken());
+			if (this.pageCallback != null) {
+				this.pageCallback.accept(page.nextContinuationToken());
+			}
+			this.current = page.items().iterator();
+		}
+		return true;
+	}
+	
+	@Override
+	public Item next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return this.current.next();
+	}
+	
+	/**
+	 * <p>
+	 *     取消尚未完成的预取请求.
+	 * </p>
+	 */
+	void cancel() {
+		if (this.next != null) {
+			this.next.cancel(false);
+			this.next = null;
+		}
+	}
+}
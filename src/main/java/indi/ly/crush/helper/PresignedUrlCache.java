@@ -0,0 +1,135 @@
+package indi.ly.crush.helper;
+
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.http.Method;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <h2>预签名 URL 缓存</h2>
+ * <p>
+ *     由 {@link Signer} 在本地生成预签名 URL(<em>不发起任何请求</em>), 并按(<em>方法, 对象, 有效期</em>)缓存, 以 LRU 的顺序淘汰. <br />
+ *
+ *     每个 URL 签名时的有效期比请求的有效期多出 {@link #reuseSeconds} 秒(<em>总计不超过 7 天</em>),
+ *     在这段多出的时间内重复使用, 因此返回的 URL 总是至少在请求的有效期内可用.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class PresignedUrlCache {
+	private final Signer signer;
+	private final int capacity;
+	private final long reuseSeconds;
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	
+	PresignedUrlCache(Signer signer, int capacity, long reuseSeconds) {
+		this.signer = signer;
+		this.capacity = capacity;
+		this.reuseSeconds = reuseSeconds;
+	}
+	
+	/**
+	 * <p>
+	 *     获取 object 的预签名 URL, 缓存中没有仍可重复使用的 URL 时重新签名.
+	 * </p>
+	 *
+	 * @param method        HTTP 方法.
+	 * @param object        对象在桶中的位置.
+	 * @param expirySeconds URL 至少可用的秒数, 不超过 7 天.
+	 * @return 预签名 URL.
+	 * @throws Exception 签名失败时.
+	 */
+	String presign(Method method, String object, int expirySeconds) throws Exception {
+		Key key = new Key(method, object, expirySeconds);
+		String url = this.lookup(key);
+		return url != null ? url : this.sign(key);
+	}
+	
+	/**
+	 * <p>
+	 *     批量获取预签名 URL, 先在一次加锁中取出所有可重复使用的 URL, 再为其余的对象签名.
+	 * </p>
+	 *
+	 * @return 键为对象在桶中的位置, 值为预签名 URL, 顺序与 objects 一致.
+	 * @throws Exception 签名失败时.
+	 */
+	Map<String, String> presign(Method method, Collection<String> objects, int expirySeconds) throws Exception {
+		Map<String, String> urls = new LinkedHashMap<>((int) (objects.size() / 0.75F) + 1);
+		long now = System.nanoTime();
+		synchronized (this) {
+			for (String object : objects) {
+				Entry entry = this.entries.get(new Key(method, object, expirySeconds));
+				urls.put(object, entry != null && now - entry.reusableUntil < 0 ? entry.url : null);
+			}
+		}
+		
+		for (Map.Entry<String, String> url : urls.entrySet()) {
+			if (url.getValue() == null) {
+				url.setValue(this.sign(new Key(method, url.getKey(), expirySeconds)));
+			}
+		}
+		return urls;
+	}
+	
+	private synchronized String lookup(Key key) {
+		Entry entry = this.entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (System.nanoTime() - entry.reusableUntil >= 0) {
+			this.entries.remove(key);
+			return null;
+		}
+		return entry.url;
+	}
+	
+	private String sign(Key key) throws Exception {
+		long signedExpiry = Math.min(key.expirySeconds + this.reuseSeconds, GetPresignedObjectUrlArgs.DEFAULT_EXPIRY_TIME);
+		long signedAt = System.nanoTime();
+		String url = this.signer.presign(key.method, key.object, (int) signedExpiry, Map.of());
+		
+		// 签名时刻(X-Amz-Date)精确到秒, 可能比 signedAt 早将近 1 秒, 因此少重复使用 1 秒.
+		long reusable = signedExpiry - key.expirySeconds - 1;
+		if (this.capacity > 0 && reusable > 0) {
+			this.put(key, new Entry(url, signedAt + reusable * NANOS_PER_SECOND));
+		}
+		return url;
+	}
+	
+	private synchronized void put(Key key, Entry entry) {
+		this.entries.put(key, entry);
+		Iterator<Entry> iterator = this.entries.values().iterator();
+		while (this.entries.size() > this.capacity && iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+		}
+	}
+	
+	/**
+	 * <h2>签名器</h2>
+	 */
+	@FunctionalInterface
+	interface Signer {
+		/**
+		 * <p>
+		 *     为 object 生成在 expirySeconds 秒内可用的预签名 URL, queryParams 为额外的查询参数.
+		 * </p>
+		 */
+		String presign(Method method, String object, int expirySeconds, Map<String, String> queryParams) throws Exception;
+	}
+	
+	private record Key(Method method, String object, int expirySeconds) {}
+	
+	/**
+	 * <h2>缓存条目</h2>
+	 *
+	 * @param url           预签名 URL.
+	 * @param reusableUntil 可以重复使用的期限({@link System#nanoTime()}).
+	 */
+	private record Entry(String url, long reusableUntil) {}
+}
@@ -0,0 +1,198 @@
+package indi.ly.crush.helper;
+
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioAsyncClient;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * <h2>分段下载器</h2>
+ * <p>
+ *     将一个对象按 {@link #rangeSize} 切分为若干字节范围, 经由 {@link #fanOut} 以 {@link #concurrency} 个连接同时下载,
+ *     每个范围以位置写入的方式原地写入目标文件通道. <br />
+ *
+ *     每个范围的请求都带有下载开始时对象的 ETag(<em>If-Match</em>), 对象在下载期间被改变时立即失败, 而不是拼接出新旧混合的内容.
+ *     上传时被压缩的对象(<em>见 {@link ContentCompressor}</em>)无法按范围解压, 以一个连接下载并解压后写入.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class RangedDownloader {
+	private final MinioAsyncClient client;
+	private final String bucketName;
+	private final String region;
+	private final long rangeSize;
+	private final int concurrency;
+	private final FanOutExecutor fanOut;
+	/**
+	 * <p>
+	 *     单个范围失败后的最大重试次数.
+	 * </p>
+	 */
+	private final int rangeRetries;
+	private final RetryPolicy retryPolicy;
+	private static final int BUFFER_SIZE = 256 * 1024;
+	private static final String PRECONDITION_FAILED = "PreconditionFailed";
+	
+	RangedDownloader(MinioAsyncClient client, String bucketName, String region, long rangeSize, int concurrency, int rangeRetries,
+					 FanOutExecutor fanOut, RetryPolicy retryPolicy) {
+		this.client = client;
+		this.bucketName = bucketName;
+		this.region = region;
+		this.rangeSize = rangeSize;
+		this.concurrency = concurrency;
+		this.rangeRetries = rangeRetries;
+		this.fanOut = fanOut;
+		this.retryPolicy = retryPolicy;
+	}
+	
+	/**
+	 * <p>
+	 *     下载对象, 写入 channel 中从 position 开始的位置, 所有范围都写入后返回. 任一范围最终失败时取消其余范围.
+	 * </p>
+	 *
+	 * @param object   对象在桶中的位置.
+	 * @param channel  目标文件通道, 由调用者负责关闭.
+	 * @param position 对象的第一个字节在通道中的位置.
+	 * @return 下载开始时对象的元数据.
+	 * @throws Exception 获取元数据、下载或写入失败时.
+	 */
+	StatObjectResponse download(String object, FileChannel channel, long position) throws Exception {
+		StatObjectArgs statArgs = StatObjectArgs
+											.builder()
+											.bucket(this.bucketName)
+											.region(this.region)
+											.object(object)
+											.build();
+		StatObjectResponse stat = this.retryPolicy.call("stat", () -> join(this.client.statObject(statArgs)));
+		long size = stat.size();
+		String etag = stat.etag();
+		String encoding = ContentCompressor.encodingOf(stat.headers());
+		if (encoding != null) {
+			this.downloadDecoded(object, etag, encoding, channel, position);
+			return stat;
+		}
+		
+		int ranges = (int) Math.max(1, (size + this.rangeSize - 1) / this.rangeSize);
+		if (ranges == 1) {
+			this.downloadRange(object, etag, 0, size, channel, position);
+			return stat;
+		}
+		
+		List<Callable<Void>> tasks = new ArrayList<>(ranges);
+		for (int i = 0; i < ranges; i++) {
+			long offset = i * this.rangeSize;
+			long length = Math.min(this.rangeSize, size - offset);
+			tasks.add(() -> {
+				this.downloadRange(object, etag, offset, length, channel, position + offset);
+				return null;
+			});
+		}
+		this.fanOut.invokeAll(tasks, this.concurrency);
+		return stat;
+	}
+	
+	/**
+	 * <p>
+	 *     下载一个范围, 失败时按 {@link #retryPolicy} 重试(<em>重新写入整个范围</em>), 超过 {@link #rangeRetries} 次或对象已被改变时抛出异常.
+	 * </p>
+	 */
+	private void downloadRange(String object, String etag, long offset, long length, FileChannel channel, long position) throws Exception {
+		GetObjectArgs.Builder builder = GetObjectArgs
+												.builder()
+												.bucket(this.bucketName)
+												.region(this.region)
+												.object(object)
+												.matchETag(etag);
+		if (length > 0) {
+			builder.offset(offset).length(length);
+		}
+		GetObjectArgs args = builder.build();
+		
+		try {
+			this.retryPolicy.call("rangedDownload", this.rangeRetries + 1, () -> {
+				try (GetObjectResponse response = join(this.client.getObject(args))) {
+					long written = copy(Channels.newChannel(response), channel, position);
+					if (written != length) {
+						throw new IOException("Expected " + length + " bytes at offset " + offset + " of the object '" + object + "', but got " + written);
+					}
+					return null;
+				}
+			});
+		} catch (ErrorResponseException e) {
+			if (PRECONDITION_FAILED.equals(e.errorResponse().code())) {
+				throw new IllegalStateException("The object '" + object + "' was modified during the download", e);
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     以一个连接下载整个对象并解压后写入, 失败时按 {@link #retryPolicy} 重试(<em>重新写入全部内容</em>), 超过 {@link #rangeRetries} 次时抛出异常.
+	 * </p>
+	 */
+	private void downloadDecoded(String object, String etag, String encoding, FileChannel channel, long position) throws Exception {
+		GetObjectArgs args = GetObjectArgs
+										.builder()
+										.bucket(this.bucketName)
+										.region(this.region)
+										.object(object)
+										.matchETag(etag)
+										.build();
+		
+		try {
+			this.retryPolicy.call("rangedDownload", this.rangeRetries + 1, () -> {
+				try (InputStream stream = ContentCompressor.decode(encoding, join(this.client.getObject(args)))) {
+					return copy(Channels.newChannel(stream), channel, position);
+				}
+			});
+		} catch (ErrorResponseException e) {
+			if (PRECONDITION_FAILED.equals(e.errorResponse().code())) {
+				throw new IllegalStateException("The object '" + object + "' was modified during the download", e);
+			}
+			throw e;
+		}
+	}
+	
+	private static long copy(ReadableByteChannel source, FileChannel target, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		long written = 0;
+		while (source.read(buffer) != -1) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				written += target.write(buffer, position + written);
+			}
+			buffer.clear();
+		}
+		return written;
+	}
+	
+	/**
+	 * <p>
+	 *     等待 future 完成, 并将异常完成的原因原样抛出.
+	 * </p>
+	 */
+	private static <T> T join(CompletableFuture<T> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw (e.getCause() instanceof Exception cause ? cause : e);
+		}
+	}
+}
@@ -0,0 +1,341 @@
+package indi.ly.crush.helper;
+
+import com.google.common.collect.ImmutableMultimap;
+import indi.ly.crush.autoconfigure.MinIoProperties;
+import indi.ly.crush.model.UploadResultResponse;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.messages.Item;
+import io.minio.messages.Part;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * <h2>MinIo 响应式助手</h2>
+ * <p>
+ *     基于 {@link MinioAsyncClient} 的响应式(<em>Project Reactor</em>)门面, 仅在 Reactor 位于类路径上时自动配置.
+ *     所有操作都是惰性的, 订阅后才会发起请求, 并遵循下游的背压.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+public class ReactiveMinIoHelper {
+	private final MinIoRawAsyncClient client;
+	private final String endpoint;
+	private final String region;
+	private final String bucketName;
+	private final int partSize;
+	private final int pipelineDepth;
+	/**
+	 * <p>
+	 *     单个分片失败后的最大重试次数.
+	 * </p>
+	 */
+	private final int partRetries;
+	/**
+	 * <p>
+	 *     下载与列举的请求、上传的各个分片按此策略重试; 创建与合并分片上传不会被重试.
+	 *     与 {@link MinIoHelper} 共享时, 重试消耗同一个预算并记录于其指标.
+	 * </p>
+	 */
+	private final RetryPolicy retryPolicy;
+	/**
+	 * <p>
+	 *     未与 {@link MinIoHelper} 共享重试策略时记录重试的指标, 容器中存在 {@link MinIoMetrics} Bean 时由容器注入.
+	 * </p>
+	 */
+	private MinIoMetrics metrics = MinIoMetrics.NOOP;
+	private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+	private final Log logger = LogFactory.getLog(this.getClass());
+	private static final int DOWNLOAD_BUFFER_SIZE = 8192;
+	
+	public ReactiveMinIoHelper(MinioAsyncClient minioAsyncClient, MinIoProperties properties) {
+		this(minioAsyncClient, properties, null);
+	}
+	
+	/**
+	 * <p>
+	 *     与 helper 共享重试策略(<em>重试预算与记录重试的指标</em>), 使同一部署的同步与响应式操作受同一个预算约束.
+	 * </p>
+	 *
+	 * @param helper 操作同一部署的助手, 为 null 时使用自己的重试策略.
+	 */
+	public ReactiveMinIoHelper(MinioAsyncClient minioAsyncClient, MinIoProperties properties, MinIoHelper helper) {
+		this.client = new MinIoRawAsyncClient(Objects.requireNonNull(minioAsyncClient, "minioAsyncClient is null"));
+		this.endpoint = Objects.requireNonNull(properties, "properties is null").getEndpoint();
+		this.region = properties.getRegion();
+		this.bucketName = properties.getBucketName();
+		this.partSize = Math.toIntExact(properties.getUpload().getPartSize().toBytes());
+		this.pipelineDepth = properties.getUpload().getPipelineDepth();
+		this.partRetries = properties.getUpload().getPartRetries();
+		this.retryPolicy = helper != null ? helper.retryPolicy : new RetryPolicy(properties.getRetry(), operation -> this.metrics.recordRetry(operation));
+	}
+	
+	@Autowired(required = false)
+	public void setMetrics(MinIoMetrics metrics) {
+		this.metrics = Objects.requireNonNull(metrics, "metrics is null");
+	}
+	
+	/**
+	 * <p>
+	 *     将一个长度未知的 {@link DataBuffer} 流上传至指定 {@link #bucketName} 桶的指定位置. <br />
+	 *
+	 *     流被切分为 upload.partSize 大小的分片: 只有一个分片时直接上传, 否则分片上传,
+	 *     同时处于上传状态的分片不超过 upload.pipelineDepth 个; 上传失败或被取消时中止本次分片上传.
+	 *     所有的 {@link DataBuffer} 在被复制后立即释放.
+	 * </p>
+	 *
+	 * @param content     上传文件的内容.
+	 * @param location    上传文件存放在桶中的位置, 如: "xxx/xxx/xxx/文件名.文件扩展名"、"文件名.文件扩展名".
+	 * @param contentType 上传文件的内容类型.
+	 * @return 一个在上传完成时发出上传结果响应实例的 {@link Mono}.
+	 */
+	public Mono<UploadResultResponse> uploadFile(Flux<DataBuffer> content, String location, String contentType) {
+		Assert.notNull(content, "content is null");
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		Assert.state(StringUtils.hasLength(contentType), "contentType is not valid");
+		
+		String url = "%s/%s/%s".formatted(this.endpoint, this.bucketName, location);
+		return this
+					.chunk(content)
+					.switchOnFirst((signal, parts) -> {
+						byte[] first = signal.get();
+						if (first != null && first.length < this.partSize) {
+							return this.putObject(first, location, contentType);
+						}
+						return this.uploadParts(parts, location, contentType);
+					})
+					.single()
+					.map(response -> new UploadResultResponse(url, response));
+	}
+	
+	/**
+	 * <p>
+	 *     下载指定位置的文件. <br />
+	 *
+	 *     请求以非阻塞的方式发起; 由于响应体是一个阻塞的 {@link java.io.InputStream},
+	 *     读取响应体的工作被调度到 {@link Schedulers#boundedElastic()} 上, 且只在下游请求数据时进行.
+	 *     上传时被压缩的文件在读取时解压. 读取完成、失败(<em>包括解压失败</em>)或订阅被取消时关闭响应.
+	 * </p>
+	 *
+	 * @param location 文件存放在桶中的位置.
+	 * @return 文件内容, 由订阅者负责释放每一个 {@link DataBuffer}.
+	 */
+	public Flux<DataBuffer> download(String location) {
+		Assert.state(StringUtils.hasLength(location), "location is not valid");
+		
+		GetObjectArgs args = GetObjectArgs
+										.builder()
+										.bucket(this.bucketName)
+										.region(this.region)
+										.object(location)
+										.build();
+		return Mono
+				.fromFuture(() -> this.retryPolicy.callAsync("download", () -> supplyFuture(() -> this.client.getObject(args))))
+				.doOnDiscard(GetObjectResponse.class, ReactiveMinIoHelper :: closeQuietly)
+				.flatMapMany(response -> Flux.using(() -> response,
+													 body -> DataBufferUtils
+																	.readInputStream(() -> ContentCompressor.decode(ContentCompressor.encodingOf(body.headers()), body),
+																					 this.bufferFactory, DOWNLOAD_BUFFER_SIZE)
+																	.subscribeOn(Schedulers.boundedElastic()),
+													 ReactiveMinIoHelper :: closeQuietly));
+	}
+	
+	/**
+	 * <p>
+	 *     关闭响应, 释放其连接. 在下载完成、失败或被取消时调用, 也用于订阅被取消时才到达的响应.
+	 * </p>
+	 */
+	private static void closeQuietly(GetObjectResponse response) {
+		try {
+			response.close();
+		} catch (IOException e) {
+			// 连接随之被丢弃, 不影响结果.
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     逐页列举桶中的对象, 下游请求的对象用完时才请求下一页.
+	 * </p>
+	 *
+	 * @param builderConsumer 用于定制列举参数.
+	 * @return 列举出的对象.
+	 */
+	public Flux<Item> list(Consumer<ListObjectsArgs.Builder> builderConsumer) {
+		ListObjectsArgs.Builder builder = ListObjectsArgs
+													.builder()
+													.bucket(this.bucketName)
+													.region(this.region);
+		
+		if (builderConsumer != null) {
+			builderConsumer.accept(builder);
+		}
+		
+		return Flux.defer(() -> {
+			ObjectLister lister = new ObjectLister(this.client, builder.build(), this.retryPolicy);
+			return Mono
+					.fromFuture(lister::fetchFirst)
+					.expand(page -> page.isLast()
+									? Mono.empty()
+									: Mono.fromFuture(() -> lister.fetch(page.nextContinuationToken())))
+					.concatMapIterable(ObjectLister.Page::items);
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     将 {@link DataBuffer} 流切分为 {@link #partSize} 大小的分片, 最后一个分片可能更小.
+	 *     空流会切分出一个空的分片.
+	 * </p>
+	 */
+	private Flux<byte[]> chunk(Flux<DataBuffer> content) {
+		return Flux.defer(() -> {
+			PartBuffer partBuffer = new PartBuffer(this.partSize);
+			return content
+						.concatMapIterable(dataBuffer -> {
+							try {
+								return partBuffer.write(dataBuffer);
+							} finally {
+								DataBufferUtils.release(dataBuffer);
+							}
+						})
+						.concatWith(Mono.fromCallable(partBuffer::flush))
+						.filter(part -> part.length > 0 || partBuffer.isEmpty());
+		});
+	}
+	
+	private Mono<ObjectWriteResponse> putObject(byte[] data, String location, String contentType) {
+		return Mono.fromFuture(() -> this.retryPolicy.callAsync("upload", this.partRetries + 1, () -> supplyFuture(() -> {
+			PutObjectArgs args = PutObjectArgs
+											.builder()
+											.bucket(this.bucketName)
+											.region(this.region)
+											.object(location)
+											.stream(new ByteArrayInputStream(data), data.length, -1)
+											.contentType(contentType)
+											.build();
+			return this.client.putObject(args);
+		})));
+	}
+	
+	private Mono<ObjectWriteResponse> uploadParts(Flux<byte[]> parts, String location, String contentType) {
+		return Mono
+				.fromFuture(() -> supplyFuture(() -> this.client.createMultipartUploadAsync(
+						this.bucketName, this.region, location, ImmutableMultimap.of("Content-Type", contentType), null)))
+				.map(response -> response.result().uploadId())
+				.flatMap(uploadId -> parts
+											.index()
+											.flatMapSequential(indexed -> {
+												int partNumber = Math.toIntExact(indexed.getT1() + 1);
+												byte[] data = indexed.getT2();
+												return Mono
+														.fromFuture(() -> this.retryPolicy.callAsync("uploadPart", this.partRetries + 1, () -> supplyFuture(() -> this.client.uploadPartAsync(
+																this.bucketName, this.region, location, data, data.length,
+																uploadId, partNumber, null, null))))
+														.map(response -> new Part(partNumber, response.etag()));
+											}, this.pipelineDepth, 1)
+											.collectList()
+											.flatMap(completed -> Mono.fromFuture(() -> supplyFuture(() -> this.client.completeMultipartUploadAsync(
+													this.bucketName, this.region, location, uploadId,
+													completed.toArray(Part[]::new), null, null))))
+											.doOnError(throwable -> this.abortMultipartUpload(location, uploadId))
+											.doOnCancel(() -> this.abortMultipartUpload(location, uploadId)));
+	}
+	
+	private void abortMultipartUpload(String location, String uploadId) {
+		this.retryPolicy.callAsync("abortMultipart", () -> supplyFuture(() -> this.client.abortMultipartUploadAsync(this.bucketName, this.region, location, uploadId, null, null)))
+				.whenComplete((response, throwable) -> {
+					if (throwable != null) {
+						this.logger.warn("Failed to abort the multipart upload '" + uploadId + "' of the object '" + location + "'", throwable);
+					}
+				});
+	}
+	
+	/**
+	 * <p>
+	 *     将同步抛出的受检异常转换为异常完成的 {@link CompletableFuture}.
+	 * </p>
+	 */
+	private static <T> CompletableFuture<T> supplyFuture(Callable<CompletableFuture<T>> callable) {
+		try {
+			return callable.call();
+		} catch (Exception e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+	
+	/**
+	 * <h2>分片缓冲区</h2>
+	 * <p>
+	 *     将任意大小的 {@link DataBuffer} 累积为固定大小的分片, 非线程安全, 每次订阅各自持有一个实例.
+	 * </p>
+	 */
+	private static class PartBuffer {
+		private final int partSize;
+		private byte[] current;
+		private int position;
+		private boolean empty = true;
+		
+		PartBuffer(int partSize) {
+			this.partSize = partSize;
+			this.current = new byte[partSize];
+		}
+		
+		List<byte[]> write(DataBuffer dataBuffer) {
+			List<byte[]> parts = new ArrayList<>(1);
+			while (dataBuffer.readableByteCount() > 0) {
+				int length = Math.min(dataBuffer.readableByteCount(), this.partSize - this.position);
+				dataBuffer.read(this.current, this.position, length);
+				this.position += length;
+				this.empty = false;
+				if (this.position == this.partSize) {
+					parts.add(this.current);
+					this.current = new byte[this.partSize];
+					this.position = 0;
+				}
+			}
+			return parts;
+		}
+		
+		byte[] flush() {
+			byte[] last = Arrays.copyOf(this.current, this.position);
+			this.current = null;
+			return last;
+		}
+		
+		/**
+		 * <p>
+		 *     是否从未写入过任何字节.
+		 * </p>
+		 */
+		boolean isEmpty() {
+			return this.empty;
+		}
+	}
+}
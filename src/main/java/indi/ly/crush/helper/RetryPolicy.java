@@ -0,0 +1,274 @@
+package indi.ly.crush.helper;
+
+import indi.ly.crush.autoconfigure.MinIoProperties;
+import indi.ly.crush.exception.MinIoException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * <h2>重试策略</h2>
+ * <p>
+ *     重试幂等的操作, 调用者负责只将幂等的操作(<em>或分片上传的单个分片、分段下载的单个范围</em>)交给本策略:
+ *     <ol>
+ *         <li>只重试 {@link MinIoException#isRetryable(Throwable)} 的失败, 即网络错误与服务器繁忙.</li>
+ *         <li>退避时间以 decorrelated jitter 选取: 在 initialBackoff 与上一次的 3 倍之间随机, 不超过 maxBackoff.</li>
+ *         <li>重试预算: 每次调用存入 budgetRatio 个令牌, 每次重试取出 1 个, 另外每秒有 minRetriesPerSecond 次不消耗令牌的重试;
+ *         令牌不足时直接失败, 使服务端整体不可用时重试不会放大负载.</li>
+ *     </ol>
+ *     最终失败时抛出最后一次的异常, 此前各次的失败原因以 suppressed 异常附在其上.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class RetryPolicy {
+	private final int maxAttempts;
+	private final long initialBackoffNanos;
+	private final long maxBackoffNanos;
+	/**
+	 * <p>
+	 *     重试预算, 可以由同一部署的多个策略共享.
+	 * </p>
+	 */
+	private final Budget budget;
+	/**
+	 * <p>
+	 *     每次重试之前以操作名称回调, 用于记录指标.
+	 * </p>
+	 */
+	private final Consumer<String> retryListener;
+	private final Log logger = LogFactory.getLog(this.getClass());
+	
+	RetryPolicy(MinIoProperties.Retry retry, Consumer<String> retryListener) {
+		this(retry, new Budget(retry), retryListener);
+	}
+	
+	/**
+	 * @param budget 与其他策略共享的重试预算, 由 {@link Budget#Budget(MinIoProperties.Retry)} 以同一份 retry 配置创建.
+	 */
+	RetryPolicy(MinIoProperties.Retry retry, Budget budget, Consumer<String> retryListener) {
+		if (retry.getMaxAttempts() < 1 || retry.getMinRetriesPerSecond() < 0 || retry.getBudgetRatio() < 0) {
+			throw new IllegalArgumentException("'retry.maxAttempts' must be greater than 0, and 'retry.minRetriesPerSecond' and 'retry.budgetRatio' must not be negative, but it is " + retry);
+		}
+		if (retry.getInitialBackoff().isNegative() || retry.getMaxBackoff().compareTo(retry.getInitialBackoff()) < 0) {
+			throw new IllegalArgumentException("'retry.initialBackoff' must not be negative or greater than 'retry.maxBackoff', but it is " + retry);
+		}
+		this.maxAttempts = retry.getMaxAttempts();
+		this.initialBackoffNanos = retry.getInitialBackoff().toNanos();
+		this.maxBackoffNanos = retry.getMaxBackoff().toNanos();
+		this.budget = budget;
+		this.retryListener = retryListener;
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #call(String, int, Callable)} 方法, 最多尝试 retry.maxAttempts 次.
+	 * </p>
+	 */
+	<T> T call(String operation, Callable<T> action) throws Exception {
+		return this.call(operation, this.maxAttempts, action);
+	}
+	
+	/**
+	 * <p>
+	 *     执行 action, 可以重试的失败在退避之后重新执行, 最多执行 maxAttempts 次. 退避期间被中断时不再重试.
+	 * </p>
+	 *
+	 * @param operation   操作名称, 用于日志与指标.
+	 * @param maxAttempts 最多执行的次数.
+	 * @param action      幂等的操作.
+	 * @return action 的结果.
+	 * @throws Exception 最后一次执行的失败原因.
+	 */
+	<T> T call(String operation, int maxAttempts, Callable<T> action) throws Exception {
+		this.budget.deposit();
+		List<Throwable> failures = new ArrayList<>(0);
+		long backoff = 0;
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return action.call();
+			} catch (Exception e) {
+				if (Thread.currentThread().isInterrupted() || !this.shouldRetry(operation, e, attempt, maxAttempts)) {
+					throw suppress(e, failures);
+				}
+				failures.add(e);
+				backoff = this.nextBackoff(backoff);
+				try {
+					TimeUnit.NANOSECONDS.sleep(backoff);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw suppress(e, failures.subList(0, failures.size() - 1));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     语义继承 {@link #callAsync(String, int, Supplier)} 方法, 最多尝试 retry.maxAttempts 次.
+	 * </p>
+	 */
+	<T> CompletableFuture<T> callAsync(String operation, Supplier<CompletableFuture<T>> action) {
+		return this.callAsync(operation, this.maxAttempts, action);
+	}
+	
+	/**
+	 * <p>
+	 *     {@link #call(String, int, Callable)} 方法的非阻塞版本, 退避期间不占用线程. 取消返回的 future 时一并取消进行中的尝试.
+	 * </p>
+	 */
+	<T> CompletableFuture<T> callAsync(String operation, int maxAttempts, Supplier<CompletableFuture<T>> action) {
+		this.budget.deposit();
+		CompletableFuture<T> result = new CompletableFuture<>();
+		AtomicReference<CompletableFuture<T>> current = new AtomicReference<>();
+		result.whenComplete((value, throwable) -> {
+			CompletableFuture<T> attempt = current.get();
+			if (result.isCancelled() && attempt != null) {
+				attempt.cancel(false);
+			}
+		});
+		this.attemptAsync(operation, maxAttempts, action, 1, 0, new ArrayList<>(0), current, result);
+		return result;
+	}
+	
+	private <T> void attemptAsync(String operation, int maxAttempts, Supplier<CompletableFuture<T>> action, int attempt, long backoff,
+								  List<Throwable> failures, AtomicReference<CompletableFuture<T>> current, CompletableFuture<T> result) {
+		if (result.isDone()) {
+			return;
+		}
+		CompletableFuture<T> future;
+		try {
+			future = action.get();
+		} catch (RuntimeException e) {
+			future = CompletableFuture.failedFuture(e);
+		}
+		current.set(future);
+		future.whenComplete((value, throwable) -> {
+			if (throwable == null) {
+				result.complete(value);
+				return;
+			}
+			if (result.isDone() || !this.shouldRetry(operation, throwable, attempt, maxAttempts)) {
+				result.completeExceptionally(suppress(throwable, failures));
+				return;
+			}
+			failures.add(throwable);
+			long nextBackoff = this.nextBackoff(backoff);
+			CompletableFuture
+					.delayedExecutor(nextBackoff, TimeUnit.NANOSECONDS)
+					.execute(() -> this.attemptAsync(operation, maxAttempts, action, attempt + 1, nextBackoff, failures, current, result));
+		});
+	}
+	
+	private boolean shouldRetry(String operation, Throwable throwable, int attempt, int maxAttempts) {
+		if (attempt >= maxAttempts || !MinIoException.isRetryable(throwable)) {
+			return false;
+		}
+		if (!this.budget.withdraw()) {
+			if (this.logger.isDebugEnabled()) {
+				this.logger.debug("The retry budget is exhausted, not retrying '" + operation + "'");
+			}
+			return false;
+		}
+		if (this.logger.isDebugEnabled()) {
+			this.logger.debug("Retrying '" + operation + "' after attempt " + attempt + " failed: " + unwrap(throwable));
+		}
+		this.retryListener.accept(operation);
+		return true;
+	}
+	
+	/**
+	 * <p>
+	 *     decorrelated jitter: 在 initialBackoff 与上一次的 3 倍之间随机选取, 不超过 maxBackoff.
+	 * </p>
+	 */
+	private long nextBackoff(long previous) {
+		long upper = Math.max(this.initialBackoffNanos, previous) * 3;
+		long backoff = this.initialBackoffNanos >= upper ? upper : ThreadLocalRandom.current().nextLong(this.initialBackoffNanos, upper);
+		return Math.min(this.maxBackoffNanos, backoff);
+	}
+	
+	/**
+	 * <p>
+	 *     将此前各次的失败原因附在 throwable 的最内层原因上, 返回 throwable 本身.
+	 * </p>
+	 */
+	private static <E extends Throwable> E suppress(E throwable, List<Throwable> failures) {
+		Throwable cause = unwrap(throwable);
+		for (Throwable failure : failures) {
+			Throwable previous = unwrap(failure);
+			if (previous != cause) {
+				cause.addSuppressed(previous);
+			}
+		}
+		return throwable;
+	}
+	
+	private static Throwable unwrap(Throwable throwable) {
+		Throwable cause = throwable;
+		while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		return cause;
+	}
+	
+	/**
+	 * <h2>重试预算</h2>
+	 * <p>
+	 *     每次调用存入 budgetRatio 个令牌, 每次重试取出 1 个, 另外每秒有 minRetriesPerSecond 次不消耗令牌的重试.
+	 *     同一部署的所有策略共享一个预算, 使其对重试的约束针对整个部署而不是单个桶.
+	 * </p>
+	 */
+	static final class Budget {
+		private final double budgetRatio;
+		private final int minRetriesPerSecond;
+		private double balance;
+		private long windowStart = System.nanoTime();
+		private int windowRetries;
+		/**
+		 * <p>
+		 *     令牌最多积累最近多少次调用所存入的数量, 避免长时间的平稳运行之后预算失去约束.
+		 * </p>
+		 */
+		private static final int BALANCE_WINDOW = 1000;
+		private static final long ONE_SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+		
+		Budget(MinIoProperties.Retry retry) {
+			this.budgetRatio = retry.getBudgetRatio();
+			this.minRetriesPerSecond = retry.getMinRetriesPerSecond();
+		}
+		
+		synchronized void deposit() {
+			this.balance = Math.min(this.balance + this.budgetRatio, this.budgetRatio * BALANCE_WINDOW);
+		}
+		
+		synchronized boolean withdraw() {
+			long now = System.nanoTime();
+			if (now - this.windowStart >= ONE_SECOND_NANOS) {
+				this.windowStart = now;
+				this.windowRetries = 0;
+			}
+			if (this.windowRetries < this.minRetriesPerSecond) {
+				this.windowRetries++;
+				return true;
+			}
+			if (this.balance >= 1) {
+				this.balance--;
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package indi.ly.crush.helper;
+
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteArgs;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.SnowballObject;
+import io.minio.UploadSnowballObjectsArgs;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.xerial.snappy.SnappyFramedOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <h2>Snowball 上传器</h2>
+ * <p>
+ *     将若干文件按 {@link #batchSize} 与 {@link #batchCount} 切分为子批次, 每个子批次打包为一个 Snowball 归档后上传,
+ *     最多同时上传 {@link #concurrency} 个子批次. 每个文件的内容在打包时才从其流或本地文件中读取. <br />
+ *
+ *     在 {@link #stagingDirectory} 中暂存时由本类自行打包并上传暂存文件:
+ *     {@link MinioAsyncClient#uploadSnowballObjects(UploadSnowballObjectsArgs)} 在异步上传开始之前就关闭了暂存文件, 上传总是失败.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class SnowballUploader {
+	private final MinioAsyncClient client;
+	private final String bucketName;
+	private final String region;
+	private final long batchSize;
+	private final int batchCount;
+	private final int concurrency;
+	private final boolean compression;
+	/**
+	 * <p>
+	 *     暂存归档的目录, 为 null 时归档在堆内存中构建.
+	 * </p>
+	 */
+	private final Path stagingDirectory;
+	private final Log logger = LogFactory.getLog(this.getClass());
+	/**
+	 * <p>
+	 *     指示服务器在写入后解包归档的请求头.
+	 * </p>
+	 */
+	private static final String AUTO_EXTRACT_HEADER = "X-Amz-Meta-Snowball-Auto-Extract";
+	
+	SnowballUploader(MinioAsyncClient client, String bucketName, String region, long batchSize, int batchCount,
+					 int concurrency, boolean compression, Path stagingDirectory) {
+		this.client = client;
+		this.bucketName = bucketName;
+		this.region = region;
+		this.batchSize = batchSize;
+		this.batchCount = batchCount;
+		this.concurrency = concurrency;
+		this.compression = compression;
+		this.stagingDirectory = stagingDirectory;
+	}
+	
+	/**
+	 * <p>
+	 *     上传所有文件, 所有子批次都上传完成后返回. 任一子批次失败时不再开始新的子批次, 并抛出第一个失败的原因.
+	 *     以流的形式提供内容的文件, 其流在所属子批次上传结束后(<em>无论成功与否</em>)关闭, 未被迭代到的文件由调用者负责关闭.
+	 * </p>
+	 *
+	 * @param objects 要上传的文件, 按需迭代.
+	 * @return 每个子批次的写入响应.
+	 * @throws Exception 打包或上传失败时.
+	 */
+	List<ObjectWriteResponse> upload(Iterator<SnowballObject> objects) throws Exception {
+		Semaphore permits = new Semaphore(this.concurrency);
+		AtomicBoolean failed = new AtomicBoolean();
+		List<CompletableFuture<ObjectWriteResponse>> futures = new ArrayList<>();
+		while (objects.hasNext() && !failed.get()) {
+			List<SnowballObject> batch = new ArrayList<>();
+			long bytes = 0;
+			while (objects.hasNext() && batch.size() < this.batchCount && bytes < this.batchSize) {
+				SnowballObject object = objects.next();
+				batch.add(object);
+				bytes += sizeOf(object);
+			}
+			
+			permits.acquire();
+			CompletableFuture<ObjectWriteResponse> future = this.uploadBatch(batch);
+			future.whenComplete((response, throwable) -> {
+				if (throwable != null) {
+					failed.set(true);
+				}
+				permits.release();
+			});
+			futures.add(future);
+		}
+		
+		// 等待所有子批次结束, 避免在仍有子批次读取文件时返回.
+		CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).exceptionally(throwable -> null).join();
+		
+		List<ObjectWriteResponse> responses = new ArrayList<>(futures.size());
+		for (CompletableFuture<ObjectWriteResponse> future : futures) {
+			try {
+				responses.add(future.get());
+			} catch (ExecutionException e) {
+				throw (e.getCause() instanceof Exception cause ? cause : e);
+			}
+		}
+		return responses;
+	}
+	
+	private CompletableFuture<ObjectWriteResponse> uploadBatch(List<SnowballObject> batch) {
+		CompletableFuture<ObjectWriteResponse> future;
+		Path stagingFile = null;
+		InputStream staged = null;
+		try {
+			UploadSnowballObjectsArgs args = UploadSnowballObjectsArgs
+															.builder()
+															.bucket(this.bucketName)
+															.region(this.region)
+															.objects(batch)
+															.compression(this.compression)
+															.build();
+			if (this.stagingDirectory == null) {
+				future = this.client.uploadSnowballObjects(args);
+			} else {
+				// 临时目录可能已被系统清理, 每次按需重新创建.
+				stagingFile = Files.createTempFile(Files.createDirectories(this.stagingDirectory), "snowball-", ".tar");
+				try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(stagingFile))) {
+					this.writeArchive(batch, out);
+				}
+				staged = Files.newInputStream(stagingFile);
+				future = this.client.putObject(PutObjectArgs
+														.builder()
+														.bucket(this.bucketName)
+														.region(this.region)
+														.object(args.object())
+														.headers(Map.of(AUTO_EXTRACT_HEADER, "true"))
+														// 以单个 PUT 请求上传, 服务器只解包以单个请求上传的归档.
+														.stream(staged, Files.size(stagingFile), ObjectWriteArgs.MAX_PART_SIZE)
+														.build());
+			}
+		} catch (Exception e) {
+			future = CompletableFuture.failedFuture(e);
+		}
+		
+		Path finalStagingFile = stagingFile;
+		InputStream finalStaged = staged;
+		return future.whenComplete((response, throwable) -> {
+			batch.forEach(SnowballUploader :: closeQuietly);
+			if (finalStaged != null) {
+				try {
+					finalStaged.close();
+				} catch (IOException ignore) {}
+			}
+			if (finalStagingFile != null) {
+				try {
+					Files.deleteIfExists(finalStagingFile);
+				} catch (IOException e) {
+					this.logger.warn("Failed to delete the snowball staging file '" + finalStagingFile + "'", e);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * <p>
+	 *     将子批次打包为与 {@link MinioAsyncClient#uploadSnowballObjects(UploadSnowballObjectsArgs)} 相同格式的归档
+	 *     (<em>tar, 启用压缩时再以 snappy 分帧压缩</em>).
+	 * </p>
+	 */
+	private void writeArchive(List<SnowballObject> batch, OutputStream out) throws IOException {
+		try (TarArchiveOutputStream tar = new TarArchiveOutputStream(this.compression ? new SnappyFramedOutputStream(out) : out)) {
+			tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+			for (SnowballObject object : batch) {
+				if (object.filename() != null) {
+					Path file = Paths.get(object.filename());
+					tar.putArchiveEntry(new TarArchiveEntry(file.toFile(), object.name()));
+					Files.copy(file, tar);
+				} else {
+					TarArchiveEntry entry = new TarArchiveEntry(object.name());
+					if (object.modificationTime() != null) {
+						entry.setModTime(Date.from(object.modificationTime().toInstant()));
+					}
+					entry.setSize(object.size());
+					tar.putArchiveEntry(entry);
+					object.stream().transferTo(tar);
+				}
+				tar.closeArchiveEntry();
+			}
+			tar.finish();
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     为长度未知的流确定大小: 存在 {@link #stagingDirectory} 时将流复制到其中的临时文件, 文件在返回的对象的流关闭时删除;
+	 *     否则读入堆内存(<em>归档本身同样在堆内存中构建</em>). 无论成功与否都会关闭 stream.
+	 * </p>
+	 *
+	 * @param name   文件存放在桶中的位置.
+	 * @param stream 长度未知的流.
+	 * @return 大小确定的文件.
+	 * @throws IOException 读取流或写入临时文件失败时.
+	 */
+	SnowballObject stage(String name, InputStream stream) throws IOException {
+		try (stream) {
+			if (this.stagingDirectory == null) {
+				byte[] bytes = stream.readAllBytes();
+				return new SnowballObject(name, new ByteArrayInputStream(bytes), bytes.length, null);
+			}
+			
+			Path file = Files.createTempFile(Files.createDirectories(this.stagingDirectory), "object-", ".tmp");
+			try {
+				long size = Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+				return new SnowballObject(name, Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE), size, null);
+			} catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(file);
+				throw e;
+			}
+		}
+	}
+	
+	static long sizeOf(SnowballObject object) throws IOException {
+		return object.filename() != null ? Files.size(Paths.get(object.filename())) : object.size();
+	}
+	
+	private static void closeQuietly(SnowballObject object) {
+		InputStream stream = object.stream();
+		if (stream != null) {
+			try {
+				stream.close();
+			} catch (IOException ignore) {}
+		}
+	}
+}
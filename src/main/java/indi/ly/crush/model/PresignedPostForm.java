@@ -0,0 +1,59 @@
+package indi.ly.crush.model;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * <h2>预签名 POST 表单</h2>
+ * <p>
+ *     浏览器以 multipart/form-data 的形式向 {@link #url} 提交 {@link #fields} 中的所有字段, 最后附上名为 file 的文件字段,
+ *     即可直接将文件上传至 MinIO 服务器, 而不经过应用服务器.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+public class PresignedPostForm
+		implements Serializable {
+	@Serial
+	private static final long serialVersionUID = 3254409861472581604L;
+	/**
+	 * <p>
+	 *     表单提交的地址, 即桶的 URL.
+	 * </p>
+	 */
+	private String url;
+	/**
+	 * <p>
+	 *     表单中需要原样提交的字段(<em>策略、签名等</em>).
+	 * </p>
+	 */
+	private Map<String, String> fields;
+	
+	public PresignedPostForm(String url, Map<String, String> fields) {
+		this.url = url;
+		this.fields = fields;
+	}
+	
+	public String getUrl() {
+		return url;
+	}
+	
+	public void setUrl(String url) {
+		this.url = url;
+	}
+	
+	public Map<String, String> getFields() {
+		return fields;
+	}
+	
+	public void setFields(Map<String, String> fields) {
+		this.fields = fields;
+	}
+	
+	@Override
+	public String toString() {
+		return "PresignedPostForm{" + "url='" + url + '\'' + ", fields=" + fields + '}';
+	}
+}
@@ -0,0 +1,234 @@
+package indi.ly.crush.autoconfigure;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * <h2>多节点故障转移拦截器测试</h2>
+ * <p>
+ *     以两个 {@link MockWebServer} 作为同一部署的两个节点, 经由 {@link MinIoAutoConfiguration#newHttpClient(MinIoProperties)} 构建的客户端发送请求.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class EndpointFailoverInterceptorTest {
+	private MockWebServer first;
+	private MockWebServer second;
+	private MinIoProperties properties;
+	
+	@BeforeEach
+	void setUp() throws IOException {
+		this.first = new MockWebServer();
+		this.second = new MockWebServer();
+		this.first.start();
+		this.second.start();
+		
+		this.properties = new MinIoProperties();
+		this.properties.setEndpoint(this.first.url("/").toString());
+		this.properties.setEndpoints(List.of(this.second.url("/").toString()));
+	}
+	
+	@AfterEach
+	void tearDown() throws IOException {
+		this.first.shutdown();
+		this.second.shutdown();
+	}
+	
+	/**
+	 * <p>
+	 *     并发的幂等请求多于调度器的名额时, 外层调用占满名额, 其各次尝试不能与之共用调度器, 否则永远排队.
+	 * </p>
+	 */
+	@Test
+	void completesMoreConcurrentDownloadsThanTheDispatcherAllows() throws InterruptedException {
+		this.first.setDispatcher(respond(20));
+		this.second.setDispatcher(respond(20));
+		this.properties.getHttp().setMaxRequests(4);
+		this.properties.getHttp().setMaxRequestsPerHost(4);
+		OkHttpClient client = MinIoAutoConfiguration.newHttpClient(this.properties);
+		
+		int calls = 32;
+		CountDownLatch done = new CountDownLatch(calls);
+		AtomicInteger succeeded = new AtomicInteger();
+		ConcurrentLinkedQueue<IOException> failures = new ConcurrentLinkedQueue<>();
+		for (int i = 0; i < calls; i++) {
+			client.newCall(new Request.Builder().url(this.first.url("/bucket/object-" + i)).build()).enqueue(new Callback() {
+				@Override
+				public void onResponse(Call call, Response response) {
+					try (response) {
+						if (response.isSuccessful()) {
+							succeeded.incrementAndGet();
+						}
+					} finally {
+						done.countDown();
+					}
+				}
+				
+				@Override
+				public void onFailure(Call call, IOException e) {
+					failures.add(e);
+					done.countDown();
+				}
+			});
+		}
+		
+		assertThat(done.await(20, TimeUnit.SECONDS)).as("all calls completed").isTrue();
+		assertThat(failures).isEmpty();
+		assertThat(succeeded).hasValue(calls);
+		shutdown(client);
+	}
+	
+	/**
+	 * <p>
+	 *     节点尚无响应时间的样本时, 首个请求在 failover.hedgeInitialDelay 之后被对冲, 而不是一直等待缓慢的节点.
+	 * </p>
+	 */
+	@Test
+	void hedgesTheFirstRequestAfterTheInitialDelay() throws IOException {
+		Dispatcher slowFirst = slowFirst(new AtomicInteger());
+		this.first.setDispatcher(slowFirst);
+		this.second.setDispatcher(slowFirst);
+		this.properties.getFailover().setHedgeInitialDelay(Duration.ofMillis(100));
+		OkHttpClient client = MinIoAutoConfiguration.newHttpClient(this.properties);
+		
+		long start = System.nanoTime();
+		try (Response response = client.newCall(new Request.Builder().url(this.first.url("/bucket/object")).build()).execute()) {
+			assertThat(response.isSuccessful()).isTrue();
+		}
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+		assertThat(this.first.getRequestCount() + this.second.getRequestCount()).isEqualTo(2);
+		shutdown(client);
+	}
+	
+	/**
+	 * <p>
+	 *     对冲请求先返回时, 仍在等待缓慢节点的首个请求被取消, 不再占用对冲客户端的调度器.
+	 * </p>
+	 */
+	@Test
+	void cancelsTheSlowerAttemptOnceTheHedgeWins() throws IOException, InterruptedException {
+		Dispatcher slowFirst = slowFirst(new AtomicInteger());
+		this.first.setDispatcher(slowFirst);
+		this.second.setDispatcher(slowFirst);
+		this.properties.getFailover().setHedgeInitialDelay(Duration.ofMillis(100));
+		OkHttpClient client = MinIoAutoConfiguration.newHttpClient(this.properties);
+		OkHttpClient hedgeClient = client
+										.interceptors()
+										.stream()
+										.filter(EndpointFailoverInterceptor.class :: isInstance)
+										.findFirst()
+										.map(interceptor -> (OkHttpClient) ReflectionTestUtils.getField(interceptor, "hedgeClient"))
+										.orElseThrow();
+		
+		try (Response response = client.newCall(new Request.Builder().url(this.first.url("/bucket/object")).build()).execute()) {
+			assertThat(response.body().string()).isEqualTo("ok");
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while (hedgeClient.dispatcher().runningCallsCount() > 0 && System.nanoTime() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+		assertThat(hedgeClient.dispatcher().runningCallsCount()).as("attempts still running").isZero();
+		shutdown(client);
+	}
+	
+	/**
+	 * <p>
+	 *     第一个节点不可用(<em>503</em>)时幂等请求由第二个节点响应, 连续失败 failover.failureThreshold 次后第一个节点被剔除.
+	 * </p>
+	 */
+	@Test
+	void failsOverToTheSecondEndpoint() throws IOException {
+		this.first.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				return new MockResponse().setResponseCode(503);
+			}
+		});
+		this.second.setDispatcher(respond(0));
+		OkHttpClient client = MinIoAutoConfiguration.newHttpClient(this.properties);
+		
+		for (int i = 0; i < 10; i++) {
+			try (Response response = client.newCall(new Request.Builder().url(this.first.url("/bucket/object-" + i)).build()).execute()) {
+				assertThat(response.code()).isEqualTo(200);
+				assertThat(response.body().string()).isEqualTo("ok");
+			}
+		}
+		assertThat(this.second.getRequestCount()).isEqualTo(10);
+		assertThat(this.first.getRequestCount()).isLessThanOrEqualTo(this.properties.getFailover().getFailureThreshold());
+		shutdown(client);
+	}
+	
+	/**
+	 * <p>
+	 *     不幂等的请求只在连接失败(<em>请求未被发出</em>)时转向第二个节点.
+	 * </p>
+	 */
+	@Test
+	void retriesNonIdempotentRequestsOnlyWhenTheConnectionFails() throws IOException, InterruptedException {
+		HttpUrl url = this.first.url("/bucket/object");
+		this.first.shutdown();
+		this.second.setDispatcher(respond(0));
+		OkHttpClient client = MinIoAutoConfiguration.newHttpClient(this.properties);
+		
+		Request request = new Request.Builder().url(url).put(RequestBody.create("content", MediaType.get("text/plain"))).build();
+		try (Response response = client.newCall(request).execute()) {
+			assertThat(response.code()).isEqualTo(200);
+		}
+		assertThat(this.second.takeRequest().getMethod()).isEqualTo("PUT");
+		shutdown(client);
+	}
+	
+	/**
+	 * <p>
+	 *     两个节点共享的响应方式: 到达的第一个请求 3 秒后才响应, 其余立即响应.
+	 * </p>
+	 */
+	static Dispatcher slowFirst(AtomicInteger arrivals) {
+		return new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				long delay = arrivals.getAndIncrement() == 0 ? 3 : 0;
+				return new MockResponse().setBody("ok").setHeadersDelay(delay, TimeUnit.SECONDS);
+			}
+		};
+	}
+	
+	static Dispatcher respond(long delayMillis) {
+		return new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				return new MockResponse().setBody("ok").setHeadersDelay(delayMillis, TimeUnit.MILLISECONDS);
+			}
+		};
+	}
+	
+	static void shutdown(OkHttpClient client) {
+		client.dispatcher().executorService().shutdown();
+		client.connectionPool().evictAll();
+	}
+}
@@ -0,0 +1,212 @@
+package indi.ly.crush.autoconfigure;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * <h2>限流拦截器测试</h2>
+ * <p>
+ *     经由 {@link MinIoAutoConfiguration#newHttpClient(MinIoProperties)} 构建的客户端异步发送请求(<em>与 minio 相同</em>),
+ *     在 {@link MockWebServer} 一侧观察请求到达的时刻与并发数.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class ThrottlingInterceptorTest {
+	private MockWebServer server;
+	private MinIoProperties properties;
+	private OkHttpClient client;
+	
+	@BeforeEach
+	void setUp() throws IOException {
+		this.server = new MockWebServer();
+		this.server.start();
+		this.properties = new MinIoProperties();
+		this.properties.setEndpoint(this.server.url("/").toString());
+	}
+	
+	@AfterEach
+	void tearDown() throws IOException {
+		if (this.client != null) {
+			EndpointFailoverInterceptorTest.shutdown(this.client);
+		}
+		this.server.shutdown();
+	}
+	
+	@Test
+	void holdsTheRequestRate() throws InterruptedException {
+		List<Long> arrivals = new ArrayList<>();
+		this.server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				synchronized (arrivals) {
+					arrivals.add(System.nanoTime());
+				}
+				return new MockResponse().setBody("ok");
+			}
+		});
+		this.properties.getLimit().setRequestsPerSecond(20.0);
+		this.properties.getLimit().setBurst(Duration.ZERO);
+		this.client = MinIoAutoConfiguration.newHttpClient(this.properties);
+		
+		int calls = 30;
+		Calls result = this.enqueue(calls);
+		assertThat(result.await(10)).isTrue();
+		assertThat(result.failures).isEmpty();
+		
+		// 20 个请求每秒, 不允许突发: 30 个请求的首尾间隔至少 29 个 50 毫秒.
+		long elapsed = arrivals.get(calls - 1) - arrivals.get(0);
+		assertThat(elapsed).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(29 * 50 - 50));
+		for (long windowStart : arrivals) {
+			long windowEnd = windowStart + TimeUnit.SECONDS.toNanos(1);
+			long inWindow = arrivals.stream().filter(arrival -> arrival >= windowStart && arrival < windowEnd).count();
+			assertThat(inWindow).as("requests within one second").isLessThanOrEqualTo(21);
+		}
+	}
+	
+	@Test
+	void holdsTheConcurrencyLimit() throws InterruptedException {
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		this.server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math :: max);
+				try {
+					TimeUnit.MILLISECONDS.sleep(30);
+				} finally {
+					inFlight.decrementAndGet();
+				}
+				return new MockResponse().setBody("ok");
+			}
+		});
+		this.properties.getLimit().setAdaptiveConcurrency(true);
+		this.properties.getLimit().setInitialConcurrency(3);
+		this.properties.getLimit().setMaxConcurrency(3);
+		this.client = MinIoAutoConfiguration.newHttpClient(this.properties);
+		
+		Calls result = this.enqueue(24);
+		assertThat(result.await(10)).isTrue();
+		assertThat(result.failures).isEmpty();
+		assertThat(result.succeeded).hasValue(24);
+		assertThat(maxInFlight.get()).isBetween(1, 3);
+	}
+	
+	/**
+	 * <p>
+	 *     等待令牌的调用在放行队列中排队, 不在调度器的线程上阻塞, 放行之后按到达的顺序全部完成.
+	 * </p>
+	 */
+	@Test
+	void queuesThrottledCallsWithoutBlockingDispatcherThreads() throws InterruptedException {
+		List<String> order = new ArrayList<>();
+		this.server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				synchronized (order) {
+					order.add(request.getPath());
+				}
+				return new MockResponse().setBody("ok");
+			}
+		});
+		this.properties.getLimit().setRequestsPerSecond(10.0);
+		this.properties.getLimit().setBurst(Duration.ZERO);
+		this.client = MinIoAutoConfiguration.newHttpClient(this.properties);
+		
+		int calls = 15;
+		Calls result = this.enqueue(calls);
+		TimeUnit.MILLISECONDS.sleep(300);
+		assertThat(result.done.getCount()).as("calls still waiting for tokens").isGreaterThan(5);
+		assertThat(blockedInLimiter()).as("threads blocked in the limiter").isZero();
+		
+		assertThat(result.await(10)).isTrue();
+		assertThat(result.succeeded).hasValue(calls);
+		List<String> expected = new ArrayList<>(calls);
+		for (int i = 0; i < calls; i++) {
+			expected.add("/bucket/object-" + i);
+		}
+		assertThat(order).isEqualTo(expected);
+	}
+	
+	private Calls enqueue(int count) {
+		Calls calls = new Calls(count);
+		for (int i = 0; i < count; i++) {
+			this.client.newCall(new Request.Builder().url(this.server.url("/bucket/object-" + i)).build()).enqueue(calls);
+		}
+		return calls;
+	}
+	
+	/**
+	 * <p>
+	 *     在令牌桶或并发上限的阻塞等待中的线程数.
+	 * </p>
+	 */
+	private static long blockedInLimiter() {
+		return Thread
+					.getAllStackTraces()
+					.values()
+					.stream()
+					.filter(frames -> Arrays
+											.stream(frames)
+											.anyMatch(frame -> frame.getClassName().startsWith(ThrottlingInterceptor.class.getName() + '$') && "acquire".equals(frame.getMethodName())))
+					.count();
+	}
+	
+	/**
+	 * <h2>一组异步调用的结果</h2>
+	 */
+	private static final class Calls
+			implements Callback {
+		private final CountDownLatch done;
+		private final AtomicInteger succeeded = new AtomicInteger();
+		private final ConcurrentLinkedQueue<IOException> failures = new ConcurrentLinkedQueue<>();
+		
+		Calls(int count) {
+			this.done = new CountDownLatch(count);
+		}
+		
+		boolean await(long seconds) throws InterruptedException {
+			return this.done.await(seconds, TimeUnit.SECONDS);
+		}
+		
+		@Override
+		public void onResponse(Call call, Response response) {
+			try (response) {
+				if (response.isSuccessful()) {
+					this.succeeded.incrementAndGet();
+				}
+			} finally {
+				this.done.countDown();
+			}
+		}
+		
+		@Override
+		public void onFailure(Call call, IOException e) {
+			this.failures.add(e);
+			this.done.countDown();
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package indi.ly.crush.helper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * <h2>CLOCK 缓存测试</h2>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class ClockCacheTest {
+	
+	/**
+	 * <p>
+	 *     超过容量时淘汰近期未被访问的条目, 保留被访问过的条目.
+	 * </p>
+	 */
+	@Test
+	void evictsEntriesThatWereNotRecentlyRead() {
+		ClockCache<String, Integer> cache = new ClockCache<>(2);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.get("a");
+		cache.put("c", 3);
+		
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.get("a")).isEqualTo(1);
+		assertThat(cache.get("b")).isNull();
+	}
+	
+	@Test
+	void removesOnlyTheReadValue() {
+		ClockCache<String, Integer> cache = new ClockCache<>(2);
+		Integer stale = 1000;
+		cache.put("a", stale);
+		cache.put("a", 1001);
+		
+		cache.remove("a", stale);
+		assertThat(cache.get("a")).isEqualTo(1001);
+	}
+}
@@ -0,0 +1,53 @@
+package indi.ly.crush.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * <h2>内容类型识别器测试</h2>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class ContentTypeDetectorTest {
+	private final ContentTypeDetector detector = new ContentTypeDetector(16);
+	
+	@Test
+	void detectsOnlyKnownMp4BrandsAsMp4() {
+		assertThat(this.detect(ftyp("isom"), null)).isEqualTo("video/mp4");
+		assertThat(this.detect(ftyp("M4V "), null)).isEqualTo("video/mp4");
+		assertThat(this.detect(ftyp("avif"), "image.avif")).isNotEqualTo("video/mp4");
+		assertThat(this.detect(ftyp("3gp4"), "clip.3gp")).isNotEqualTo("video/mp4");
+	}
+	
+	/**
+	 * <p>
+	 *     开头 16 个字节相同的文本, 之后的内容不同时识别结果也不同, 不能复用缓存的结果.
+	 * </p>
+	 */
+	@Test
+	void doesNotCacheTypesThatDependOnTheRestOfThePrefix() {
+		byte[] text = "0123456789abcdefghijklmnop".getBytes(StandardCharsets.US_ASCII);
+		byte[] binary = text.clone();
+		binary[20] = 0;
+		
+		assertThat(this.detect(text, null)).isEqualTo("text/plain");
+		assertThat(this.detect(binary, null)).isEqualTo("application/octet-stream");
+		assertThat(this.detect(text, null)).isEqualTo("text/plain");
+	}
+	
+	private String detect(byte[] head, String name) {
+		return this.detector.detect(head, head.length, name);
+	}
+	
+	private static byte[] ftyp(String brand) {
+		byte[] head = new byte[16];
+		head[3] = 16;
+		System.arraycopy("ftyp".getBytes(StandardCharsets.US_ASCII), 0, head, 4, 4);
+		System.arraycopy(brand.getBytes(StandardCharsets.US_ASCII), 0, head, 8, 4);
+		return head;
+	}
+}
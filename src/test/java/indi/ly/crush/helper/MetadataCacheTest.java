@@ -0,0 +1,59 @@
+package indi.ly.crush.helper;
+
+import io.minio.StatObjectResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * <h2>元数据缓存测试</h2>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class MetadataCacheTest {
+	private final AtomicInteger loads = new AtomicInteger();
+	
+	@Test
+	void sharesInFlightLoadsAndCachesNegativeResults() {
+		MetadataCache cache = new MetadataCache(8, TimeUnit.MINUTES.toNanos(1), TimeUnit.MINUTES.toNanos(1));
+		CompletableFuture<Optional<StatObjectResponse>> loading = new CompletableFuture<>();
+		
+		CompletableFuture<Optional<StatObjectResponse>> first = cache.get("a", key -> this.load(loading));
+		CompletableFuture<Optional<StatObjectResponse>> second = cache.get("a", key -> this.load(loading));
+		loading.complete(Optional.empty());
+		
+		assertThat(first.join()).isEmpty();
+		assertThat(second.join()).isEmpty();
+		assertThat(cache.get("a", key -> this.load(new CompletableFuture<>())).join()).isEmpty();
+		assertThat(this.loads).hasValue(1);
+	}
+	
+	/**
+	 * <p>
+	 *     在失效之前发起的请求返回后不写入缓存.
+	 * </p>
+	 */
+	@Test
+	void doesNotCacheLoadsStartedBeforeAnInvalidation() {
+		MetadataCache cache = new MetadataCache(8, TimeUnit.MINUTES.toNanos(1), TimeUnit.MINUTES.toNanos(1));
+		CompletableFuture<Optional<StatObjectResponse>> loading = new CompletableFuture<>();
+		
+		cache.get("a", key -> this.load(loading));
+		cache.invalidate("a");
+		loading.complete(Optional.empty());
+		
+		cache.get("a", key -> this.load(CompletableFuture.completedFuture(Optional.empty()))).join();
+		assertThat(this.loads).hasValue(2);
+	}
+	
+	private CompletableFuture<Optional<StatObjectResponse>> load(CompletableFuture<Optional<StatObjectResponse>> result) {
+		this.loads.incrementAndGet();
+		return result;
+	}
+}
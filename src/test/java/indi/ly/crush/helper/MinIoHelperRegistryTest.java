@@ -0,0 +1,80 @@
+package indi.ly.crush.helper;
+
+import indi.ly.crush.autoconfigure.MinIoProperties;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * <h2>MinIo 助手注册表测试</h2>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class MinIoHelperRegistryTest {
+	private static final String ENDPOINT = "http://localhost:9000";
+	
+	/**
+	 * <p>
+	 *     同一配置中不同桶的助手共享缓存与重试预算, 不同配置的助手各自持有.
+	 * </p>
+	 */
+	@Test
+	void sharesResourcesAmongTheBucketsOfOneClient() {
+		MinIoHelperRegistry registry = new MinIoHelperRegistry(List.of(client("first", null), client("second", null)), null);
+		
+		MinIoHelper images = registry.helper("first", "images");
+		MinIoHelper videos = registry.helper("first", "videos");
+		MinIoHelper other = registry.helper("second", "images");
+		assertThat(images).isNotSameAs(videos);
+		assertThat(images.resources).isSameAs(videos.resources);
+		assertThat(images.resources.objectCache).isNotNull();
+		assertThat(other.resources).isNotSameAs(images.resources);
+		registry.destroy();
+	}
+	
+	@Test
+	void shutsDownOnlyTheHttpClientsItOwns() {
+		OkHttpClient owned = new OkHttpClient();
+		OkHttpClient managed = new OkHttpClient();
+		MinIoHelperRegistry registry = new MinIoHelperRegistry(List.of(client("owned", owned), withHttpClient("managed", managed)), null);
+		registry.helper("owned");
+		
+		registry.destroy();
+		assertThat(owned.dispatcher().executorService().isShutdown()).isTrue();
+		assertThat(managed.dispatcher().executorService().isShutdown()).isFalse();
+		managed.dispatcher().executorService().shutdown();
+	}
+	
+	private static MinIoHelperRegistry.Client client(String name, OkHttpClient ownedHttpClient) {
+		OkHttpClient httpClient = ownedHttpClient != null ? ownedHttpClient : new OkHttpClient();
+		MinIoProperties properties = properties();
+		return new MinIoHelperRegistry.Client(name, minioClient(httpClient), minioAsyncClient(httpClient), properties, ownedHttpClient);
+	}
+	
+	private static MinIoHelperRegistry.Client withHttpClient(String name, OkHttpClient httpClient) {
+		return new MinIoHelperRegistry.Client(name, minioClient(httpClient), minioAsyncClient(httpClient), properties());
+	}
+	
+	private static MinIoProperties properties() {
+		MinIoProperties properties = new MinIoProperties();
+		properties.setEndpoint(ENDPOINT);
+		properties.setBucketName("default");
+		properties.getDownload().setHeapCacheSize(DataSize.ofMegabytes(1));
+		return properties;
+	}
+	
+	private static MinioClient minioClient(OkHttpClient httpClient) {
+		return MinioClient.builder().endpoint(ENDPOINT).credentials("access", "secret").httpClient(httpClient).build();
+	}
+	
+	private static MinioAsyncClient minioAsyncClient(OkHttpClient httpClient) {
+		return MinioAsyncClient.builder().endpoint(ENDPOINT).credentials("access", "secret").httpClient(httpClient).build();
+	}
+}
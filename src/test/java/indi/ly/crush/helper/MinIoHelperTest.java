@@ -0,0 +1,283 @@
+package indi.ly.crush.helper;
+
+import indi.ly.crush.autoconfigure.MinIoProperties;
+import indi.ly.crush.exception.MinIoException;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * <h2>MinIo 助手测试</h2>
+ * <p>
+ *     以 {@link MockWebServer} 模拟 MinIO 服务器, 在服务器一侧观察助手发出的请求.
+ * </p>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class MinIoHelperTest {
+	private MockWebServer server;
+	private MinIoProperties properties;
+	private OkHttpClient httpClient;
+	private MinIoHelper helper;
+	
+	@BeforeEach
+	void setUp() throws IOException {
+		this.server = new MockWebServer();
+		this.server.start();
+		this.properties = new MinIoProperties();
+		this.properties.setEndpoint(this.server.url("/").toString());
+		this.properties.setRegion("us-east-1");
+		this.properties.setBucketName("bucket");
+		this.properties.getUpload().setPartSize(DataSize.ofMegabytes(5));
+		this.properties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+		this.httpClient = new OkHttpClient();
+	}
+	
+	@AfterEach
+	void tearDown() throws IOException {
+		if (this.helper != null) {
+			this.helper.resources.close();
+		}
+		this.httpClient.dispatcher().executorService().shutdown();
+		this.httpClient.connectionPool().evictAll();
+		this.server.shutdown();
+	}
+	
+	/**
+	 * <p>
+	 *     长度未知的流以分片上传, 某个分片失败后中止本次分片上传, 不再合并分片.
+	 * </p>
+	 */
+	@Test
+	void abortsTheMultipartUploadWhenAPartFails() {
+		List<RecordedRequest> requests = this.failSecondPart();
+		this.helper = this.newHelper();
+		
+		InputStream content = new ByteArrayInputStream(new byte[11 << 20]);
+		assertThatThrownBy(() -> this.helper.uploadFile(content, "large.bin", "application/octet-stream")).isInstanceOf(MinIoException.class);
+		
+		assertAborted(requests);
+	}
+	
+	/**
+	 * <p>
+	 *     本地文件以分片并行上传, 某个分片重试后仍然失败时中止本次分片上传, 不再合并分片.
+	 * </p>
+	 */
+	@Test
+	void abortsTheFileMultipartUploadWhenAPartFails(@TempDir Path directory) throws IOException {
+		List<RecordedRequest> requests = this.failSecondPart();
+		this.helper = this.newHelper();
+		Path file = Files.write(directory.resolve("large.bin"), new byte[11 << 20]);
+		
+		assertThatThrownBy(() -> this.helper.uploadFile(file, "large.bin", "application/octet-stream")).isInstanceOf(MinIoException.class);
+		
+		assertAborted(requests);
+	}
+	
+	/**
+	 * <p>
+	 *     超过新鲜期的缓存条目以 If-None-Match 条件请求重新确认, 304 时返回缓存的内容, 200 时替换缓存的内容.
+	 * </p>
+	 */
+	@Test
+	void revalidatesCachedObjectsByETag() throws InterruptedException {
+		this.server.enqueue(new MockResponse().setHeader("ETag", "\"e1\"").setBody("first"));
+		this.server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"e1\""));
+		this.server.enqueue(new MockResponse().setHeader("ETag", "\"e2\"").setBody("second"));
+		this.server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"e2\""));
+		this.properties.getDownload().setHeapCacheSize(DataSize.ofMegabytes(1));
+		this.properties.getDownload().setCacheTtl(Duration.ZERO);
+		this.helper = this.newHelper();
+		
+		assertThat(this.read("object")).isEqualTo("first");
+		assertThat(this.server.takeRequest().getHeader("If-None-Match")).isNull();
+		assertThat(this.read("object")).isEqualTo("first");
+		assertThat(this.server.takeRequest().getHeader("If-None-Match")).isEqualTo("\"e1\"");
+		assertThat(this.read("object")).isEqualTo("second");
+		assertThat(this.server.takeRequest().getHeader("If-None-Match")).isEqualTo("\"e1\"");
+		assertThat(this.read("object")).isEqualTo("second");
+		assertThat(this.server.takeRequest().getHeader("If-None-Match")).isEqualTo("\"e2\"");
+	}
+	
+	private String read(String location) {
+		return new String(this.helper.download(location), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * <p>
+	 *     Snowball 归档在暂存目录的临时文件中构建, 以单个 PUT 请求上传, 上传结束后删除.
+	 * </p>
+	 */
+	@Test
+	void stagesSnowballArchivesOnDisk(@TempDir Path staging) throws IOException {
+		List<List<Path>> staged = new CopyOnWriteArrayList<>();
+		List<RecordedRequest> requests = new CopyOnWriteArrayList<>();
+		this.server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				try (Stream<Path> files = Files.list(staging)) {
+					staged.add(files.toList());
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+				requests.add(request);
+				return new MockResponse().setHeader("ETag", "\"etag\"");
+			}
+		});
+		this.properties.getSnowball().setStagingDirectory(staging.toString());
+		this.helper = this.newHelper();
+		
+		InputStream content = new ByteArrayInputStream("content".getBytes(StandardCharsets.UTF_8));
+		this.helper.uploadFiles(Map.of("a.txt", content));
+		
+		assertThat(staged).hasSize(1);
+		assertThat(staged.get(0)).singleElement().satisfies(file -> assertThat(file.getFileName().toString()).startsWith("snowball-"));
+		try (Stream<Path> files = Files.list(staging)) {
+			assertThat(files).isEmpty();
+		}
+		RecordedRequest request = requests.get(0);
+		assertThat(request.getMethod()).isEqualTo("PUT");
+		assertThat(request.getHeader("X-Amz-Meta-Snowball-Auto-Extract")).isEqualTo("true");
+		try (TarArchiveInputStream tar = new TarArchiveInputStream(request.getBody().inputStream())) {
+			TarArchiveEntry entry = tar.getNextTarEntry();
+			assertThat(entry.getName()).isEqualTo("a.txt");
+			assertThat(new String(tar.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("content");
+			assertThat(tar.getNextTarEntry()).isNull();
+		}
+	}
+	
+	/**
+	 * <p>
+	 *     长度未知的流先复制到暂存目录中的临时文件以得出其大小, 上传结束后与归档一起删除.
+	 * </p>
+	 */
+	@Test
+	void stagesStreamsOfUnknownLengthOnDisk(@TempDir Path staging) throws IOException, InterruptedException {
+		this.server.enqueue(new MockResponse().setHeader("ETag", "\"etag\""));
+		this.properties.getSnowball().setStagingDirectory(staging.toString());
+		this.helper = this.newHelper();
+		
+		InputStream content = new BufferedInputStream(new ByteArrayInputStream("content".getBytes(StandardCharsets.UTF_8)));
+		this.helper.uploadFiles(Map.of("a.txt", content));
+		
+		try (Stream<Path> files = Files.list(staging)) {
+			assertThat(files).isEmpty();
+		}
+		try (TarArchiveInputStream tar = new TarArchiveInputStream(this.server.takeRequest().getBody().inputStream())) {
+			assertThat(tar.getNextTarEntry().getSize()).isEqualTo(7);
+			assertThat(new String(tar.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("content");
+		}
+	}
+	
+	@Test
+	void rejectsHeapStagingTogetherWithAStagingDirectory(@TempDir Path staging) {
+		this.properties.getSnowball().setStagingDirectory(staging.toString());
+		this.properties.getSnowball().setHeapStaging(true);
+		
+		assertThatThrownBy(this :: newHelper)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("'snowball.heapStaging'");
+	}
+	
+	/**
+	 * <p>
+	 *     以 InitiateMultipartUploadResult 响应分片上传的创建, 第 2 个分片以 403 失败, 其余请求成功.
+	 * </p>
+	 *
+	 * @return 服务器收到的请求.
+	 */
+	private List<RecordedRequest> failSecondPart() {
+		List<RecordedRequest> requests = new CopyOnWriteArrayList<>();
+		this.server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				requests.add(request);
+				String uploads = request.getRequestUrl().queryParameter("uploads");
+				String partNumber = request.getRequestUrl().queryParameter("partNumber");
+				if ("POST".equals(request.getMethod()) && uploads != null) {
+					return new MockResponse()
+									.setHeader("Content-Type", "application/xml")
+									.setBody("<InitiateMultipartUploadResult><Bucket>bucket</Bucket><Key>large.bin</Key>"
+											 + "<UploadId>upload-1</UploadId></InitiateMultipartUploadResult>");
+				}
+				if ("2".equals(partNumber)) {
+					return error(403, "AccessDenied");
+				}
+				if ("DELETE".equals(request.getMethod())) {
+					return new MockResponse().setResponseCode(204);
+				}
+				return new MockResponse().setHeader("ETag", "\"part\"");
+			}
+		});
+		return requests;
+	}
+	
+	private static void assertAborted(List<RecordedRequest> requests) {
+		assertThat(requests)
+				.filteredOn(request -> "DELETE".equals(request.getMethod()))
+				.singleElement()
+				.satisfies(request -> assertThat(request.getRequestUrl().queryParameter("uploadId")).isEqualTo("upload-1"));
+		assertThat(requests)
+				.as("complete multipart upload")
+				.noneMatch(request -> "POST".equals(request.getMethod()) && request.getRequestUrl().queryParameter("uploadId") != null);
+	}
+	
+	MinIoHelper newHelper() {
+		MinioClient minioClient = MinioClient
+										.builder()
+										.endpoint(this.properties.getEndpoint())
+										.region(this.properties.getRegion())
+										.credentials("access", "secret")
+										.httpClient(this.httpClient)
+										.build();
+		MinioAsyncClient minioAsyncClient = MinioAsyncClient
+													.builder()
+													.endpoint(this.properties.getEndpoint())
+													.region(this.properties.getRegion())
+													.credentials("access", "secret")
+													.httpClient(this.httpClient)
+													.build();
+		return new MinIoHelper(minioClient, minioAsyncClient, this.properties);
+	}
+	
+	/**
+	 * <p>
+	 *     S3 的错误响应.
+	 * </p>
+	 */
+	static MockResponse error(int status, String code) {
+		return new MockResponse()
+						.setResponseCode(status)
+						.setHeader("Content-Type", "application/xml")
+						.setBody("<Error><Code>" + code + "</Code><Message>" + code + "</Message><RequestId>1</RequestId></Error>");
+	}
+}
@@ -0,0 +1,87 @@
+package indi.ly.crush.helper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * <h2>对象缓存测试</h2>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class ObjectCacheTest {
+	
+	/**
+	 * <p>
+	 *     堆内存层按字节数淘汰最久未使用的条目.
+	 * </p>
+	 */
+	@Test
+	void evictsTheLeastRecentlyUsedEntriesByBytes(@TempDir Path directory) throws IOException {
+		ObjectCache cache = new ObjectCache(10, 10, 0, 0, directory);
+		
+		cache.putHeap("a", "\"a\"", null, new byte[4]);
+		cache.putHeap("b", "\"b\"", null, new byte[4]);
+		assertThat(cache.get("a")).isNotNull();
+		cache.putHeap("c", "\"c\"", null, new byte[4]);
+		
+		assertThat(cache.get("b")).as("least recently used").isNull();
+		assertThat(cache.get("a")).isNotNull();
+		assertThat(cache.get("c")).isNotNull();
+		
+		cache.putHeap("d", "\"d\"", null, new byte[10]);
+		assertThat(cache.get("a")).isNull();
+		assertThat(cache.get("c")).isNull();
+		assertThat(cache.get("d").size).isEqualTo(10);
+		cache.close();
+	}
+	
+	@Test
+	void acceptsOnlyObjectsWithinTheEntryLimits(@TempDir Path directory) throws IOException {
+		ObjectCache cache = new ObjectCache(100, 10, 1000, 200, directory);
+		
+		assertThat(cache.accepts(-1)).isFalse();
+		assertThat(cache.onHeap(10)).isTrue();
+		assertThat(cache.onHeap(11)).isFalse();
+		assertThat(cache.accepts(200)).isTrue();
+		assertThat(cache.accepts(201)).isFalse();
+		cache.close();
+	}
+	
+	/**
+	 * <p>
+	 *     磁盘层按字节数淘汰时删除被淘汰的条目的文件, 关闭时删除整个目录.
+	 * </p>
+	 */
+	@Test
+	void deletesTheFilesOfEvictedDiskEntries(@TempDir Path directory) throws IOException {
+		ObjectCache cache = new ObjectCache(0, 0, 100, 100, directory);
+		
+		cache.putDisk("a", "\"a\"", null, new ByteArrayInputStream(new byte[60]));
+		ObjectCache.Entry b = cache.putDisk("b", "\"b\"", null, new ByteArrayInputStream(new byte[60]));
+		
+		assertThat(cache.get("a")).isNull();
+		assertThat(filesUnder(directory)).isEqualTo(1);
+		try (InputStream stream = b.open()) {
+			assertThat(stream.readAllBytes()).hasSize(60);
+		}
+		
+		cache.close();
+		assertThat(filesUnder(directory)).isZero();
+	}
+	
+	private static long filesUnder(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.filter(Files :: isRegularFile).count();
+		}
+	}
+}
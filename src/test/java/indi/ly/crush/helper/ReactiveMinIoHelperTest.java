@@ -0,0 +1,137 @@
+package indi.ly.crush.helper;
+
+import indi.ly.crush.autoconfigure.MinIoProperties;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * <h2>MinIo 响应式助手测试</h2>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class ReactiveMinIoHelperTest {
+	private MockWebServer server;
+	private MinIoProperties properties;
+	private OkHttpClient httpClient;
+	private MinioAsyncClient minioAsyncClient;
+	
+	@BeforeEach
+	void setUp() throws IOException {
+		this.server = new MockWebServer();
+		this.server.start();
+		this.properties = new MinIoProperties();
+		this.properties.setEndpoint(this.server.url("/").toString());
+		this.properties.setRegion("us-east-1");
+		this.properties.setBucketName("bucket");
+		this.properties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+		this.httpClient = new OkHttpClient();
+		this.minioAsyncClient = MinioAsyncClient
+											.builder()
+											.endpoint(this.properties.getEndpoint())
+											.region(this.properties.getRegion())
+											.credentials("access", "secret")
+											.httpClient(this.httpClient)
+											.build();
+	}
+	
+	@AfterEach
+	void tearDown() throws IOException {
+		this.httpClient.dispatcher().executorService().shutdown();
+		this.httpClient.connectionPool().evictAll();
+		this.server.shutdown();
+	}
+	
+	@Test
+	void recordsRetriesInTheInjectedMetrics() {
+		this.server.enqueue(MinIoHelperTest.error(503, "SlowDown"));
+		this.server.enqueue(new MockResponse().setBody("content"));
+		List<String> retries = new ArrayList<>();
+		ReactiveMinIoHelper helper = new ReactiveMinIoHelper(this.minioAsyncClient, this.properties);
+		helper.setMetrics(new MinIoMetrics() {
+			@Override
+			public void recordRetry(String operation) {
+				retries.add(operation);
+			}
+		});
+		
+		assertThat(read(helper, "object")).isEqualTo("content");
+		assertThat(retries).containsExactly("download");
+	}
+	
+	/**
+	 * <p>
+	 *     共享 {@link MinIoHelper} 的重试策略, 从而共享其重试预算.
+	 * </p>
+	 */
+	@Test
+	void sharesTheRetryPolicyOfTheHelper() {
+		MinioClient minioClient = MinioClient
+										.builder()
+										.endpoint(this.properties.getEndpoint())
+										.credentials("access", "secret")
+										.httpClient(this.httpClient)
+										.build();
+		MinIoHelper helper = new MinIoHelper(minioClient, this.minioAsyncClient, this.properties);
+		
+		ReactiveMinIoHelper reactive = new ReactiveMinIoHelper(this.minioAsyncClient, this.properties, helper);
+		assertThat(reactive).extracting("retryPolicy").isSameAs(helper.retryPolicy);
+	}
+	
+	/**
+	 * <p>
+	 *     读取到一部分时取消订阅, 响应被关闭, 其连接不再被占用.
+	 * </p>
+	 */
+	@Test
+	void closesTheResponseWhenTheDownloadIsCancelled() throws InterruptedException {
+		this.server.enqueue(new MockResponse().setBody(new Buffer().write(new byte[1 << 20])));
+		ReactiveMinIoHelper helper = new ReactiveMinIoHelper(this.minioAsyncClient, this.properties);
+		
+		helper
+				.download("object")
+				.take(1)
+				.doOnNext(DataBufferUtils :: release)
+				.blockLast(Duration.ofSeconds(10));
+		
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (this.connectionsInUse() > 0 && System.nanoTime() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+		assertThat(this.connectionsInUse()).isZero();
+	}
+	
+	private int connectionsInUse() {
+		return this.httpClient.connectionPool().connectionCount() - this.httpClient.connectionPool().idleConnectionCount();
+	}
+	
+	static String read(ReactiveMinIoHelper helper, String location) {
+		return DataBufferUtils
+						.join(helper.download(location))
+						.map(buffer -> {
+							try {
+								return buffer.toString(StandardCharsets.UTF_8);
+							} finally {
+								DataBufferUtils.release(buffer);
+							}
+						})
+						.block(Duration.ofSeconds(10));
+	}
+}
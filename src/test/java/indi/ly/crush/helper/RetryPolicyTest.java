@@ -0,0 +1,146 @@
+package indi.ly.crush.helper;
+
+import indi.ly.crush.autoconfigure.MinIoProperties;
+import indi.ly.crush.exception.MinIoException;
+import indi.ly.crush.exception.MinIoTransportException;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * <h2>重试策略测试</h2>
+ *
+ * @author 云上的云
+ * @since 1.0
+ */
+class RetryPolicyTest {
+	private final List<String> retries = new ArrayList<>();
+	
+	/**
+	 * <p>
+	 *     没有令牌时, 每秒只有 minRetriesPerSecond 次重试, 用完之后失败的调用不再重试.
+	 * </p>
+	 */
+	@Test
+	void stopsRetryingWhenTheBudgetIsExhausted() {
+		RetryPolicy policy = this.policy(0.0, 2);
+		
+		AtomicInteger attempts = new AtomicInteger();
+		assertThatThrownBy(() -> policy.call("download", () -> fail(attempts))).isInstanceOf(MinIoException.class);
+		assertThat(attempts).hasValue(3);
+		
+		attempts.set(0);
+		assertThatThrownBy(() -> policy.call("download", () -> fail(attempts))).isInstanceOf(MinIoException.class);
+		assertThat(attempts).as("attempts once the budget is exhausted").hasValue(1);
+		assertThat(this.retries).containsExactly("download", "download");
+	}
+	
+	/**
+	 * <p>
+	 *     每次调用存入 budgetRatio 个令牌, 每次重试取出 1 个.
+	 * </p>
+	 */
+	@Test
+	void earnsRetriesFromCalls() throws Exception {
+		RetryPolicy policy = this.policy(0.5, 0);
+		for (int i = 0; i < 4; i++) {
+			policy.call("stat", () -> "ok");
+		}
+		
+		// 4 次成功的调用与这次调用共存入 2.5 个令牌, 足够 2 次重试.
+		AtomicInteger attempts = new AtomicInteger();
+		assertThatThrownBy(() -> policy.call("stat", () -> fail(attempts))).isInstanceOf(MinIoException.class);
+		assertThat(attempts).hasValue(3);
+	}
+	
+	@Test
+	void sharesTheBudgetAmongPolicies() {
+		MinIoProperties.Retry retry = retry(0.0, 1);
+		RetryPolicy.Budget budget = new RetryPolicy.Budget(retry);
+		RetryPolicy first = new RetryPolicy(retry, budget, this.retries :: add);
+		RetryPolicy second = new RetryPolicy(retry, budget, this.retries :: add);
+		
+		AtomicInteger attempts = new AtomicInteger();
+		assertThatThrownBy(() -> first.call("upload", () -> fail(attempts))).isInstanceOf(MinIoException.class);
+		assertThatThrownBy(() -> second.call("upload", () -> fail(attempts))).isInstanceOf(MinIoException.class);
+		assertThat(attempts).hasValue(3);
+	}
+	
+	@Test
+	void stopsRetryingAsynchronousCallsWhenTheBudgetIsExhausted() {
+		RetryPolicy policy = this.policy(0.0, 1);
+		
+		AtomicInteger attempts = new AtomicInteger();
+		CompletableFuture<Object> result = policy.callAsync("search", () -> CompletableFuture.failedFuture(retryable(attempts)));
+		assertThatThrownBy(result :: join).isInstanceOf(CompletionException.class).hasCauseInstanceOf(MinIoException.class);
+		assertThat(attempts).hasValue(2);
+	}
+	
+	/**
+	 * <p>
+	 *     读取响应体时连接被重置, 以 {@link UncheckedIOException} 抛出, 即使包装在 {@link CompletionException} 中也可以重试.
+	 * </p>
+	 */
+	@Test
+	void retriesConnectionResetsWrappedInUncheckedExceptions() throws Exception {
+		RetryPolicy policy = this.policy(1.0, 10);
+		
+		AtomicInteger attempts = new AtomicInteger();
+		String result = policy.call("download", () -> {
+			if (attempts.incrementAndGet() == 1) {
+				throw new CompletionException(new UncheckedIOException(new SocketException("Connection reset")));
+			}
+			return "ok";
+		});
+		assertThat(result).isEqualTo("ok");
+		assertThat(attempts).hasValue(2);
+		assertThat(MinIoException.translate(new UncheckedIOException(new SocketException("Connection reset"))))
+				.isInstanceOf(MinIoTransportException.class);
+	}
+	
+	@Test
+	void doesNotRetryFailuresThatAreNotRetryable() {
+		RetryPolicy policy = this.policy(1.0, 10);
+		
+		AtomicInteger attempts = new AtomicInteger();
+		assertThatThrownBy(() -> policy.call("download", () -> {
+			attempts.incrementAndGet();
+			throw new MinIoException("denied", null, false);
+		})).isInstanceOf(MinIoException.class);
+		assertThat(attempts).hasValue(1);
+		assertThat(this.retries).isEmpty();
+	}
+	
+	private RetryPolicy policy(double budgetRatio, int minRetriesPerSecond) {
+		return new RetryPolicy(retry(budgetRatio, minRetriesPerSecond), this.retries :: add);
+	}
+	
+	private static MinIoProperties.Retry retry(double budgetRatio, int minRetriesPerSecond) {
+		MinIoProperties.Retry retry = new MinIoProperties.Retry();
+		retry.setMaxAttempts(10);
+		retry.setInitialBackoff(Duration.ofMillis(1));
+		retry.setMaxBackoff(Duration.ofMillis(1));
+		retry.setBudgetRatio(budgetRatio);
+		retry.setMinRetriesPerSecond(minRetriesPerSecond);
+		return retry;
+	}
+	
+	private static Object fail(AtomicInteger attempts) {
+		throw retryable(attempts);
+	}
+	
+	private static MinIoException retryable(AtomicInteger attempts) {
+		attempts.incrementAndGet();
+		return new MinIoException("busy", null, true);
+	}
+}